@@ -0,0 +1,61 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.model.CurrencyModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CurrencyModel#convertBatch} against a loop of scalar conversions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchConversionBenchmark {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private CurrencyModel model;
+    private double[] amounts;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        model = new CurrencyModel();
+        Random random = new Random(42);
+        amounts = new double[size];
+        out = new double[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = random.nextDouble() * 10_000;
+        }
+    }
+
+    @Benchmark
+    public double[] scalarLoop() {
+        for (int i = 0; i < amounts.length; i++) {
+            out[i] = model.convert("EUR", "JPY", amounts[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] convertBatch() {
+        model.convertBatch(amounts, "EUR", "JPY", out);
+        return out;
+    }
+}
@@ -0,0 +1,51 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencyModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory conversion paths of {@link CurrencyModel}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+    private CurrencyModel model;
+    private Currency eur;
+    private Currency jpy;
+    private double amount;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        model = new CurrencyModel();
+        eur = model.getCurrencies().stream().filter(c -> c.getAbbreviation().equals("EUR")).findFirst().orElseThrow();
+        jpy = model.getCurrencies().stream().filter(c -> c.getAbbreviation().equals("JPY")).findFirst().orElseThrow();
+        amount = 1234.56;
+    }
+
+    @Benchmark
+    public double convertCurrencies() {
+        return model.convert(amount, eur, jpy);
+    }
+
+    @Benchmark
+    public double convertCodes() {
+        return model.convert("EUR", "JPY", amount);
+    }
+}
@@ -0,0 +1,46 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the read paths of {@link CurrencyDAO}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrencyDAOBenchmark {
+    private CurrencyDAO dao;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        dao = new CurrencyDAO();
+    }
+
+    @Benchmark
+    public double getExchangeRate() {
+        return dao.getExchangeRate("EUR");
+    }
+
+    @Benchmark
+    public List<Currency> getAllCurrencies() {
+        return dao.getAllCurrencies();
+    }
+}
@@ -0,0 +1,74 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyRepository;
+import fi.metropolia.currency_converter.model.Currency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JPA and the JDBC {@link CurrencyRepository} on the hot read and
+ * update paths. JPA reads are served by the second-level cache, JDBC reads always
+ * query the database; updates go to the database with both.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrencyRepositoryBenchmark {
+    private static final String CODE = "XTS"; // ISO 4217 code reserved for testing
+
+    @Param({"jpa", "jdbc"})
+    public String repository;
+
+    private CurrencyRepository currencies;
+    private long version;
+    private double rate = 1.0;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        System.setProperty("db.repository", repository);
+        currencies = CurrencyRepository.fromConfig();
+        if (!currencies.currencyExists(CODE)) {
+            currencies.insertCurrency(new Currency(CODE, "Testing Code", rate));
+        }
+        version = currencies.getCurrency(CODE).getVersion();
+    }
+
+    @Benchmark
+    public double getExchangeRate() {
+        return currencies.getExchangeRate("EUR");
+    }
+
+    @Benchmark
+    public List<Currency> getAllCurrencies() {
+        return currencies.getAllCurrencies();
+    }
+
+    @Benchmark
+    public long updateCurrencyRate() {
+        rate += 0.0001;
+        return currencies.updateCurrencyRate(CODE, rate);
+    }
+
+    @Benchmark
+    public long updateCurrencyRateVersioned() {
+        rate += 0.0001;
+        version = currencies.updateCurrencyRate(CODE, rate, version);
+        return version;
+    }
+}
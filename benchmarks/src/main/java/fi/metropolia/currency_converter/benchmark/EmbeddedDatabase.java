@@ -0,0 +1,68 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.model.Currency;
+
+/**
+ * In-memory H2 database standing in for PostgreSQL.
+ * Points {@link fi.metropolia.currency_converter.datasource.DatabaseConfig} at H2
+ * through system properties and seeds it with the sample currencies from
+ * create_currency_db_postgres.sql, so benchmarks run offline.
+ */
+public final class EmbeddedDatabase {
+    private static final Object[][] SAMPLE_CURRENCIES = {
+            {"USD", "United States Dollar", 1.000000},
+            {"EUR", "Euro", 1.090000},
+            {"GBP", "British Pound", 1.270000},
+            {"JPY", "Japanese Yen", 0.006700},
+            {"AUD", "Australian Dollar", 0.650000},
+            {"CAD", "Canadian Dollar", 0.730000},
+            {"CHF", "Swiss Franc", 1.100000},
+            {"CNY", "Chinese Yuan", 0.137000}
+    };
+
+    private static boolean started;
+
+    private EmbeddedDatabase() {
+    }
+
+    /**
+     * Configures the in-memory database and loads the sample data.
+     * Safe to call more than once per JVM.
+     */
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        configure("currency_db");
+
+        CurrencyDAO dao = new CurrencyDAO();
+        for (Object[] row : SAMPLE_CURRENCIES) {
+            String abbreviation = (String) row[0];
+            if (!dao.currencyExists(abbreviation)) {
+                dao.insertCurrency(new Currency(abbreviation, (String) row[1], (Double) row[2]));
+            }
+        }
+        started = true;
+    }
+
+    /**
+     * Sets the system properties that route the application to an H2 database with the given name.
+     */
+    public static void configure(String databaseName) {
+        System.setProperty("db.url", url(databaseName));
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("db.schema.action", "drop-and-create"); // The in-memory database starts empty
+        System.setProperty("db.show_sql", "false");
+    }
+
+    /**
+     * Gets the JDBC URL of the in-memory database with the given name.
+     */
+    public static String url(String databaseName) {
+        return "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
+    }
+}
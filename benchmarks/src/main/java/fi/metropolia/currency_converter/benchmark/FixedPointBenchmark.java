@@ -0,0 +1,84 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.FixedPoint;
+import fi.metropolia.currency_converter.model.RateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one EUR to JPY conversion through the {@code double} cross rates, through
+ * {@link BigDecimal} and through the fixed-point {@link RateTable#convertMinor}.
+ * The BigDecimal and fixed-point paths give identical, exactly rounded results;
+ * run with the GC profiler (the default of benchmarks.jar) to see their allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FixedPointBenchmark {
+    private static final int AMOUNTS = 1024;
+
+    private RateTable table;
+    private long[] amountsMinor;
+    private double[] amounts;
+    private BigDecimal[] bigAmounts;
+    private BigDecimal eurRate;
+    private BigDecimal jpyRate;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        table = new RateTable(List.of(
+                new Currency("EUR", "Euro", 1.09),
+                new Currency("JPY", "Japanese Yen", 0.0067),
+                new Currency("USD", "United States Dollar", 1.0)));
+        eurRate = BigDecimal.valueOf(table.scaledRateAt(table.indexOf("EUR")), FixedPoint.RATE_DIGITS);
+        jpyRate = BigDecimal.valueOf(table.scaledRateAt(table.indexOf("JPY")), FixedPoint.RATE_DIGITS);
+
+        Random random = new Random(42);
+        amountsMinor = new long[AMOUNTS];
+        amounts = new double[AMOUNTS];
+        bigAmounts = new BigDecimal[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amountsMinor[i] = random.nextInt(100_000_000);
+            amounts[i] = amountsMinor[i] / 100.0;
+            bigAmounts[i] = BigDecimal.valueOf(amountsMinor[i], 2);
+        }
+    }
+
+    private int nextIndex() {
+        return next = (next + 1) & (AMOUNTS - 1);
+    }
+
+    @Benchmark
+    public double doubleCrossRate() {
+        return table.convert("EUR", "JPY", amounts[nextIndex()]);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        return bigAmounts[nextIndex()].multiply(eurRate).divide(jpyRate, 0, RoundingMode.HALF_EVEN);
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        return table.convertMinor("EUR", "JPY", amountsMinor[nextIndex()], RoundingMode.HALF_EVEN);
+    }
+}
@@ -0,0 +1,63 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.journal.ConversionJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures recording conversions in the memory-mapped {@link ConversionJournal},
+ * for comparison with the database paths in {@link TransactionDAOBenchmark}.
+ * Each iteration appends a fixed number of records to a fresh journal without
+ * replay, so the files stay small however fast appending is.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = JournalBenchmark.RECORDS)
+@Measurement(iterations = 10, batchSize = JournalBenchmark.RECORDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    static final int RECORDS = 100_000;
+
+    private Path directory;
+    private ConversionJournal journal;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new ConversionJournal(directory, 65_536);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * One operation is one append; the reported time covers {@link #RECORDS} of them.
+     */
+    @Benchmark
+    public long append() {
+        return journal.append("EUR", "USD", 100.0, 109.0, System.currentTimeMillis() * 1_000);
+    }
+}
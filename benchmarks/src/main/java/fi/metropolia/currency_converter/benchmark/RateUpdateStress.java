@@ -0,0 +1,132 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.RateConflictException;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationStats;
+import fi.metropolia.currency_converter.model.Currency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded stress test of concurrent rate updates of one currency.
+ * Every thread repeatedly reads the rate and writes it back increased by one, so
+ * the final rate tells how many increments survived:
+ * <ul>
+ *     <li>{@code unversioned} - read, then an unconditional write; concurrent
+ *     increments overwrite each other and are lost</li>
+ *     <li>{@code versioned} - read, then a write conditional on the version read;
+ *     a conflict re-reads and tries again, so no increment is lost</li>
+ *     <li>{@code blind} - unconditional single updates, retried with backoff by
+ *     the DAO when they collide (no read-modify-write, so nothing to lose);
+ *     {@code failed} counts updates that still conflicted after the last retry</li>
+ * </ul>
+ * Runs against the embedded H2 database:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar fi.metropolia.currency_converter.benchmark.RateUpdateStress [threads] [seconds]
+ * </pre>
+ */
+public class RateUpdateStress {
+    private static final String CODE = "XTS"; // ISO 4217 code reserved for testing
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        EmbeddedDatabase.start();
+        CurrencyDAO dao = new CurrencyDAO();
+        if (!dao.currencyExists(CODE)) {
+            dao.insertCurrency(new Currency(CODE, "Testing Code", 1.0));
+        }
+
+        System.out.println("Rate update stress: " + threads + " threads, " + seconds + " s per mode");
+        System.out.printf("%-12s %12s %12s %12s %12s %12s%n",
+                "mode", "updates/s", "conflicts", "updates", "lost", "failed");
+        for (String mode : List.of("unversioned", "versioned", "blind")) {
+            run(dao, mode, threads, TimeUnit.SECONDS.toNanos(seconds));
+        }
+    }
+
+    private static void run(CurrencyDAO dao, String mode, int threads, long durationNanos) throws Exception {
+        dao.updateCurrencyRates(Map.of(CODE, 1.0));
+        Metrics.resetAll();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> worker(dao, mode, deadline)));
+        }
+        long updates = 0;
+        long conflicts = 0;
+        long failed = 0;
+        try {
+            for (Future<long[]> result : results) {
+                long[] counts = result.get();
+                updates += counts[0];
+                conflicts += counts[1];
+                failed += counts[2];
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (mode.equals("blind")) {
+            // Retried inside the DAO; every failed attempt is an error of the update operation
+            conflicts = Metrics.getStats().stream()
+                    .filter(stats -> stats.name().equals("CurrencyDAO.updateCurrencyRate"))
+                    .mapToLong(OperationStats::errors)
+                    .sum();
+        }
+        long stored = Math.round(dao.getCurrency(CODE).getRateToUSD() - 1.0);
+        double seconds = durationNanos / 1e9;
+        System.out.printf("%-12s %12.0f %12d %12d %12s %12d%n", mode, updates / seconds, conflicts, updates,
+                mode.equals("blind") ? "-" : String.valueOf(updates - stored), failed);
+    }
+
+    /**
+     * Updates until the deadline.
+     *
+     * @return Successful updates, conflicts seen and updates given up
+     */
+    private static long[] worker(CurrencyDAO dao, String mode, long deadline) {
+        long updates = 0;
+        long conflicts = 0;
+        long failed = 0;
+        while (System.nanoTime() < deadline) {
+            switch (mode) {
+                case "unversioned" -> {
+                    Currency current = dao.getCurrency(CODE);
+                    dao.updateCurrencyRates(Map.of(CODE, current.getRateToUSD() + 1.0));
+                }
+                case "versioned" -> {
+                    while (true) {
+                        Currency current = dao.getCurrency(CODE);
+                        try {
+                            dao.updateCurrencyRate(CODE, current.getRateToUSD() + 1.0, current.getVersion());
+                            break;
+                        } catch (RateConflictException e) {
+                            conflicts++;
+                        }
+                    }
+                }
+                default -> {
+                    try {
+                        dao.updateCurrencyRate(CODE, 1.0 + updates);
+                    } catch (RateConflictException e) {
+                        failed++;
+                        continue;
+                    }
+                }
+            }
+            updates++;
+        }
+        return new long[]{updates, conflicts, failed};
+    }
+}
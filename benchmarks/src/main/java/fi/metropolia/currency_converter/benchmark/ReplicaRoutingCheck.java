@@ -0,0 +1,123 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.datasource.RoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Walks through read/write splitting with a primary and two read replicas, all
+ * embedded H2 databases. The replicas are copies of the primary whose EUR rate is
+ * changed, so every read shows which database served it. Lag is simulated with a
+ * {@code replica_lag} table read by the lag query.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar fi.metropolia.currency_converter.benchmark.ReplicaRoutingCheck [round-robin|least-latency]
+ * </pre>
+ */
+public class ReplicaRoutingCheck {
+    private static final long MAX_LAG_MS = 300;
+    private static final long CHECK_INTERVAL_MS = 50;
+    private static final String[] REPLICAS = {"currency_replica_1", "currency_replica_2"};
+    private static final double[] REPLICA_EUR_RATES = {2.01, 2.02};
+
+    public static void main(String[] args) throws Exception {
+        String selection = args.length > 0 ? args[0] : "round-robin";
+        List<String> urls = new ArrayList<>();
+        for (String replica : REPLICAS) {
+            urls.add(EmbeddedDatabase.url(replica));
+        }
+        System.setProperty("db.replica.urls", String.join(",", urls));
+        System.setProperty("db.replica.selection", selection);
+        System.setProperty("db.replica.lag.query", "SELECT lag_ms FROM replica_lag");
+        System.setProperty("db.replica.max.lag.ms", String.valueOf(MAX_LAG_MS));
+        System.setProperty("db.replica.check.interval.ms", String.valueOf(CHECK_INTERVAL_MS));
+        EmbeddedDatabase.start();
+
+        for (int i = 0; i < REPLICAS.length; i++) {
+            copyPrimary(urls.get(i), REPLICA_EUR_RATES[i]);
+        }
+        Thread.sleep(CHECK_INTERVAL_MS * 3);
+
+        CurrencyDAO dao = new CurrencyDAO();
+        RoutingDataSource router = CurrencyDAO.getRoutingDataSource();
+        System.out.println("Replica routing (" + selection + "); EUR is 1.09 on the primary, "
+                + REPLICA_EUR_RATES[0] + " and " + REPLICA_EUR_RATES[1] + " on the replicas");
+
+        report("Reads", readEur(dao, 6));
+
+        dao.updateCurrencyRate("GBP", 1.28);
+        report("Right after a write", readEur(dao, 2));
+        Thread.sleep(MAX_LAG_MS + CHECK_INTERVAL_MS);
+        report("After the staleness window", readEur(dao, 2));
+
+        execute(urls.get(0), "UPDATE replica_lag SET lag_ms = " + (MAX_LAG_MS * 10));
+        Thread.sleep(CHECK_INTERVAL_MS * 3);
+        report("Replica 1 lagging", readEur(dao, 4));
+        execute(urls.get(0), "UPDATE replica_lag SET lag_ms = 0");
+        Thread.sleep(CHECK_INTERVAL_MS * 3);
+
+        for (String url : urls) {
+            execute(url, "DROP TABLE currency CASCADE");
+            execute(url, "DROP TABLE replica_lag"); // Checks fail too, so the replicas stay skipped
+        }
+        report("Both replicas failing", readEur(dao, 2));
+
+        System.out.println("Replica reads: " + router.getReplicaReadCount()
+                + ", primary reads: " + router.getPrimaryReadCount()
+                + ", fallbacks: " + router.getFallbackCount());
+        router.getReplicaStatus().forEach(System.out::println);
+        CurrencyDAO.close();
+    }
+
+    /**
+     * Reads the EUR rate the given number of times, past the second-level cache.
+     */
+    private static Map<Double, Integer> readEur(CurrencyDAO dao, int reads) {
+        Map<Double, Integer> seen = new TreeMap<>();
+        for (int i = 0; i < reads; i++) {
+            dao.evictAllCached();
+            seen.merge(dao.getExchangeRate("EUR"), 1, Integer::sum);
+        }
+        return seen;
+    }
+
+    private static void report(String step, Map<Double, Integer> seen) {
+        System.out.printf("%-28s %s%n", step + ":", seen);
+    }
+
+    /**
+     * Makes a replica a copy of the primary with its own EUR rate and no lag.
+     */
+    private static void copyPrimary(String replicaUrl, double eurRate) throws SQLException {
+        try (Connection primary = DriverManager.getConnection(EmbeddedDatabase.url("currency_db"), "sa", "");
+             Connection replica = DriverManager.getConnection(replicaUrl, "sa", "");
+             Statement read = primary.createStatement();
+             Statement write = replica.createStatement();
+             ResultSet script = read.executeQuery("SCRIPT")) {
+            while (script.next()) {
+                String sql = script.getString(1);
+                if (!sql.startsWith("CREATE USER")) {
+                    write.execute(sql);
+                }
+            }
+            write.execute("UPDATE currency SET rate_to_usd = " + eurRate + " WHERE abbreviation = 'EUR'");
+            write.execute("CREATE TABLE replica_lag (lag_ms DOUBLE PRECISION)");
+            write.execute("INSERT INTO replica_lag VALUES (0)");
+        }
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
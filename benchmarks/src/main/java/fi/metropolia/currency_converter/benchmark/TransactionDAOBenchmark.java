@@ -0,0 +1,66 @@
+package fi.metropolia.currency_converter.benchmark;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.TransactionDAO;
+import fi.metropolia.currency_converter.dao.TransactionWriteBehind;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TransactionDAO#saveTransaction}, one row per operation,
+ * against the batching {@link TransactionWriteBehind}. The write-behind queue is
+ * bounded, so its sustained throughput is that of the background writer.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionDAOBenchmark {
+    private TransactionDAO dao;
+    private TransactionWriteBehind writeBehind;
+    private Currency eur;
+    private Currency usd;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        dao = new TransactionDAO(CurrencyDAO.getEntityManagerFactory());
+        eur = new Currency("EUR", "Euro", 1.09);
+        usd = new Currency("USD", "United States Dollar", 1.0);
+        writeBehind = new TransactionWriteBehind(dao, 10_000, 500, 50, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeBehind.close();
+    }
+
+    @Benchmark
+    public Transaction saveTransaction() {
+        Transaction transaction = new Transaction(eur, usd, 100.0, 109.0);
+        dao.saveTransaction(transaction);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction submitWriteBehind() {
+        Transaction transaction = new Transaction(eur, usd, 100.0, 109.0);
+        writeBehind.submit(transaction);
+        return transaction;
+    }
+}
@@ -1,68 +1,143 @@
 package fi.metropolia.currency_converter;
 
 import fi.metropolia.currency_converter.controller.CurrencyController;
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.CurrencySnapshotStore;
+import fi.metropolia.currency_converter.dao.DatabaseExecutor;
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.model.Currency;
 import fi.metropolia.currency_converter.model.CurrencyModel;
+import fi.metropolia.currency_converter.model.CurrencySnapshot;
+import fi.metropolia.currency_converter.server.ConversionServer;
 import fi.metropolia.currency_converter.view.CurrencyView;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main application class for the Currency Converter.
  * Implements MVC pattern with JPA database integration.
+ * The window is shown before the database is connected, converting with the
+ * rates saved in the local snapshot if there is one; startup phases are
+ * recorded in {@link StartupTimings}.
  */
 public class Main extends Application {
+    private CurrencyController controller;
 
     @Override
     public void start(Stage stage) {
-        CurrencyView view = null;
-
-        try {
-            // Load database properties first
-            loadDatabaseProperties();
-
-            // Initialize model (connects to database via JPA)
-            CurrencyModel model = new CurrencyModel();
-
-            // Initialize view
-            view = new CurrencyView();
-
-            // Initialize controller (connects model and view)
-            CurrencyController controller = new CurrencyController(model, view);
+        StartupTimings.mark("fx-start");
+
+        // Show the window at once; the database is connected in the background
+        CurrencyView view = new CurrencyView();
+        view.start(stage);
+        view.setLoading(true);
+        StartupTimings.mark("window-shown");
+
+        // Convert with the rates saved by the last run until the database answers
+        CurrencySnapshotStore snapshots = CurrencySnapshotStore.fromConfig();
+        CurrencySnapshot snapshot = snapshots != null ? snapshots.load() : null;
+        CurrencyModel model = new CurrencyModel(snapshots, snapshot != null ? snapshot.currencies() : List.of());
+        CurrencyController controller = new CurrencyController(model, view);
+        this.controller = controller;
+        if (snapshot != null) {
+            controller.initialize();
+            view.setLoading(false);
+            view.showStatus("📦 Using rates saved " + formatTime(snapshot.savedAt()) + ", connecting...");
+            StartupTimings.mark("snapshot-loaded");
+        }
 
-            // Start the view
-            view.start(stage);
+        bootstrap(model).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                // Log error to console
+                System.err.println("Failed to connect to the database: " + cause.getMessage());
+                cause.printStackTrace();
+
+                if (snapshot != null) {
+                    // Keep converting offline; Refresh retries the connection
+                    view.showStatus("⚠️ Database unavailable, using rates saved "
+                            + formatTime(snapshot.savedAt()) + ". Refresh to retry.");
+                    return;
+                }
+                if (cause instanceof RuntimeException) {
+                    // Show error dialog to user (Assignment requirement #6)
+                    showDatabaseErrorDialog(cause.getMessage());
+                } else {
+                    showErrorDialog("An unexpected error occurred: " + cause.getMessage());
+                }
+
+                // Exit application as we cannot function without database or saved rates
+                System.exit(1);
+                return;
+            }
 
-        } catch (RuntimeException e) {
-            // Log error to console
-            System.err.println("Failed to start application: " + e.getMessage());
-            e.printStackTrace();
+            controller.initialize();
+            view.setLoading(false);
+            if (snapshot != null) {
+                view.showStatus("✅ Connected to the database, rates are up to date");
+            }
+            StartupTimings.mark("ready");
+        }));
+    }
 
-            // Show error dialog to user (Assignment requirement #6)
-            showDatabaseErrorDialog(e.getMessage());
+    private static String formatTime(Instant time) {
+        return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault()).format(time);
+    }
 
-            // If view was created, show error there too
-            if (view != null) {
-                view.showDatabaseError(e.getMessage());
+    /**
+     * Connects the model off the JavaFX application thread. The connection pool is
+     * started first; then the EntityManagerFactory (metadata building, schema action)
+     * is created while the currencies are read with plain JDBC, when the schema
+     * action keeps existing rows.
+     */
+    private CompletableFuture<Void> bootstrap(CurrencyModel model) {
+        CompletableFuture<Void> pool = DatabaseExecutor.run(() -> {
+            // Load database properties first
+            loadDatabaseProperties();
+            CurrencyDAO.startPool();
+            StartupTimings.mark("connection-pool");
+        });
+
+        CompletableFuture<Void> jpa = pool.thenRunAsync(() -> {
+            new CurrencyDAO();
+            StartupTimings.mark("entity-manager-factory");
+        }, DatabaseExecutor.get());
+
+        CompletableFuture<List<Currency>> currencies = pool.thenApplyAsync(ignored -> {
+            if (!DatabaseConfig.isSchemaPreserved()) {
+                return null; // The schema action rebuilds the tables; load after JPA started
             }
-
-            // Exit application as we cannot function without database
-            System.exit(1);
-        } catch (Exception e) {
-            System.err.println("Unexpected error: " + e.getMessage());
-            e.printStackTrace();
-            showErrorDialog("An unexpected error occurred: " + e.getMessage());
-            System.exit(1);
-        }
+            List<Currency> loaded = CurrencyDAO.loadCurrenciesDirect();
+            StartupTimings.mark("currencies-loaded");
+            return loaded;
+        }, DatabaseExecutor.get());
+
+        return jpa.thenCombine(currencies, (ignored, loaded) -> {
+            // Reuses the connection pool and factory created above
+            model.connect(loaded);
+            StartupTimings.mark("model-connected");
+            return null;
+        });
     }
 
     /**
      * Loads database properties from database.properties file and sets them as system properties.
      * This allows persistence.xml to use ${db.url}, ${db.user}, ${db.password} placeholders.
+     * System properties given on the command line take precedence and are left as they are.
      */
     private void loadDatabaseProperties() {
         try (InputStream input = Main.class.getClassLoader().getResourceAsStream("database.properties")) {
@@ -81,16 +156,13 @@ public class Main extends Application {
             String user = props.getProperty("db.user");
             String password = props.getProperty("db.password");
 
-            if (url != null) {
-                System.setProperty("db.url", url);
+            if (url != null && setIfAbsent("db.url", url)) {
                 System.out.println("Loaded db.url: " + url);
             }
-            if (user != null) {
-                System.setProperty("db.user", user);
+            if (user != null && setIfAbsent("db.user", user)) {
                 System.out.println("Loaded db.user: " + user);
             }
-            if (password != null) {
-                System.setProperty("db.password", password);
+            if (password != null && setIfAbsent("db.password", password)) {
                 System.out.println("Loaded db.password: [HIDDEN]");
             }
 
@@ -106,12 +178,24 @@ public class Main extends Application {
      * Sets default database properties if no properties file is found.
      */
     private void setDefaultDatabaseProperties() {
-        System.setProperty("db.url", "jdbc:postgresql://localhost:5432/currency_db");
-        System.setProperty("db.user", "postgres");
-        System.setProperty("db.password", "postgres");
+        setIfAbsent("db.url", "jdbc:postgresql://localhost:5432/currency_db");
+        setIfAbsent("db.user", "postgres");
+        setIfAbsent("db.password", "postgres");
         System.out.println("Using default database configuration");
     }
 
+    /**
+     * Sets a system property unless it is already set.
+     * @return true if the property was set
+     */
+    private static boolean setIfAbsent(String key, String value) {
+        if (System.getProperty(key) != null) {
+            return false;
+        }
+        System.setProperty(key, value);
+        return true;
+    }
+
     /**
      * Shows an error dialog when database connection fails.
      */
@@ -147,9 +231,20 @@ public class Main extends Application {
     @Override
     public void stop() {
         System.out.println("Application is closing...");
+        if (controller != null) {
+            controller.close();
+        }
     }
 
-    public static void main(String[] args) {
+    /**
+     * Starts the desktop UI, or with {@code --server} the headless HTTP server
+     * (see {@link ConversionServer}) without starting the JavaFX toolkit.
+     */
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--server")) {
+            ConversionServer.main(args);
+            return;
+        }
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package fi.metropolia.currency_converter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records when each startup phase finished, in milliseconds since the JVM was launched.
+ * Phases may be marked from any thread. The last phase is the first conversion made
+ * by the user, which gives the time-to-first-conversion; the full list is printed then.
+ */
+public final class StartupTimings {
+    private static final long LOAD_NANOS = System.nanoTime();
+    // Time between process launch and loading this class, when the OS reports it
+    private static final long LAUNCH_OFFSET_NANOS = ProcessHandle.current().info().startInstant()
+            .map(start -> Math.max(0, Duration.between(start, Instant.now()).toNanos()))
+            .orElse(0L);
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static volatile boolean firstConversionDone;
+
+    private StartupTimings() {
+    }
+
+    /**
+     * Records that a phase has just finished. Marking a phase again keeps the first time.
+     */
+    public static void mark(String phase) {
+        long millis = (LAUNCH_OFFSET_NANOS + System.nanoTime() - LOAD_NANOS) / 1_000_000;
+        synchronized (phases) {
+            phases.putIfAbsent(phase, millis);
+        }
+    }
+
+    /**
+     * Records the first conversion and prints all startup timings. Later calls do nothing.
+     */
+    public static void markFirstConversion() {
+        if (firstConversionDone) {
+            return;
+        }
+        firstConversionDone = true;
+        mark("first-conversion");
+        System.out.println("⏱ Startup timings (ms since launch): " + getPhases());
+    }
+
+    /**
+     * Gets the recorded phases in the order they finished.
+     */
+    public static Map<String, Long> getPhases() {
+        synchronized (phases) {
+            return new LinkedHashMap<>(phases);
+        }
+    }
+}
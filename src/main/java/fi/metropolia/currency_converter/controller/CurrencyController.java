@@ -1,17 +1,35 @@
 package fi.metropolia.currency_converter.controller;
 
+import fi.metropolia.currency_converter.StartupTimings;
+import fi.metropolia.currency_converter.dao.RateConflictException;
+import fi.metropolia.currency_converter.importer.ImportResult;
 import fi.metropolia.currency_converter.model.Currency;
 import fi.metropolia.currency_converter.model.CurrencyModel;
+import fi.metropolia.currency_converter.model.RateTickCoalescer;
 import fi.metropolia.currency_converter.view.AddCurrencyView;
 import fi.metropolia.currency_converter.view.CurrencyView;
+import fi.metropolia.currency_converter.view.DiagnosticsView;
+import javafx.application.Platform;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller class handling user interactions and coordinating between Model and View.
+ * The {@code ...Async} methods never block the calling JavaFX application thread:
+ * database work runs in the background and the returned futures complete on the
+ * JavaFX application thread, so callbacks may update the UI directly.
  */
 public class CurrencyController {
     private final CurrencyModel model;
     private final CurrencyView view;
     private AddCurrencyView addCurrencyView;
+    private DiagnosticsView diagnosticsView;
+    private volatile RateTickCoalescer rateTicks;
 
     public CurrencyController(CurrencyModel model, CurrencyView view) {
         this.model = model;
@@ -27,8 +45,29 @@ public class CurrencyController {
         }
     }
 
+    /**
+     * Reloads the currencies from the database and shows them in the view.
+     * Calls made while a refresh is running join that refresh.
+     */
+    public CompletableFuture<List<Currency>> refreshCurrenciesAsync() {
+        return onFxThread(model.refreshCurrenciesAsync()).thenApply(currencies -> {
+            view.populateCurrencies(currencies);
+            return currencies;
+        });
+    }
+
     public double convert(double amount, Currency from, Currency to) {
-        return model.convert(amount, from, to);
+        double result = model.convert(amount, from, to);
+        StartupTimings.markFirstConversion();
+        return result;
+    }
+
+    public double convert(String from, String to, double amount) {
+        return model.convert(from, to, amount);
+    }
+
+    public double convert(double amount, String from, String to, Instant at) {
+        return model.convert(amount, from, to, at);
     }
 
     public void updateCurrencyRate(String abbreviation, double newRate) {
@@ -36,6 +75,77 @@ public class CurrencyController {
         refreshCurrencies();
     }
 
+    /**
+     * Stores a new rate in the background and shows the updated currencies when done.
+     */
+    public CompletableFuture<Void> updateCurrencyRateAsync(String abbreviation, double newRate) {
+        return onFxThread(model.updateCurrencyRateAsync(abbreviation, newRate))
+                .thenRun(() -> view.populateCurrencies(model.getCurrencies()));
+    }
+
+    /**
+     * Stores a new rate in the background if the currency still has the version it was
+     * based on, then shows the currencies. On a conflict the returned future fails with
+     * {@link RateConflictException} and the view shows the rate that won, so the user
+     * can decide again.
+     */
+    public CompletableFuture<Void> updateCurrencyRateAsync(String abbreviation, double newRate, long expectedVersion) {
+        return onFxThread(model.updateCurrencyRateAsync(abbreviation, newRate, expectedVersion))
+                .whenComplete((ignored, error) -> {
+                    if (error == null || error instanceof RateConflictException) {
+                        view.populateCurrencies(model.getCurrencies());
+                    }
+                });
+    }
+
+    /**
+     * Updates the rates of several currencies in one database transaction and shows them.
+     */
+    public void updateCurrencyRates(Map<String, Double> rates) {
+        model.updateCurrencyRates(rates);
+        refreshCurrencies();
+    }
+
+    /**
+     * Stores several new rates in the background and shows the updated currencies when done.
+     */
+    public CompletableFuture<Void> updateCurrencyRatesAsync(Map<String, Double> rates) {
+        return onFxThread(model.updateCurrencyRatesAsync(rates))
+                .thenRun(() -> view.populateCurrencies(model.getCurrencies()));
+    }
+
+    /**
+     * Takes a rate tick from a streaming feed. Conversions use the rate at once; the
+     * database write and the repaint of the currency lists happen once per flush of
+     * the {@link RateTickCoalescer}, however many ticks arrived. May be called from any thread.
+     */
+    public void submitRateTick(String abbreviation, double rateToUSD) {
+        RateTickCoalescer ticks = rateTicks;
+        if (ticks == null) {
+            synchronized (this) {
+                if (rateTicks == null) {
+                    rateTicks = RateTickCoalescer.fromConfig(model,
+                            () -> Platform.runLater(() -> view.populateCurrencies(model.getCurrencies())));
+                }
+                ticks = rateTicks;
+            }
+        }
+        ticks.submit(abbreviation, rateToUSD);
+    }
+
+    /**
+     * Stores the rate ticks still waiting and stops their flusher. Called when the application exits.
+     */
+    public void close() {
+        RateTickCoalescer ticks;
+        synchronized (this) {
+            ticks = rateTicks;
+        }
+        if (ticks != null) {
+            ticks.close();
+        }
+    }
+
     public double getExchangeRate(String abbreviation) {
         return model.getExchangeRate(abbreviation);
     }
@@ -52,6 +162,16 @@ public class CurrencyController {
         refreshCurrencies();
     }
 
+    /**
+     * Opens the diagnostics window with operation latencies and pool usage.
+     */
+    public void showDiagnosticsWindow() {
+        if (diagnosticsView == null) {
+            diagnosticsView = new DiagnosticsView();
+        }
+        diagnosticsView.show();
+    }
+
     /**
      * Inserts a new currency into the database.
      */
@@ -59,6 +179,32 @@ public class CurrencyController {
         model.insertCurrency(currency);
     }
 
+    /**
+     * Inserts a new currency in the background.
+     */
+    public CompletableFuture<Void> insertCurrencyAsync(Currency currency) {
+        return onFxThread(model.insertCurrencyAsync(currency));
+    }
+
+    /**
+     * Imports currencies and rates from a CSV or ECB XML file.
+     */
+    public ImportResult importRates(Path file) {
+        ImportResult result = model.importRates(file);
+        refreshCurrencies();
+        return result;
+    }
+
+    /**
+     * Imports a rate file in the background and shows the imported currencies when done.
+     */
+    public CompletableFuture<ImportResult> importRatesAsync(Path file) {
+        return onFxThread(model.importRatesAsync(file)).thenApply(result -> {
+            view.populateCurrencies(model.getCurrencies());
+            return result;
+        });
+    }
+
     /**
      * Checks if a currency with the given abbreviation already exists.
      */
@@ -66,6 +212,31 @@ public class CurrencyController {
         return model.currencyExists(abbreviation);
     }
 
+    /**
+     * Checks in the background whether a currency already exists.
+     */
+    public CompletableFuture<Boolean> currencyExistsAsync(String abbreviation) {
+        return onFxThread(model.currencyExistsAsync(abbreviation));
+    }
+
+    /**
+     * Completes a new future on the JavaFX application thread once the given one completes.
+     * Failures are passed on without their {@link CompletionException} wrapper. If the
+     * returned future is cancelled, its result is dropped; the background work still finishes.
+     */
+    private static <T> CompletableFuture<T> onFxThread(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        }));
+        return result;
+    }
+
     public void initialize() {
         refreshCurrencies();
     }
@@ -1,35 +1,160 @@
 package fi.metropolia.currency_converter.dao;
 
+import fi.metropolia.currency_converter.datasource.ConnectionPool;
 import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.datasource.PoolStats;
+import fi.metropolia.currency_converter.datasource.RoutingDataSource;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
 import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencyChange;
+import fi.metropolia.currency_converter.model.RateRecord;
+import jakarta.persistence.CacheRetrieveMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.Persistence;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data Access Object for Currency entities using JPA.
  * Handles all database operations related to currencies.
  * Uses EntityManager per request pattern.
+ * Currency entities and the all-currencies query are served from the
+ * Hibernate second-level cache; writes evict exactly the affected entries.
+ * Every operation records its latency and failures in {@link Metrics}.
+ * Single rate updates are optimistic: they check the currency's version and
+ * report a lost race as {@link RateConflictException}.
+ * With read replicas configured, reads without a transaction are served by a
+ * replica through {@link RoutingDataSource}; transactions use the primary.
+ * Every rate write appends the new rate to the rate history in the same transaction,
+ * and ends by giving the written currencies the next change id ({@link #markChanged}).
+ * {@link JdbcCurrencyRepository} is the plain JDBC alternative.
  */
-public class CurrencyDAO {
+public class CurrencyDAO implements CurrencyRepository {
+    /**
+     * Query cache region holding the result of {@link #getAllCurrencies()}.
+     */
+    public static final String ALL_CURRENCIES_REGION = "currency-all";
+
+    static final int UPSERT_BATCH_SIZE = 500;
+
+    // Expected version of an unconditional update
+    private static final long ANY_VERSION = -1;
+
+    // Reads for updates go to the database, so a stale cache entry does not cause a conflict
+    private static final Map<String, Object> BYPASS_CACHE =
+            Map.of("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+    private static final OperationMetrics GET_EXCHANGE_RATE = Metrics.operation("CurrencyDAO.getExchangeRate");
+    private static final OperationMetrics GET_ALL_CURRENCIES = Metrics.operation("CurrencyDAO.getAllCurrencies");
+    private static final OperationMetrics UPDATE_CURRENCY_RATE = Metrics.operation("CurrencyDAO.updateCurrencyRate");
+    private static final OperationMetrics UPDATE_CURRENCY_RATES = Metrics.operation("CurrencyDAO.updateCurrencyRates");
+    private static final OperationMetrics INSERT_CURRENCY = Metrics.operation("CurrencyDAO.insertCurrency");
+    private static final OperationMetrics UPSERT_RATES = Metrics.operation("CurrencyDAO.upsertRates");
+    private static final OperationMetrics CURRENCY_EXISTS = Metrics.operation("CurrencyDAO.currencyExists");
+    private static final OperationMetrics GET_CURRENCY = Metrics.operation("CurrencyDAO.getCurrency");
+    private static final OperationMetrics GET_CHANGED_CURRENCIES =
+            Metrics.operation("CurrencyDAO.getCurrenciesChangedSince");
+
+    // Parameters: abbreviation, name, rate, update time, whether the name should overwrite an existing one
+    static final String POSTGRES_UPSERT_SQL =
+            "INSERT INTO currency AS c (abbreviation, name, rate_to_usd, updated_at, version) VALUES (?, ?, ?, ?, 0) "
+                    + "ON CONFLICT (abbreviation) DO UPDATE SET rate_to_usd = EXCLUDED.rate_to_usd, "
+                    + "updated_at = EXCLUDED.updated_at, version = c.version + 1, "
+                    + "name = CASE WHEN ? THEN EXCLUDED.name ELSE c.name END";
+    static final String MERGE_UPSERT_SQL =
+            "MERGE INTO currency c USING (VALUES (CAST(? AS CHAR(3)), CAST(? AS VARCHAR(50)), "
+                    + "CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS BOOLEAN))) "
+                    + "s(abbreviation, name, rate_to_usd, updated_at, has_name) "
+                    + "ON c.abbreviation = s.abbreviation "
+                    + "WHEN MATCHED THEN UPDATE SET rate_to_usd = s.rate_to_usd, updated_at = s.updated_at, "
+                    + "version = c.version + 1, name = CASE WHEN s.has_name THEN s.name ELSE c.name END "
+                    + "WHEN NOT MATCHED THEN INSERT (abbreviation, name, rate_to_usd, updated_at, version) "
+                    + "VALUES (s.abbreviation, s.name, s.rate_to_usd, s.updated_at, 0)";
+
+    // Parameters: rate, update time, abbreviation
+    static final String RATE_UPDATE_SQL =
+            "UPDATE currency SET rate_to_usd = ?, updated_at = ?, version = version + 1 WHERE abbreviation = ?";
+
+    // Locks the counter row until the transaction ends, so change ids are handed out in commit order
+    private static final String NEXT_CHANGE_SQL =
+            "UPDATE currency_change SET last_change = last_change + 1 WHERE id = " + CurrencyChange.COUNTER_ID;
+    private static final String LAST_CHANGE_SQL =
+            "SELECT last_change FROM currency_change WHERE id = " + CurrencyChange.COUNTER_ID;
+    // Parameters: change id, abbreviation
+    private static final String MARK_CHANGED_SQL = "UPDATE currency SET change_id = ? WHERE abbreviation = ?";
+    // Creates the counter row of a new schema, continuing after the highest change id present
+    private static final String SEED_CHANGE_SQL =
+            "INSERT INTO currency_change (id, last_change) SELECT " + CurrencyChange.COUNTER_ID
+                    + ", COALESCE(MAX(change_id), 0) FROM currency "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM currency_change)";
+
+    // Single rate updates retried on conflict, with exponential backoff from this base
+    static final int UPDATE_MAX_ATTEMPTS = DatabaseConfig.getUpdateMaxAttempts();
+    private static final long UPDATE_BACKOFF_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(DatabaseConfig.getUpdateBackoffMs());
+
     private static EntityManagerFactory emf;
+    // Volatile so loadCurrenciesDirect can read it while the constructor holds the class lock
+    private static volatile ConnectionPool pool;
+    // Null without replicas
+    private static volatile RoutingDataSource router;
 
     public CurrencyDAO() {
         if (emf == null) {
             synchronized (CurrencyDAO.class) {
                 if (emf == null) {
+                    EntityManagerFactory factory = null;
                     try {
+                        // Connections come from the pool instead of Hibernate's built-in one
+                        startPool();
+
                         // Create properties map with database configuration
-                        Map<String, String> properties = new HashMap<>();
-                        properties.put("jakarta.persistence.jdbc.url", DatabaseConfig.getUrl());
-                        properties.put("jakarta.persistence.jdbc.user", DatabaseConfig.getUser());
-                        properties.put("jakarta.persistence.jdbc.password", DatabaseConfig.getPassword());
+                        Map<String, Object> properties = new HashMap<>();
+                        properties.put("jakarta.persistence.nonJtaDataSource",
+                                router != null ? router : pool.getDataSource());
+                        properties.put("hibernate.dialect", DatabaseConfig.getDialect());
+                        properties.put("hibernate.show_sql", String.valueOf(DatabaseConfig.isShowSql()));
+                        properties.put("hibernate.format_sql", String.valueOf(DatabaseConfig.isShowSql()));
+                        properties.put("jakarta.persistence.schema-generation.database.action",
+                                DatabaseConfig.getSchemaAction());
 
-                        emf = Persistence.createEntityManagerFactory("currency_pu", properties);
+                        factory = Persistence.createEntityManagerFactory("currency_pu", properties);
+                        seedChangeCounter();
+                        emf = factory;
                     } catch (Exception e) {
+                        if (factory != null) {
+                            factory.close();
+                        }
+                        if (router != null) {
+                            router.close();
+                            router = null;
+                        }
+                        if (pool != null) {
+                            pool.close();
+                            pool = null;
+                        }
                         throw new RuntimeException("Failed to create EntityManagerFactory: " + e.getMessage(), e);
                     }
                 }
@@ -37,6 +162,98 @@ public class CurrencyDAO {
         }
     }
 
+    /**
+     * Creates the shared connection pool, if not done yet, and opens its first connection.
+     * The pools of configured read replicas are created too.
+     * Called by the constructor; calling it earlier lets the connection setup overlap
+     * with other startup work.
+     */
+    public static synchronized void startPool() {
+        if (pool == null) {
+            ConnectionPool primary = new ConnectionPool();
+            try {
+                router = RoutingDataSource.fromConfig(primary.getDataSource());
+            } catch (RuntimeException e) {
+                primary.close();
+                throw e;
+            }
+            pool = primary;
+        }
+    }
+
+    /**
+     * Creates the change counter row if the schema has none yet, e.g. right after
+     * Hibernate created the tables. Another instance creating it at the same time is fine.
+     */
+    private static void seedChangeCounter() throws SQLException {
+        try (Connection connection = pool.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(SEED_CHANGE_SQL)) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            if (!e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Gives the currencies written by the current transaction the next change id.
+     * Must be the last write before the commit: the counter row stays locked until
+     * then, so every change id becomes visible only after all lower ones, and a
+     * refresh that has seen some id can never miss a lower one committed later.
+     *
+     * @return The change id given to the currencies
+     */
+    static long markChanged(Connection connection, Collection<String> abbreviations) throws SQLException {
+        try (PreparedStatement next = connection.prepareStatement(NEXT_CHANGE_SQL)) {
+            if (next.executeUpdate() == 0) {
+                throw new IllegalStateException("Currency change counter row is missing");
+            }
+        }
+        long changeId;
+        try (PreparedStatement last = connection.prepareStatement(LAST_CHANGE_SQL);
+             ResultSet rows = last.executeQuery()) {
+            rows.next();
+            changeId = rows.getLong(1);
+        }
+        try (PreparedStatement mark = connection.prepareStatement(MARK_CHANGED_SQL)) {
+            int count = 0;
+            for (String abbreviation : abbreviations) {
+                mark.setLong(1, changeId);
+                mark.setString(2, abbreviation);
+                mark.addBatch();
+                if (++count % UPSERT_BATCH_SIZE == 0) {
+                    mark.executeBatch();
+                }
+            }
+            if (count % UPSERT_BATCH_SIZE != 0) {
+                mark.executeBatch();
+            }
+        }
+        return changeId;
+    }
+
+    /**
+     * Reads all currencies with plain JDBC through the shared pool, without JPA.
+     * Lets startup load the currencies while the EntityManagerFactory is still being
+     * built; only meaningful when the schema action keeps existing rows.
+     *
+     * @throws RuntimeException if the pool is not started or the query fails
+     */
+    public static List<Currency> loadCurrenciesDirect() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            throw new IllegalStateException("Connection pool not started");
+        }
+        try (Connection connection = current.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(JdbcCurrencyRepository.ALL_CURRENCIES_SQL);
+             ResultSet rows = statement.executeQuery()) {
+            return JdbcCurrencyRepository.readCurrencies(rows);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load currencies: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Gets the EntityManagerFactory instance.
      * This allows other DAOs to share the same factory.
@@ -45,13 +262,40 @@ public class CurrencyDAO {
         return emf;
     }
 
-    private <T> T executeWithTransaction(DAOOperation<T> operation) {
+    /**
+     * Gets the current usage of the shared connection pool.
+     */
+    public static PoolStats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+
+    /**
+     * Gets the shared connection pool, or null if it is not started.
+     */
+    static ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Gets the DataSource routing reads to the replicas, or null if none are configured.
+     */
+    public static RoutingDataSource getRoutingDataSource() {
+        return router;
+    }
+
+    private <T> T executeWithTransaction(OperationMetrics metrics, DAOOperation<T> operation) {
+        long start = System.nanoTime();
+        boolean success = false;
         EntityManager em = null;
         try {
             em = emf.createEntityManager();
             em.getTransaction().begin();
             T result = operation.execute(em);
             em.getTransaction().commit();
+            success = true;
+            if (router != null) {
+                router.onWrite();
+            }
             return result;
         } catch (Exception e) {
             if (em != null && em.getTransaction().isActive()) {
@@ -60,23 +304,41 @@ public class CurrencyDAO {
             throw new RuntimeException("Database operation failed: " + e.getMessage(), e);
         } finally {
             if (em != null && em.isOpen()) em.close();
+            metrics.record(start, success);
         }
     }
 
-    private <T> T executeReadOnly(DAOOperation<T> operation) {
+    private <T> T executeReadOnly(OperationMetrics metrics, DAOOperation<T> operation) {
+        RoutingDataSource current = router;
+        return current != null
+                ? current.read(() -> executeOnPrimary(metrics, operation))
+                : executeOnPrimary(metrics, operation);
+    }
+
+    /**
+     * Runs read-only work without a transaction. Unless called through
+     * {@link RoutingDataSource#read}, its connection comes from the primary.
+     */
+    private <T> T executeOnPrimary(OperationMetrics metrics, DAOOperation<T> operation) {
+        long start = System.nanoTime();
+        boolean success = false;
         EntityManager em = null;
         try {
             em = emf.createEntityManager();
-            return operation.execute(em);
+            T result = operation.execute(em);
+            success = true;
+            return result;
         } catch (Exception e) {
             throw new RuntimeException("Database operation failed: " + e.getMessage(), e);
         } finally {
             if (em != null && em.isOpen()) em.close();
+            metrics.record(start, success);
         }
     }
 
+    @Override
     public double getExchangeRate(String abbreviation) {
-        return executeReadOnly(em -> {
+        return executeReadOnly(GET_EXCHANGE_RATE, em -> {
             Currency currency = em.find(Currency.class, abbreviation);
             if (currency == null) {
                 throw new RuntimeException("Currency not found: " + abbreviation);
@@ -85,36 +347,316 @@ public class CurrencyDAO {
         });
     }
 
+    @Override
     public List<Currency> getAllCurrencies() {
-        return executeReadOnly(em ->
+        return executeReadOnly(GET_ALL_CURRENCIES, em ->
                 em.createQuery("SELECT c FROM Currency c ORDER BY c.abbreviation", Currency.class)
+                        .setHint("org.hibernate.cacheable", true)
+                        .setHint("org.hibernate.cacheRegion", ALL_CURRENCIES_REGION)
                         .getResultList()
         );
     }
 
-    public void updateCurrencyRate(String abbreviation, double newRate) {
-        executeWithTransaction(em -> {
-            Currency currency = em.find(Currency.class, abbreviation);
-            if (currency == null) {
-                throw new RuntimeException("Currency not found: " + abbreviation);
+    /**
+     * Gets the currencies with a higher change id than the given one, ordered by abbreviation.
+     * Bypasses the query cache; the index on {@code change_id} keeps the read small.
+     */
+    @Override
+    public List<Currency> getCurrenciesChangedSince(long changeId) {
+        return executeReadOnly(GET_CHANGED_CURRENCIES, em ->
+                em.createQuery("SELECT c FROM Currency c WHERE c.changeId > :changeId ORDER BY c.abbreviation",
+                                Currency.class)
+                        .setParameter("changeId", changeId)
+                        .getResultList()
+        );
+    }
+
+    /**
+     * Gets a currency with its current rate and version, or null if it does not exist.
+     */
+    @Override
+    public Currency getCurrency(String abbreviation) {
+        return executeReadOnly(GET_CURRENCY, em -> em.find(Currency.class, abbreviation));
+    }
+
+    /**
+     * Sets the rate of a currency regardless of its version. An update that loses a race
+     * against a concurrent one is retried after a randomized, exponentially growing
+     * pause, up to {@code db.update.max.attempts} attempts in all.
+     *
+     * @return The new version of the currency
+     * @throws RateConflictException if every attempt conflicted
+     * @throws RuntimeException      if the currency does not exist or the database operation fails
+     */
+    @Override
+    public long updateCurrencyRate(String abbreviation, double newRate) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writeRate(abbreviation, newRate, ANY_VERSION);
+            } catch (RateConflictException e) {
+                if (attempt >= UPDATE_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                backOff(attempt, e);
             }
-            currency.setRateToUSD(newRate);
-            return null;
-        });
+        }
+    }
+
+    /**
+     * Sets the rate of a currency only if it still has the version the caller read.
+     * Not retried: the caller decides again with the current rate.
+     *
+     * @return The new version of the currency
+     * @throws RateConflictException if the currency was changed since that version
+     * @throws RuntimeException      if the currency does not exist or the database operation fails
+     */
+    @Override
+    public long updateCurrencyRate(String abbreviation, double newRate, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Version must not be negative: " + expectedVersion);
+        }
+        return writeRate(abbreviation, newRate, expectedVersion);
+    }
+
+    private long writeRate(String abbreviation, double newRate, long expectedVersion) {
+        long version;
+        try {
+            version = executeWithTransaction(UPDATE_CURRENCY_RATE, em -> {
+                Currency currency = em.find(Currency.class, abbreviation, BYPASS_CACHE);
+                if (currency == null) {
+                    throw new RuntimeException("Currency not found: " + abbreviation);
+                }
+                if (expectedVersion != ANY_VERSION && currency.getVersion() != expectedVersion) {
+                    throw new RateConflictException(abbreviation, expectedVersion,
+                            currency.getVersion(), currency.getRateToUSD());
+                }
+                currency.setRateToUSD(newRate);
+                em.flush(); // Checks the version and increments it
+                appendHistory(em, currency);
+                markChanged(em, abbreviation);
+                return currency.getVersion();
+            });
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof RateConflictException conflict) {
+                throw conflict;
+            }
+            if (!isConflict(e)) {
+                throw e;
+            }
+            // Another transaction committed between our read and our write
+            evictCached(abbreviation);
+            Currency current = executeOnPrimary(GET_CURRENCY,
+                    em -> em.find(Currency.class, abbreviation, BYPASS_CACHE));
+            throw new RateConflictException(abbreviation, expectedVersion,
+                    current != null ? current.getVersion() : -1, current != null ? current.getRateToUSD() : Double.NaN);
+        }
+        evictCached(abbreviation);
+        return version;
+    }
+
+    /**
+     * Tells whether a failure was caused by a concurrent update of the same row:
+     * a version check that failed, or a row lock that could not be taken.
+     */
+    private static boolean isConflict(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException
+                    || cause instanceof PessimisticLockException || cause instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits before another attempt: a random time up to the base backoff doubled per
+     * attempt, so updaters that collided spread out instead of colliding again.
+     */
+    static void backOff(int attempt, RateConflictException conflict) {
+        long ceiling = UPDATE_BACKOFF_NANOS << Math.min(attempt - 1, 16);
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
     }
 
+    /**
+     * Updates the rates of several existing currencies in one transaction, sent as
+     * JDBC batches of a single {@code UPDATE} statement. Rows are updated in
+     * abbreviation order, so concurrent bulk updates lock them in the same order.
+     * The affected cache entries are evicted once, after the commit.
+     *
+     * @param rates New rate to USD per abbreviation
+     * @return The updated currencies as written, with their new versions, ordered by abbreviation
+     * @throws RuntimeException if a currency does not exist or the database operation fails;
+     *                          no rate is changed then
+     */
+    @Override
+    public List<Currency> updateCurrencyRates(Map<String, Double> rates) {
+        if (rates.isEmpty()) {
+            return List.of();
+        }
+        String[] abbreviations = rates.keySet().toArray(new String[0]);
+        Arrays.sort(abbreviations);
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Currency> written = executeWithTransaction(UPDATE_CURRENCY_RATES, em -> em.unwrap(Session.class)
+                .doReturningWork(connection -> batchUpdateRates(connection, abbreviations, rates, updatedAt)));
+        evictCached(abbreviations);
+        return written;
+    }
+
+    /**
+     * Sends the rate updates as JDBC batches of {@link #RATE_UPDATE_SQL}, in the given order,
+     * each followed by a batch appending the same rates to the history, and marks the
+     * currencies changed.
+     *
+     * @return The updated currencies as written, read back by their change id
+     * @throws RuntimeException if a currency does not exist
+     */
+    static List<Currency> batchUpdateRates(Connection connection, String[] abbreviations, Map<String, Double> rates,
+                                 OffsetDateTime updatedAt) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(RATE_UPDATE_SQL);
+             PreparedStatement history = connection.prepareStatement(RateHistoryDAO.APPEND_SQL)) {
+            for (int start = 0; start < abbreviations.length; start += UPSERT_BATCH_SIZE) {
+                int end = Math.min(start + UPSERT_BATCH_SIZE, abbreviations.length);
+                for (int i = start; i < end; i++) {
+                    double rate = rates.get(abbreviations[i]);
+                    statement.setDouble(1, rate);
+                    statement.setObject(2, updatedAt);
+                    statement.setString(3, abbreviations[i]);
+                    statement.addBatch();
+                    RateHistoryDAO.setAppend(history, abbreviations[i], rate, updatedAt);
+                    history.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        throw new RuntimeException("Currency not found: " + abbreviations[start + i]);
+                    }
+                }
+                history.executeBatch();
+            }
+        }
+        long changeId = markChanged(connection, Arrays.asList(abbreviations));
+        // Only this transaction's rows carry its change id, and they stay locked until it ends
+        try (PreparedStatement written = connection.prepareStatement(JdbcCurrencyRepository.WRITTEN_CURRENCIES_SQL)) {
+            written.setLong(1, changeId);
+            try (ResultSet rows = written.executeQuery()) {
+                return JdbcCurrencyRepository.readCurrencies(rows);
+            }
+        }
+    }
+
+    @Override
     public void insertCurrency(Currency currency) {
-        executeWithTransaction(em -> {
+        executeWithTransaction(INSERT_CURRENCY, em -> {
             if (em.find(Currency.class, currency.getAbbreviation()) != null) {
                 throw new RuntimeException("Currency " + currency.getAbbreviation() + " already exists");
             }
             em.persist(currency);
+            em.flush();
+            appendHistory(em, currency);
+            markChanged(em, currency.getAbbreviation());
             return null;
         });
+        evictCached(currency.getAbbreviation());
     }
 
+    /**
+     * Records the rate just written in the history, in the same transaction.
+     */
+    private static void appendHistory(EntityManager em, Currency currency) {
+        em.unwrap(Session.class).doWork(connection -> RateHistoryDAO.appendRate(connection,
+                currency.getAbbreviation(), currency.getRateToUSD(),
+                OffsetDateTime.ofInstant(currency.getUpdatedAt(), ZoneOffset.UTC)));
+    }
+
+    private static void markChanged(EntityManager em, String abbreviation) {
+        em.unwrap(Session.class).doWork(connection -> markChanged(connection, List.of(abbreviation)));
+    }
+
+    /**
+     * Inserts or updates currencies from a stream of rate records.
+     * Records are pulled one at a time and sent in JDBC batches, all in a single
+     * transaction. A record without a name keeps the existing name (new currencies
+     * are then named after their abbreviation).
+     *
+     * @return Number of records written
+     * @throws RuntimeException if a record or the database operation fails; nothing is written then
+     */
+    @Override
+    public int upsertRates(Iterator<RateRecord> records) {
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        int rows = executeWithTransaction(UPSERT_RATES, em -> em.unwrap(Session.class).doReturningWork(
+                connection -> batchUpsertRates(connection, records, updatedAt)));
+        evictAllCached();
+        return rows;
+    }
+
+    /**
+     * Sends the rate records as JDBC batches of the upsert statement of the configured database,
+     * appending every record to the rate history as well, and marks the currencies changed.
+     *
+     * @return Number of records sent
+     */
+    static int batchUpsertRates(Connection connection, Iterator<RateRecord> records, OffsetDateTime updatedAt)
+            throws SQLException {
+        String sql = DatabaseConfig.getUrl().startsWith("jdbc:postgresql:") ? POSTGRES_UPSERT_SQL : MERGE_UPSERT_SQL;
+        int count = 0;
+        SortedSet<String> written = new TreeSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             PreparedStatement history = connection.prepareStatement(RateHistoryDAO.APPEND_SQL)) {
+            while (records.hasNext()) {
+                RateRecord record = records.next();
+                statement.setString(1, record.abbreviation());
+                statement.setString(2, record.name() != null ? record.name() : record.abbreviation());
+                statement.setDouble(3, record.rateToUSD());
+                statement.setObject(4, updatedAt);
+                statement.setBoolean(5, record.name() != null);
+                statement.addBatch();
+                RateHistoryDAO.setAppend(history, record.abbreviation(), record.rateToUSD(), updatedAt);
+                history.addBatch();
+                written.add(record.abbreviation());
+                if (++count % UPSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                    history.executeBatch();
+                }
+            }
+            if (count % UPSERT_BATCH_SIZE != 0) {
+                statement.executeBatch();
+                history.executeBatch();
+            }
+        }
+        if (!written.isEmpty()) {
+            markChanged(connection, written);
+        }
+        return count;
+    }
+
+    @Override
     public boolean currencyExists(String abbreviation) {
-        return executeReadOnly(em -> em.find(Currency.class, abbreviation) != null);
+        return executeReadOnly(CURRENCY_EXISTS, em -> em.find(Currency.class, abbreviation) != null);
+    }
+
+    /**
+     * Removes the given currencies and the cached all-currencies result from the
+     * second-level cache, so the next read goes to the database.
+     */
+    public void evictCached(String... abbreviations) {
+        for (String abbreviation : abbreviations) {
+            emf.getCache().evict(Currency.class, abbreviation);
+        }
+        emf.unwrap(SessionFactory.class).getCache().evictQueryRegion(ALL_CURRENCIES_REGION);
+    }
+
+    /**
+     * Removes all currencies and the cached all-currencies result from the second-level cache.
+     */
+    public void evictAllCached() {
+        emf.getCache().evict(Currency.class);
+        emf.unwrap(SessionFactory.class).getCache().evictQueryRegion(ALL_CURRENCIES_REGION);
     }
 
     @FunctionalInterface
@@ -123,8 +665,15 @@ public class CurrencyDAO {
     }
 
     public static void close() {
+        DatabaseExecutor.shutdown();
         if (emf != null && emf.isOpen()) {
             emf.close();
         }
+        if (router != null) {
+            router.close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
     }
 }
\ No newline at end of file
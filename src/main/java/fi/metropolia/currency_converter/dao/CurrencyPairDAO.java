@@ -0,0 +1,99 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
+import fi.metropolia.currency_converter.model.CurrencyPair;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Access Object for direct currency pair quotes.
+ */
+public class CurrencyPairDAO {
+    private static final OperationMetrics GET_PAIRS = Metrics.operation("CurrencyPairDAO.getPairsChangedSince");
+    private static final OperationMetrics SAVE_QUOTE = Metrics.operation("CurrencyPairDAO.saveQuote");
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructor that accepts an EntityManagerFactory.
+     * This allows sharing the same factory across DAOs.
+     */
+    public CurrencyPairDAO(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Gets the quotes inserted or updated after the given time, or all quotes if it is null.
+     *
+     * @throws RuntimeException if the operation fails
+     */
+    public List<CurrencyPair> getPairsChangedSince(Instant since) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            List<CurrencyPair> pairs = since == null
+                    ? em.createQuery("SELECT p FROM CurrencyPair p", CurrencyPair.class).getResultList()
+                    : em.createQuery("SELECT p FROM CurrencyPair p WHERE p.updatedAt > :since", CurrencyPair.class)
+                    .setParameter("since", since)
+                    .getResultList();
+            success = true;
+            return pairs;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load currency pairs: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            GET_PAIRS.record(start, success);
+        }
+    }
+
+    /**
+     * Stores the quote of a pair, inserting the pair if it does not exist yet.
+     * A quote for the inverse pair is kept as it is.
+     *
+     * @return The stored quote
+     * @throws RuntimeException if the operation fails
+     */
+    public CurrencyPair saveQuote(String baseCurrency, String quoteCurrency, double rate) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            CurrencyPair pair = em.createQuery("SELECT p FROM CurrencyPair p "
+                            + "WHERE p.baseCurrency = :base AND p.quoteCurrency = :quote", CurrencyPair.class)
+                    .setParameter("base", baseCurrency)
+                    .setParameter("quote", quoteCurrency)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+            if (pair == null) {
+                pair = new CurrencyPair(baseCurrency, quoteCurrency, rate);
+                em.persist(pair);
+            } else {
+                pair.setRate(rate);
+            }
+            em.getTransaction().commit();
+            success = true;
+            return pair;
+        } catch (Exception e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to save currency pair: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            SAVE_QUOTE.record(start, success);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.RateRecord;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage of currencies and their rates to USD.
+ * <p>
+ * Two implementations share the connection pool: {@link CurrencyDAO}, on JPA with
+ * the second-level cache, and {@link JdbcCurrencyRepository}, plain prepared
+ * statements without entity management for the hot read and update paths.
+ * {@link #fromConfig()} picks one with {@code db.repository}.
+ */
+public interface CurrencyRepository {
+
+    /**
+     * Creates the repository selected in database.properties ({@code db.repository},
+     * {@code jpa} or {@code jdbc}).
+     *
+     * @throws IllegalArgumentException if the setting names neither
+     * @throws RuntimeException         if the database is unavailable
+     */
+    static CurrencyRepository fromConfig() {
+        String repository = DatabaseConfig.getRepository();
+        return switch (repository) {
+            case "jpa" -> new CurrencyDAO();
+            case "jdbc" -> new JdbcCurrencyRepository();
+            default -> throw new IllegalArgumentException("db.repository must be jpa or jdbc: " + repository);
+        };
+    }
+
+    /**
+     * Gets the exchange rate to USD of a currency.
+     *
+     * @throws RuntimeException if the currency does not exist or the database operation fails
+     */
+    double getExchangeRate(String abbreviation);
+
+    /**
+     * Gets all currencies, ordered by abbreviation.
+     */
+    List<Currency> getAllCurrencies();
+
+    /**
+     * Gets the currencies written by transactions that committed after the one that gave
+     * out the given change id, ordered by abbreviation.
+     *
+     * @param changeId Highest change id already seen
+     */
+    List<Currency> getCurrenciesChangedSince(long changeId);
+
+    /**
+     * Gets a currency with its current rate and version, or null if it does not exist.
+     */
+    Currency getCurrency(String abbreviation);
+
+    /**
+     * Sets the rate of a currency regardless of its version.
+     *
+     * @return The new version of the currency
+     * @throws RateConflictException if the update kept colliding with concurrent ones
+     * @throws RuntimeException      if the currency does not exist or the database operation fails
+     */
+    long updateCurrencyRate(String abbreviation, double newRate);
+
+    /**
+     * Sets the rate of a currency only if it still has the version the caller read.
+     *
+     * @return The new version of the currency
+     * @throws RateConflictException if the currency was changed since that version
+     * @throws RuntimeException      if the currency does not exist or the database operation fails
+     */
+    long updateCurrencyRate(String abbreviation, double newRate, long expectedVersion);
+
+    /**
+     * Updates the rates of several existing currencies in one transaction.
+     *
+     * @param rates New rate to USD per abbreviation
+     * @return The updated currencies as written, with their new versions, ordered by abbreviation
+     * @throws RuntimeException if a currency does not exist or the database operation fails;
+     *                          no rate is changed then
+     */
+    List<Currency> updateCurrencyRates(Map<String, Double> rates);
+
+    /**
+     * Inserts a new currency.
+     *
+     * @throws RuntimeException if the currency already exists or the database operation fails
+     */
+    void insertCurrency(Currency currency);
+
+    /**
+     * Inserts or updates currencies from a stream of rate records, all in one transaction.
+     * A record without a name keeps the existing name.
+     *
+     * @return Number of records written
+     * @throws RuntimeException if a record or the database operation fails; nothing is written then
+     */
+    int upsertRates(Iterator<RateRecord> records);
+
+    boolean currencyExists(String abbreviation);
+
+    /**
+     * Asynchronous {@link #getAllCurrencies()}, run on the {@link DatabaseExecutor}.
+     */
+    default CompletableFuture<List<Currency>> getAllCurrenciesAsync() {
+        return DatabaseExecutor.supply(this::getAllCurrencies);
+    }
+
+    /**
+     * Asynchronous {@link #updateCurrencyRate(String, double)}, run on the {@link DatabaseExecutor}.
+     */
+    default CompletableFuture<Long> updateCurrencyRateAsync(String abbreviation, double newRate) {
+        return DatabaseExecutor.supply(() -> updateCurrencyRate(abbreviation, newRate));
+    }
+
+    /**
+     * Asynchronous {@link #updateCurrencyRate(String, double, long)}, run on the {@link DatabaseExecutor}.
+     */
+    default CompletableFuture<Long> updateCurrencyRateAsync(String abbreviation, double newRate, long expectedVersion) {
+        return DatabaseExecutor.supply(() -> updateCurrencyRate(abbreviation, newRate, expectedVersion));
+    }
+
+    /**
+     * Asynchronous {@link #insertCurrency(Currency)}, run on the {@link DatabaseExecutor}.
+     */
+    default CompletableFuture<Void> insertCurrencyAsync(Currency currency) {
+        return DatabaseExecutor.run(() -> insertCurrency(currency));
+    }
+
+    /**
+     * Asynchronous {@link #currencyExists(String)}, run on the {@link DatabaseExecutor}.
+     */
+    default CompletableFuture<Boolean> currencyExistsAsync(String abbreviation) {
+        return DatabaseExecutor.supply(() -> currencyExists(abbreviation));
+    }
+}
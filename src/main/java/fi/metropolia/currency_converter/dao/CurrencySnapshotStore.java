@@ -0,0 +1,211 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencySnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the last known currencies and rates in a small local file, so the
+ * application can start converting before the database answers, or without it.
+ * <pre>
+ * file     = int magic "CCSN", int version, long savedAtMillis, int count, currency*, int CRC32
+ * currency = UTF abbreviation, UTF name, double rateToUSD, long version, updatedAt
+ * updatedAt = long epochSecond, int nano; Long.MIN_VALUE seconds if not known
+ * </pre>
+ * The version and update time are kept so that an update started from the
+ * snapshot is checked against the version it was read at. Files of other format
+ * versions are ignored. The CRC covers everything before it. Files are written to a temporary file and
+ * moved over the previous snapshot atomically, so a reader sees either the old
+ * or the new snapshot, never a partial one.
+ */
+public class CurrencySnapshotStore {
+    private static final int MAGIC = 0x4343534E; // "CCSN"
+    private static final int VERSION = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final Path file;
+    private final AtomicReference<List<Currency>> pending = new AtomicReference<>();
+    // One writer thread, gone after a second of idleness so it never keeps the JVM alive
+    private final ExecutorService writer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "currency-snapshot-writer"));
+
+    public CurrencySnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates a store for the file configured as snapshot.file in database.properties.
+     *
+     * @return The store, or null if snapshots are disabled (empty snapshot.file)
+     */
+    public static CurrencySnapshotStore fromConfig() {
+        Path file = DatabaseConfig.getSnapshotFile();
+        return file == null ? null : new CurrencySnapshotStore(file);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the snapshot.
+     *
+     * @return The snapshot, or null if there is none or it cannot be used
+     */
+    public CurrencySnapshot load() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Cannot read currency snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < Integer.BYTES * 4 || buffer.getInt() != MAGIC) {
+                throw new IOException("not a currency snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - Integer.BYTES);
+            if ((int) crc.getValue() != buffer.getInt(bytes.length - Integer.BYTES)) {
+                throw new IOException("checksum mismatch");
+            }
+
+            Instant savedAt = Instant.ofEpochMilli(buffer.getLong());
+            int count = buffer.getInt();
+            List<Currency> currencies = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Currency currency = new Currency(readString(buffer), readString(buffer), buffer.getDouble());
+                currency.setVersion(buffer.getLong());
+                currency.setUpdatedAt(readTime(buffer));
+                currencies.add(currency);
+            }
+            return new CurrencySnapshot(currencies, savedAt);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.err.println("Ignoring currency snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Instant readTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == NO_TIME ? null : Instant.ofEpochSecond(seconds, nanos);
+    }
+
+    /**
+     * Writes a snapshot of the given currencies and waits until it is on disk.
+     *
+     * @throws RuntimeException if the file cannot be written; the previous snapshot is kept then
+     */
+    public void save(List<Currency> currencies) {
+        Path temp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + currencies.size() * 68);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(currencies.size());
+            for (Currency currency : currencies) {
+                writeString(out, currency.getAbbreviation());
+                writeString(out, currency.getName() != null ? currency.getName() : currency.getAbbreviation());
+                out.writeDouble(currency.getRateToUSD());
+                out.writeLong(currency.getVersion());
+                writeTime(out, currency.getUpdatedAt());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // The write error below is what matters
+            }
+            throw new RuntimeException("Failed to save currency snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeTime(DataOutputStream out, Instant time) throws IOException {
+        out.writeLong(time != null ? time.getEpochSecond() : NO_TIME);
+        out.writeInt(time != null ? time.getNano() : 0);
+    }
+
+    /**
+     * Saves a snapshot in the background. When several saves are requested while
+     * one is being written, only the latest currencies are written afterwards.
+     */
+    public void saveAsync(List<Currency> currencies) {
+        if (pending.getAndSet(currencies) != null) {
+            return; // A queued write will pick up the newer list
+        }
+        writer.execute(() -> {
+            List<Currency> latest = pending.getAndSet(null);
+            if (latest == null) {
+                return;
+            }
+            try {
+                save(latest);
+            } catch (RuntimeException e) {
+                System.err.println(e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shared executor for the asynchronous DAO and model methods.
+ * Blocking database calls run here instead of on the caller's thread (typically
+ * the JavaFX application thread). One virtual thread is used per task when the
+ * JVM supports them (Java 21+); otherwise a daemon thread pool no larger than
+ * the connection pool, since more threads would only wait for a connection.
+ * Once shut down, it stays shut down: the database is closed by then.
+ */
+public final class DatabaseExecutor {
+    private static ExecutorService executor;
+    private static boolean shutdown;
+
+    private DatabaseExecutor() {
+    }
+
+    /**
+     * Gets the executor, creating it on first use.
+     *
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public static synchronized ExecutorService get() {
+        if (shutdown) {
+            throw new RejectedExecutionException("Database executor is shut down");
+        }
+        if (executor == null) {
+            executor = create();
+        }
+        return executor;
+    }
+
+    private static ExecutorService create() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(2, DatabaseConfig.getPoolMaxSize());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "database-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Runs a blocking call on the executor.
+     *
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, get());
+    }
+
+    /**
+     * Runs a blocking action on the executor.
+     *
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public static CompletableFuture<Void> run(Runnable action) {
+        return CompletableFuture.runAsync(action, get());
+    }
+
+    /**
+     * Stops accepting tasks for good; running tasks are allowed to finish.
+     */
+    public static synchronized void shutdown() {
+        shutdown = true;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.datasource.RoutingDataSource;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.RateRecord;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Currency repository on plain JDBC, for the hot read and update paths.
+ * <p>
+ * Every operation borrows a connection from the shared pool and runs fixed SQL
+ * through prepared statements, which the driver keeps prepared per connection
+ * (see {@code db.pool.statement.cache.size}). Rows are read straight into rates
+ * and detached {@link Currency} objects: there is no EntityManager, persistence
+ * context or dirty checking, and reads do not use the second-level cache.
+ * Writes evict what they changed from that cache, so {@link CurrencyDAO} and the
+ * other JPA DAOs never see a stale currency.
+ * <p>
+ * Versioned updates are a single conditional {@code UPDATE}; unconditional ones
+ * wait for the row lock, so they do not conflict and are not retried. Reads and
+ * transactions are routed to replicas and the primary like those of {@link CurrencyDAO}.
+ * As there, every rate write appends to the rate history in the same transaction
+ * and ends by marking the written currencies changed.
+ */
+public class JdbcCurrencyRepository implements CurrencyRepository {
+    static final String ALL_CURRENCIES_SQL =
+            "SELECT abbreviation, name, rate_to_usd, updated_at, version, change_id FROM currency "
+                    + "ORDER BY abbreviation";
+    private static final String CHANGED_CURRENCIES_SQL =
+            "SELECT abbreviation, name, rate_to_usd, updated_at, version, change_id FROM currency "
+                    + "WHERE change_id > ? ORDER BY abbreviation";
+    // The rows written by the transaction that took the given change id
+    static final String WRITTEN_CURRENCIES_SQL =
+            "SELECT abbreviation, name, rate_to_usd, updated_at, version, change_id FROM currency "
+                    + "WHERE change_id = ? ORDER BY abbreviation";
+    private static final String CURRENCY_SQL =
+            "SELECT abbreviation, name, rate_to_usd, updated_at, version, change_id FROM currency "
+                    + "WHERE abbreviation = ?";
+    private static final String RATE_SQL = "SELECT rate_to_usd FROM currency WHERE abbreviation = ?";
+    private static final String VERSION_SQL = "SELECT version FROM currency WHERE abbreviation = ?";
+    private static final String EXISTS_SQL = "SELECT 1 FROM currency WHERE abbreviation = ?";
+    // Parameters: rate, update time, abbreviation, expected version
+    private static final String VERSIONED_RATE_UPDATE_SQL =
+            "UPDATE currency SET rate_to_usd = ?, updated_at = ?, version = version + 1 "
+                    + "WHERE abbreviation = ? AND version = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO currency (abbreviation, name, rate_to_usd, updated_at, version) VALUES (?, ?, ?, ?, 0)";
+
+    // SQLSTATE of a unique constraint violation
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final OperationMetrics GET_EXCHANGE_RATE = Metrics.operation("JdbcCurrencyRepository.getExchangeRate");
+    private static final OperationMetrics GET_ALL_CURRENCIES =
+            Metrics.operation("JdbcCurrencyRepository.getAllCurrencies");
+    private static final OperationMetrics GET_CHANGED_CURRENCIES =
+            Metrics.operation("JdbcCurrencyRepository.getCurrenciesChangedSince");
+    private static final OperationMetrics GET_CURRENCY = Metrics.operation("JdbcCurrencyRepository.getCurrency");
+    private static final OperationMetrics UPDATE_CURRENCY_RATE =
+            Metrics.operation("JdbcCurrencyRepository.updateCurrencyRate");
+    private static final OperationMetrics UPDATE_CURRENCY_RATES =
+            Metrics.operation("JdbcCurrencyRepository.updateCurrencyRates");
+    private static final OperationMetrics INSERT_CURRENCY = Metrics.operation("JdbcCurrencyRepository.insertCurrency");
+    private static final OperationMetrics UPSERT_RATES = Metrics.operation("JdbcCurrencyRepository.upsertRates");
+    private static final OperationMetrics CURRENCY_EXISTS = Metrics.operation("JdbcCurrencyRepository.currencyExists");
+
+    // Owner of the second-level cache evicted after writes
+    private final CurrencyDAO jpa;
+    private final DataSource primary;
+
+    /**
+     * Creates the repository on the shared connection pool, starting it and the
+     * EntityManagerFactory if not done yet.
+     */
+    public JdbcCurrencyRepository() {
+        this.jpa = new CurrencyDAO();
+        this.primary = CurrencyDAO.getPool().getDataSource();
+    }
+
+    @Override
+    public double getExchangeRate(String abbreviation) {
+        return read(GET_EXCHANGE_RATE, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(RATE_SQL)) {
+                statement.setString(1, abbreviation);
+                try (ResultSet rows = statement.executeQuery()) {
+                    if (!rows.next()) {
+                        throw new RuntimeException("Currency not found: " + abbreviation);
+                    }
+                    return rows.getDouble(1);
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<Currency> getAllCurrencies() {
+        return read(GET_ALL_CURRENCIES, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ALL_CURRENCIES_SQL);
+                 ResultSet rows = statement.executeQuery()) {
+                return readCurrencies(rows);
+            }
+        });
+    }
+
+    @Override
+    public List<Currency> getCurrenciesChangedSince(long changeId) {
+        return read(GET_CHANGED_CURRENCIES, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(CHANGED_CURRENCIES_SQL)) {
+                statement.setLong(1, changeId);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return readCurrencies(rows);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Currency getCurrency(String abbreviation) {
+        return read(GET_CURRENCY, connection -> findCurrency(connection, abbreviation));
+    }
+
+    /**
+     * Sets the rate of a currency regardless of its version. Concurrent updates of the
+     * same currency wait for each other's row lock, so this never conflicts.
+     *
+     * @return The new version of the currency
+     * @throws RuntimeException if the currency does not exist or the database operation fails
+     */
+    @Override
+    public long updateCurrencyRate(String abbreviation, double newRate) {
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        long version = write(UPDATE_CURRENCY_RATE, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(CurrencyDAO.RATE_UPDATE_SQL)) {
+                statement.setDouble(1, newRate);
+                statement.setObject(2, updatedAt);
+                statement.setString(3, abbreviation);
+                if (statement.executeUpdate() == 0) {
+                    throw new RuntimeException("Currency not found: " + abbreviation);
+                }
+            }
+            RateHistoryDAO.appendRate(connection, abbreviation, newRate, updatedAt);
+            // The row stays locked by this transaction, so this is the version just written
+            long written;
+            try (PreparedStatement statement = connection.prepareStatement(VERSION_SQL)) {
+                statement.setString(1, abbreviation);
+                try (ResultSet rows = statement.executeQuery()) {
+                    rows.next();
+                    written = rows.getLong(1);
+                }
+            }
+            CurrencyDAO.markChanged(connection, List.of(abbreviation));
+            return written;
+        });
+        jpa.evictCached(abbreviation);
+        return version;
+    }
+
+    /**
+     * Sets the rate of a currency only if it still has the version the caller read,
+     * with one conditional {@code UPDATE}. Not retried: the caller decides again with
+     * the current rate.
+     *
+     * @return The new version of the currency
+     * @throws RateConflictException if the currency was changed since that version
+     * @throws RuntimeException      if the currency does not exist or the database operation fails
+     */
+    @Override
+    public long updateCurrencyRate(String abbreviation, double newRate, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Version must not be negative: " + expectedVersion);
+        }
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        try {
+            return write(UPDATE_CURRENCY_RATE, connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(VERSIONED_RATE_UPDATE_SQL)) {
+                    statement.setDouble(1, newRate);
+                    statement.setObject(2, updatedAt);
+                    statement.setString(3, abbreviation);
+                    statement.setLong(4, expectedVersion);
+                    if (statement.executeUpdate() == 1) {
+                        RateHistoryDAO.appendRate(connection, abbreviation, newRate, updatedAt);
+                        CurrencyDAO.markChanged(connection, List.of(abbreviation));
+                        return expectedVersion + 1;
+                    }
+                }
+                Currency current = findCurrency(connection, abbreviation);
+                if (current == null) {
+                    throw new RuntimeException("Currency not found: " + abbreviation);
+                }
+                throw new RateConflictException(abbreviation, expectedVersion,
+                        current.getVersion(), current.getRateToUSD());
+            });
+        } finally {
+            // A conflict means someone else wrote it, so a cached copy is outdated either way
+            jpa.evictCached(abbreviation);
+        }
+    }
+
+    /**
+     * Updates the rates of several existing currencies in one transaction, sent as
+     * JDBC batches in abbreviation order like {@link CurrencyDAO#updateCurrencyRates(Map)}.
+     */
+    @Override
+    public List<Currency> updateCurrencyRates(Map<String, Double> rates) {
+        if (rates.isEmpty()) {
+            return List.of();
+        }
+        String[] abbreviations = rates.keySet().toArray(new String[0]);
+        Arrays.sort(abbreviations);
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Currency> written = write(UPDATE_CURRENCY_RATES,
+                connection -> CurrencyDAO.batchUpdateRates(connection, abbreviations, rates, updatedAt));
+        jpa.evictCached(abbreviations);
+        return written;
+    }
+
+    @Override
+    public void insertCurrency(Currency currency) {
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        write(INSERT_CURRENCY, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                statement.setString(1, currency.getAbbreviation());
+                statement.setString(2, currency.getName());
+                statement.setDouble(3, currency.getRateToUSD());
+                statement.setObject(4, updatedAt);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw new RuntimeException("Currency " + currency.getAbbreviation() + " already exists", e);
+                }
+                throw e;
+            }
+            RateHistoryDAO.appendRate(connection, currency.getAbbreviation(), currency.getRateToUSD(), updatedAt);
+            return CurrencyDAO.markChanged(connection, List.of(currency.getAbbreviation()));
+        });
+        currency.setUpdatedAt(updatedAt.toInstant());
+        currency.setVersion(0);
+        jpa.evictCached(currency.getAbbreviation());
+    }
+
+    @Override
+    public int upsertRates(Iterator<RateRecord> records) {
+        OffsetDateTime updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        int rows = write(UPSERT_RATES, connection -> CurrencyDAO.batchUpsertRates(connection, records, updatedAt));
+        jpa.evictAllCached();
+        return rows;
+    }
+
+    @Override
+    public boolean currencyExists(String abbreviation) {
+        return read(CURRENCY_EXISTS, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(EXISTS_SQL)) {
+                statement.setString(1, abbreviation);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next();
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps currency rows ({@link #ALL_CURRENCIES_SQL} columns) to detached currencies.
+     */
+    static List<Currency> readCurrencies(ResultSet rows) throws SQLException {
+        List<Currency> currencies = new ArrayList<>();
+        while (rows.next()) {
+            currencies.add(toCurrency(rows));
+        }
+        return currencies;
+    }
+
+    private static Currency toCurrency(ResultSet rows) throws SQLException {
+        Currency currency = new Currency(rows.getString(1).trim(), rows.getString(2), rows.getDouble(3));
+        OffsetDateTime updatedAt = rows.getObject(4, OffsetDateTime.class);
+        currency.setUpdatedAt(updatedAt != null ? updatedAt.toInstant() : null);
+        currency.setVersion(rows.getLong(5));
+        currency.setChangeId(rows.getLong(6));
+        return currency;
+    }
+
+    private static Currency findCurrency(Connection connection, String abbreviation) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CURRENCY_SQL)) {
+            statement.setString(1, abbreviation);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? toCurrency(rows) : null;
+            }
+        }
+    }
+
+    /**
+     * Runs read-only work in auto-commit mode, on a replica when some are configured.
+     */
+    private <T> T read(OperationMetrics metrics, SqlWork<T> work) {
+        RoutingDataSource router = CurrencyDAO.getRoutingDataSource();
+        return router != null
+                ? router.read(() -> execute(metrics, router, false, work))
+                : execute(metrics, primary, false, work);
+    }
+
+    /**
+     * Runs work in a transaction on the primary.
+     */
+    private <T> T write(OperationMetrics metrics, SqlWork<T> work) {
+        T result = execute(metrics, primary, true, work);
+        RoutingDataSource router = CurrencyDAO.getRoutingDataSource();
+        if (router != null) {
+            router.onWrite();
+        }
+        return result;
+    }
+
+    private <T> T execute(OperationMetrics metrics, DataSource source, boolean transaction, SqlWork<T> work) {
+        long start = System.nanoTime();
+        boolean success = false;
+        // The pool restores auto-commit when the connection is returned
+        try (Connection connection = source.getConnection()) {
+            if (!transaction) {
+                T result = work.execute(connection);
+                success = true;
+                return result;
+            }
+            connection.setAutoCommit(false);
+            try {
+                T result = work.execute(connection);
+                connection.commit();
+                success = true;
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Database operation failed: " + e.getMessage(), e);
+        } finally {
+            metrics.record(start, success);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+}
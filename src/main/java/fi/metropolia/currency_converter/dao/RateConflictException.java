@@ -0,0 +1,41 @@
+package fi.metropolia.currency_converter.dao;
+
+/**
+ * Thrown when a rate update loses against a concurrent update of the same currency:
+ * the currency no longer has the version the caller read, or the update still
+ * conflicted after the configured number of retries.
+ */
+public class RateConflictException extends RuntimeException {
+    private final String abbreviation;
+    private final long expectedVersion;
+    private final long currentVersion;
+    private final double currentRate;
+
+    public RateConflictException(String abbreviation, long expectedVersion, long currentVersion, double currentRate) {
+        super(abbreviation + " was changed by someone else meanwhile (rate now " + currentRate
+                + "); review the current rate and try again");
+        this.abbreviation = abbreviation;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+        this.currentRate = currentRate;
+    }
+
+    public String getAbbreviation() {
+        return abbreviation;
+    }
+
+    /**
+     * Gets the version the caller based its update on, or -1 for an unconditional update.
+     */
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public double getCurrentRate() {
+        return currentRate;
+    }
+}
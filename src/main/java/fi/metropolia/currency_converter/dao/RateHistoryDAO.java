@@ -0,0 +1,174 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.RateSeries;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Data Access Object for the append-only rate history.
+ * Rates are appended by the currency repositories, in the transaction that writes
+ * the rate itself; this class seeds and reads the history.
+ */
+public class RateHistoryDAO {
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructor that accepts an EntityManagerFactory.
+     * This allows sharing the same factory across DAOs.
+     */
+    public RateHistoryDAO(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    // Ids come straight from the sequence, so rows appended over JDBC never collide
+    static final String APPEND_SQL = "INSERT INTO rate_history (history_id, abbreviation, rate_to_usd, valid_from) "
+            + "VALUES (nextval('rate_history_seq'), ?, ?, ?)";
+    // Gives every currency without history a first point: its current rate, valid since its last update
+    private static final String SEED_SQL = "INSERT INTO rate_history (history_id, abbreviation, rate_to_usd, valid_from) "
+            + "SELECT nextval('rate_history_seq'), c.abbreviation, c.rate_to_usd, c.updated_at FROM currency c "
+            + "WHERE NOT EXISTS (SELECT 1 FROM rate_history h WHERE h.abbreviation = c.abbreviation)";
+    private static final String SEED_ONE_SQL = SEED_SQL + " AND c.abbreviation = ?";
+
+    /**
+     * Appends a rate to the history of a currency on the given connection, so it
+     * commits or rolls back together with the rate write of the same transaction.
+     */
+    static void appendRate(Connection connection, String abbreviation, double rateToUSD, OffsetDateTime validFrom)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(APPEND_SQL)) {
+            setAppend(statement, abbreviation, rateToUSD, validFrom);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Sets the parameters of an {@link #APPEND_SQL} statement.
+     */
+    static void setAppend(PreparedStatement statement, String abbreviation, double rateToUSD,
+                          OffsetDateTime validFrom) throws SQLException {
+        statement.setString(1, abbreviation);
+        statement.setDouble(2, rateToUSD);
+        statement.setObject(3, validFrom);
+    }
+
+    /**
+     * Records the current rate of every currency that has no history yet, such as
+     * currencies created by the setup script.
+     *
+     * @return Number of currencies seeded
+     * @throws RuntimeException if the operation fails
+     */
+    public int seedMissing() {
+        return seed(SEED_SQL, null);
+    }
+
+    private int seed(String sql, String abbreviation) {
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            int rows = em.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    if (abbreviation != null) {
+                        statement.setString(1, abbreviation);
+                    }
+                    return statement.executeUpdate();
+                }
+            });
+            em.getTransaction().commit();
+            return rows;
+        } catch (Exception e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to seed rate history: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Loads the most recent part of a currency's rate history. A currency without
+     * any history is seeded with its current rate first.
+     *
+     * @param maxPoints Maximum number of points to load
+     * @return The series in ascending time order; complete if the whole history fit
+     */
+    public RateSeries loadSeries(String abbreviation, int maxPoints) {
+        RateSeries series = querySeries(abbreviation, maxPoints);
+        if (series.size() == 0 && seed(SEED_ONE_SQL, abbreviation) > 0) {
+            series = querySeries(abbreviation, maxPoints);
+        }
+        return series;
+    }
+
+    private RateSeries querySeries(String abbreviation, int maxPoints) {
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            // Fetch one extra row to learn whether older history exists
+            List<Object[]> rows = em.createQuery(
+                            "SELECT h.validFrom, h.rateToUSD FROM RateHistory h "
+                                    + "WHERE h.abbreviation = :code ORDER BY h.validFrom DESC, h.historyId DESC",
+                            Object[].class)
+                    .setParameter("code", abbreviation)
+                    .setMaxResults(maxPoints + 1)
+                    .getResultList();
+
+            boolean complete = rows.size() <= maxPoints;
+            int n = Math.min(rows.size(), maxPoints);
+            long[] times = new long[n];
+            double[] rates = new double[n];
+            for (int i = 0; i < n; i++) {
+                Object[] row = rows.get(i);
+                times[n - 1 - i] = ((Instant) row[0]).toEpochMilli();
+                rates[n - 1 - i] = (Double) row[1];
+            }
+            return new RateSeries(times, rates, complete);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load rate history: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Looks up the rate valid at the given time directly in the database.
+     * Used for times older than the part of the history held in memory.
+     *
+     * @return The rate, or NaN if no rate was recorded at or before the time
+     */
+    public double findRateAt(String abbreviation, Instant at) {
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            List<Double> rates = em.createQuery(
+                            "SELECT h.rateToUSD FROM RateHistory h WHERE h.abbreviation = :code "
+                                    + "AND h.validFrom <= :at ORDER BY h.validFrom DESC, h.historyId DESC",
+                            Double.class)
+                    .setParameter("code", abbreviation)
+                    .setParameter("at", at)
+                    .setMaxResults(1)
+                    .getResultList();
+            return rates.isEmpty() ? Double.NaN : rates.get(0);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to query rate history: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+}
@@ -1,14 +1,51 @@
 package fi.metropolia.currency_converter.dao;
 
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.PairDailyVolume;
 import fi.metropolia.currency_converter.model.Transaction;
+import fi.metropolia.currency_converter.model.TransactionSummary;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
 /**
  * Data Access Object for Transaction entities using JPA.
  * Handles all database operations related to transactions.
+ * History is read as {@link TransactionSummary} projections with keyset
+ * pagination and reports are aggregated in the database, so neither ever
+ * loads Transaction or Currency entities.
+ * Every operation records its latency and failures in {@link Metrics}.
  */
 public class TransactionDAO {
+    private static final String SUMMARY_SELECT =
+            "SELECT new fi.metropolia.currency_converter.model.TransactionSummary("
+                    + "t.transactionId, t.sourceCurrency.abbreviation, t.targetCurrency.abbreviation, "
+                    + "t.sourceAmount, t.targetAmount, t.transactionDate) FROM Transaction t ";
+    private static final String NEWEST_FIRST = " ORDER BY t.transactionDate DESC, t.transactionId DESC";
+
+    // Matches hibernate.jdbc.batch_size in persistence.xml
+    private static final int FLUSH_INTERVAL = 50;
+
+    private static final OperationMetrics SAVE_TRANSACTION = Metrics.operation("TransactionDAO.saveTransaction");
+    private static final OperationMetrics SAVE_TRANSACTIONS = Metrics.operation("TransactionDAO.saveTransactions");
+    private static final OperationMetrics SAVE_JOURNALED = Metrics.operation("TransactionDAO.saveJournaledTransactions");
+    private static final OperationMetrics FIND_HISTORY = Metrics.operation("TransactionDAO.findHistory");
+    private static final OperationMetrics STREAM_HISTORY = Metrics.operation("TransactionDAO.streamHistory");
+    private static final OperationMetrics AGGREGATE_VOLUMES = Metrics.operation("TransactionDAO.aggregateDailyVolumes");
+
     private final EntityManagerFactory emf;
 
     /**
@@ -27,12 +64,15 @@ public class TransactionDAO {
      * @throws RuntimeException if the operation fails
      */
     public void saveTransaction(Transaction transaction) {
+        long start = System.nanoTime();
+        boolean success = false;
         EntityManager em = null;
         try {
             em = emf.createEntityManager();
             em.getTransaction().begin();
             em.persist(transaction);
             em.getTransaction().commit();
+            success = true;
         } catch (Exception e) {
             if (em != null && em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
@@ -42,6 +82,219 @@ public class TransactionDAO {
             if (em != null && em.isOpen()) {
                 em.close();
             }
+            SAVE_TRANSACTION.record(start, success);
+        }
+    }
+
+    /**
+     * Stores several transactions in a single database transaction.
+     * Inserts are sent to the database in JDBC batches and committed once.
+     *
+     * @param transactions The transactions to store
+     * @throws RuntimeException if the operation fails; no transaction is stored then
+     */
+    public void saveTransactions(List<Transaction> transactions) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            for (int i = 0; i < transactions.size(); i++) {
+                em.persist(transactions.get(i));
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+            success = true;
+        } catch (Exception e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to save transactions: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            SAVE_TRANSACTIONS.record(start, success);
+        }
+    }
+
+    /**
+     * Stores journaled transactions, skipping those whose journal node and id are already stored.
+     * Replaying the same records twice therefore never duplicates a transaction.
+     * Only the currency codes of the given transactions are used; the currencies are
+     * referenced by key without being loaded.
+     *
+     * @param transactions Transactions with a journal node and id
+     * @return Number of transactions inserted
+     * @throws RuntimeException if the operation fails; no transaction is stored then
+     */
+    public int saveJournaledTransactions(List<Transaction> transactions) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            em.getTransaction().begin();
+            Map<UUID, List<Long>> journalIds = new HashMap<>();
+            for (Transaction transaction : transactions) {
+                journalIds.computeIfAbsent(transaction.getJournalNode(), node -> new ArrayList<>())
+                        .add(transaction.getJournalId());
+            }
+            Map<UUID, Set<Long>> stored = new HashMap<>();
+            for (Map.Entry<UUID, List<Long>> ids : journalIds.entrySet()) {
+                stored.put(ids.getKey(), new HashSet<>(em.createQuery(
+                                "SELECT t.journalId FROM Transaction t "
+                                        + "WHERE t.journalNode = :node AND t.journalId IN :ids", Long.class)
+                        .setParameter("node", ids.getKey())
+                        .setParameter("ids", ids.getValue())
+                        .getResultList()));
+            }
+
+            int inserted = 0;
+            for (Transaction transaction : transactions) {
+                if (stored.get(transaction.getJournalNode()).contains(transaction.getJournalId())) {
+                    continue;
+                }
+                transaction.setSourceCurrency(em.getReference(Currency.class,
+                        transaction.getSourceCurrency().getAbbreviation()));
+                transaction.setTargetCurrency(em.getReference(Currency.class,
+                        transaction.getTargetCurrency().getAbbreviation()));
+                em.persist(transaction);
+                if (++inserted % FLUSH_INTERVAL == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+            success = true;
+            return inserted;
+        } catch (Exception e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to save journaled transactions: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            SAVE_JOURNALED.record(start, success);
+        }
+    }
+
+    /**
+     * Gets the first page of the transaction history, newest first.
+     *
+     * @param limit Maximum number of rows
+     */
+    public List<TransactionSummary> findHistory(int limit) {
+        return query(FIND_HISTORY, em -> em.createQuery(SUMMARY_SELECT + NEWEST_FIRST, TransactionSummary.class)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * Gets the page of the transaction history that follows the given row, newest first.
+     * Uses a keyset (seek) predicate on (transaction_date, transaction_id), so the
+     * cost does not grow with the page number.
+     *
+     * @param after Last row of the previous page
+     * @param limit Maximum number of rows
+     */
+    public List<TransactionSummary> findHistory(TransactionSummary after, int limit) {
+        return query(FIND_HISTORY, em -> em.createQuery(SUMMARY_SELECT
+                                + "WHERE (t.transactionDate, t.transactionId) < (:date, :id)" + NEWEST_FIRST,
+                        TransactionSummary.class)
+                .setParameter("date", after.transactionDate())
+                .setParameter("id", after.transactionId())
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * Streams every transaction, oldest id first, to the given consumer.
+     * Rows are fetched through a forward-only cursor in chunks of {@code fetchSize},
+     * read-only and without entities, so memory use does not depend on table size.
+     *
+     * @return Number of rows streamed
+     */
+    public long streamHistory(int fetchSize, Consumer<TransactionSummary> sink) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            // PostgreSQL only uses a cursor for fetch size inside a transaction
+            em.getTransaction().begin();
+            long count = 0;
+            try (Stream<TransactionSummary> rows = em.createQuery(
+                            SUMMARY_SELECT + "ORDER BY t.transactionId", TransactionSummary.class)
+                    .setHint("org.hibernate.fetchSize", fetchSize)
+                    .setHint("org.hibernate.readOnly", true)
+                    .getResultStream()) {
+                for (TransactionSummary row : (Iterable<TransactionSummary>) rows::iterator) {
+                    sink.accept(row);
+                    count++;
+                }
+            }
+            em.getTransaction().commit();
+            success = true;
+            return count;
+        } catch (Exception e) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new RuntimeException("Failed to stream transactions: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            STREAM_HISTORY.record(start, success);
+        }
+    }
+
+    /**
+     * Aggregates transaction volume and count per currency pair and day.
+     *
+     * @param fromDay First day included
+     * @param toDay   First day excluded
+     */
+    public List<PairDailyVolume> aggregateDailyVolumes(LocalDate fromDay, LocalDate toDay) {
+        return query(AGGREGATE_VOLUMES, em -> em.createQuery(
+                        "SELECT new fi.metropolia.currency_converter.model.PairDailyVolume("
+                                + "t.sourceCurrency.abbreviation, t.targetCurrency.abbreviation, "
+                                + "cast(t.transactionDate as LocalDate), sum(t.sourceAmount), sum(t.targetAmount), count(t)) "
+                                + "FROM Transaction t "
+                                + "WHERE t.transactionDate >= :from AND t.transactionDate < :to "
+                                + "GROUP BY t.sourceCurrency.abbreviation, t.targetCurrency.abbreviation, "
+                                + "cast(t.transactionDate as LocalDate) "
+                                + "ORDER BY cast(t.transactionDate as LocalDate), "
+                                + "t.sourceCurrency.abbreviation, t.targetCurrency.abbreviation",
+                        PairDailyVolume.class)
+                .setParameter("from", fromDay.atStartOfDay())
+                .setParameter("to", toDay.atStartOfDay())
+                .getResultList());
+    }
+
+    private <T> T query(OperationMetrics metrics, Function<EntityManager, T> operation) {
+        long start = System.nanoTime();
+        boolean success = false;
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            T result = operation.apply(em);
+            success = true;
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to query transactions: " + e.getMessage(), e);
+        } finally {
+            if (em != null && em.isOpen()) {
+                em.close();
+            }
+            metrics.record(start, success);
         }
     }
-}
\ No newline at end of file
+}
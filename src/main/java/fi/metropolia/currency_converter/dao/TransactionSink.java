@@ -0,0 +1,19 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Transaction;
+
+/**
+ * Destination for recorded transactions that stores them asynchronously.
+ */
+public interface TransactionSink extends AutoCloseable {
+    /**
+     * Accepts a transaction for storage. Returns before the transaction reaches the database.
+     */
+    void submit(Transaction transaction);
+
+    /**
+     * Stores or secures everything accepted so far and releases the sink's resources.
+     */
+    @Override
+    void close();
+}
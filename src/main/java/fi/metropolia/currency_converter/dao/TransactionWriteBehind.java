@@ -0,0 +1,265 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for transactions.
+ * Callers hand transactions to {@link #submit(Transaction)}, which only enqueues them.
+ * A background writer drains the bounded queue and stores the transactions through
+ * {@link TransactionDAO#saveTransactions(List)}, one database commit per batch.
+ * A batch is written when it reaches the maximum batch size or when its oldest
+ * transaction has waited for the maximum latency, whichever comes first.
+ * A failed batch is retried one transaction at a time; transactions that fail again
+ * go to the dead-letter sink, e.g. a {@link fi.metropolia.currency_converter.journal.ConversionJournal}
+ * that replays them once the database is back.
+ * <p>
+ * The buffer is owned by whoever creates it, and only {@link #close()} flushes the queue.
+ * Transactions still queued when the JVM exits without it are lost. The owner closes
+ * the buffer before the database, e.g. from its shutdown hook, as {@code ConversionServer}
+ * does; the buffer registers no hook itself, since shutdown hooks run concurrently and
+ * could not order the two.
+ */
+public class TransactionWriteBehind implements TransactionSink {
+    private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final TransactionDAO dao;
+    private final BlockingQueue<Transaction> queue;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final TransactionSink deadLetters;
+    private final Thread writer;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final Object progress = new Object();
+    // Submitters hold the read lock from the running check to the enqueue, so close() never
+    // stops the writer between the two
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a write-behind buffer and starts its writer thread.
+     *
+     * @param dao              DAO used to store the batches
+     * @param queueCapacity    Maximum number of queued transactions; {@link #submit} blocks when full
+     * @param maxBatchSize     Maximum number of transactions per database commit
+     * @param maxLatencyMillis Maximum time a transaction waits for its batch to fill
+     * @param deadLetters      Sink for transactions that fail twice, closed with the buffer;
+     *                         null drops them
+     */
+    public TransactionWriteBehind(TransactionDAO dao, int queueCapacity, int maxBatchSize, long maxLatencyMillis,
+                                  TransactionSink deadLetters) {
+        if (queueCapacity <= 0 || maxBatchSize <= 0 || maxLatencyMillis < 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive, latency non-negative");
+        }
+        this.dao = dao;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.deadLetters = deadLetters;
+
+        writer = new Thread(this::writeLoop, "transaction-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates a write-behind buffer configured from database.properties
+     * (transaction.writebehind.queue.capacity, .batch.size and .max.latency.ms).
+     *
+     * @param deadLetters Sink for transactions that fail twice, or null to drop them
+     */
+    public static TransactionWriteBehind fromConfig(TransactionDAO dao, TransactionSink deadLetters) {
+        return new TransactionWriteBehind(dao,
+                DatabaseConfig.getWriteBehindQueueCapacity(),
+                DatabaseConfig.getWriteBehindBatchSize(),
+                DatabaseConfig.getWriteBehindMaxLatencyMs(),
+                deadLetters);
+    }
+
+    /**
+     * Queues a transaction for storage. Blocks while the queue is full.
+     *
+     * @throws IllegalStateException if the buffer has been closed
+     */
+    @Override
+    public void submit(Transaction transaction) {
+        closing.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Transaction write-behind is closed");
+            }
+            // The writer keeps draining while a submitter waits here, since close() cannot stop it yet
+            queue.put(transaction);
+            submitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing transaction", e);
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until every transaction submitted before this call has been written or has failed.
+     */
+    public void flush() {
+        long target = submitted.get();
+        synchronized (progress) {
+            while (persisted.get() + failed.get() + deadLettered.get() < target && writer.isAlive()) {
+                try {
+                    progress.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes all queued transactions, stops the writer thread and closes the dead-letter sink.
+     * Waits for submitters already queueing; later ones are rejected. Every call, also a
+     * repeated or concurrent one, returns only once the writer has finished.
+     */
+    @Override
+    public void close() {
+        boolean first;
+        closing.writeLock().lock();
+        try {
+            first = running;
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (first && deadLetters != null) {
+            deadLetters.close();
+        }
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getPersistedCount() {
+        return persisted.get();
+    }
+
+    /**
+     * Gets the number of transactions that failed twice and could not be handed to the dead-letter sink.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the number of transactions that failed twice and went to the dead-letter sink.
+     */
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<Transaction> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Transaction first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or its first element has waited long enough
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    // Wait in short slices so close() does not wait out a long latency
+                    Transaction next = queue.poll(Math.min(remaining, CLOSE_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                // Keep draining; close() stops the loop through the running flag.
+                // Transactions already taken from the queue are written, not dropped.
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Transaction> batch) {
+        try {
+            dao.saveTransactions(batch);
+            persisted.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            System.err.println("Batch of " + batch.size() + " transactions failed, retrying one by one: " + e.getMessage());
+            for (Transaction transaction : batch) {
+                try {
+                    transaction.setTransactionId(null); // assigned by the rolled back batch
+                    dao.saveTransaction(transaction);
+                    persisted.incrementAndGet();
+                } catch (RuntimeException single) {
+                    deadLetter(transaction, single);
+                }
+            }
+        }
+        batches.incrementAndGet();
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    private void deadLetter(Transaction transaction, RuntimeException cause) {
+        if (deadLetters != null) {
+            try {
+                transaction.setTransactionId(null);
+                deadLetters.submit(transaction);
+                deadLettered.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        System.err.println("Dropping transaction " + transaction + ": " + cause.getMessage());
+        failed.incrementAndGet();
+    }
+}
@@ -0,0 +1,125 @@
+package fi.metropolia.currency_converter.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JDBC connection pool backed by HikariCP.
+ * Pool sizes, timeouts and the driver statement cache are read from
+ * {@link DatabaseConfig}. Usage figures are available through {@link #getStats()}
+ * and, per pool, as HikariCP MBeans.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final HikariDataSource dataSource;
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * Creates a pool for the database configured in database.properties.
+     */
+    public ConnectionPool() {
+        this("currency-pool", DatabaseConfig.getUrl(), DatabaseConfig.getUser(), DatabaseConfig.getPassword());
+    }
+
+    /**
+     * Creates a pool for the given database, using the pool settings from database.properties.
+     *
+     * @param poolName Name used for the pool threads and MBeans
+     */
+    public ConnectionPool(String poolName, String url, String user, String password) {
+        this(poolName, url, user, password, DatabaseConfig.getPoolConnectionTimeoutMs(), true);
+    }
+
+    /**
+     * Creates a pool for the given database with its own connection timeout.
+     *
+     * @param poolName            Name used for the pool threads and MBeans
+     * @param connectionTimeoutMs How long a caller waits for a connection
+     * @param failFast            Whether creating the pool fails when the database is unreachable;
+     *                            otherwise the pool starts empty and connects on demand
+     */
+    public ConnectionPool(String poolName, String url, String user, String password,
+                          long connectionTimeoutMs, boolean failFast) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setDriverClassName(DatabaseConfig.getDriver());
+        config.setMinimumIdle(DatabaseConfig.getPoolMinIdle());
+        config.setMaximumPoolSize(DatabaseConfig.getPoolMaxSize());
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setInitializationFailTimeout(failFast ? 1 : -1);
+        config.setIdleTimeout(DatabaseConfig.getPoolIdleTimeoutMs());
+        config.setRegisterMbeans(true);
+
+        // Server-side prepared statement cache of the PostgreSQL driver
+        if (url.startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("preparedStatementCacheQueries", DatabaseConfig.getStatementCacheSize());
+            config.addDataSourceProperty("prepareThreshold", 1);
+        }
+
+        config.setMetricsTrackerFactory((name, poolStats) -> new AcquireTracker());
+
+        try {
+            dataSource = new HikariDataSource(config);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create connection pool " + poolName + ": " + e.getMessage(), e);
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Gets the current usage of the pool.
+     */
+    public PoolStats getStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        long count = acquireCount.sum();
+        double meanMillis = count == 0 ? 0 : acquireNanos.sum() / (double) count / 1_000_000.0;
+        return new PoolStats(
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getTotalConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                dataSource.getMaximumPoolSize(),
+                count,
+                meanMillis,
+                maxAcquireNanos.get() / 1_000_000.0,
+                timeoutCount.sum());
+    }
+
+    @Override
+    public void close() {
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Records how long callers wait for a connection.
+     */
+    private class AcquireTracker implements IMetricsTracker {
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeoutCount.increment();
+        }
+    }
+}
@@ -2,11 +2,17 @@ package fi.metropolia.currency_converter.datasource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * Configuration class for database connection settings.
  * Loads properties from database.properties file.
+ * A system property with the same key overrides the value from the file,
+ * which allows pointing the application (or the benchmarks) at another database.
  */
 public class DatabaseConfig {
     private static final Properties properties = new Properties();
@@ -26,12 +32,23 @@ public class DatabaseConfig {
         }
     }
 
+    /**
+     * Gets a configuration value, preferring a system property over database.properties.
+     * @param key Property key (e.g., db.url)
+     * @param defaultValue Value returned if the key is not configured
+     * @return Configured value or the default
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        return value != null ? value : properties.getProperty(key, defaultValue);
+    }
+
     /**
      * Gets the database URL.
      * @return Database URL (e.g., jdbc:postgresql://localhost:5432/currency_db)
      */
     public static String getUrl() {
-        return properties.getProperty("db.url", "jdbc:postgresql://localhost:5432/currency_db");
+        return getProperty("db.url", "jdbc:postgresql://localhost:5432/currency_db");
     }
 
     /**
@@ -39,7 +56,7 @@ public class DatabaseConfig {
      * @return Database username
      */
     public static String getUser() {
-        return properties.getProperty("db.user", "postgres");
+        return getProperty("db.user", "postgres");
     }
 
     /**
@@ -47,7 +64,320 @@ public class DatabaseConfig {
      * @return Database password
      */
     public static String getPassword() {
-        return properties.getProperty("db.password", "postgres");
+        return getProperty("db.password", "postgres");
+    }
+
+    /**
+     * Gets the JDBC driver class name.
+     * @return Driver class name (e.g., org.postgresql.Driver)
+     */
+    public static String getDriver() {
+        return getProperty("db.driver", "org.postgresql.Driver");
+    }
+
+    /**
+     * Gets the Hibernate dialect class name.
+     * @return Dialect class name (e.g., org.hibernate.dialect.PostgreSQLDialect)
+     */
+    public static String getDialect() {
+        return getProperty("db.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    /**
+     * Tells whether Hibernate should log the executed SQL statements.
+     * @return true if SQL logging is enabled
+     */
+    public static boolean isShowSql() {
+        return Boolean.parseBoolean(getProperty("db.show_sql", "false"));
+    }
+
+    /**
+     * Gets the schema action applied when the EntityManagerFactory starts
+     * (drop-and-create, create, update, validate or none).
+     * Actions other than validate and none rebuild part of the schema on every start,
+     * so they are only meant for development databases.
+     * @return Schema generation action, none by default
+     */
+    public static String getSchemaAction() {
+        return getProperty("db.schema.action", "none");
+    }
+
+    /**
+     * Tells whether the schema action leaves existing tables and their rows untouched.
+     * @return true for validate and none
+     */
+    public static boolean isSchemaPreserved() {
+        String action = getSchemaAction();
+        return action.equals("none") || action.equals("validate");
+    }
+
+    /**
+     * Gets the minimum number of idle connections kept in the pool.
+     * @return Minimum idle connections
+     */
+    public static int getPoolMinIdle() {
+        return Integer.parseInt(getProperty("db.pool.min.idle", "2"));
+    }
+
+    /**
+     * Gets the maximum number of connections in the pool.
+     * @return Maximum pool size
+     */
+    public static int getPoolMaxSize() {
+        return Integer.parseInt(getProperty("db.pool.max.size", "10"));
+    }
+
+    /**
+     * Gets how long a caller waits for a connection before failing.
+     * @return Connection timeout in milliseconds
+     */
+    public static long getPoolConnectionTimeoutMs() {
+        return Long.parseLong(getProperty("db.pool.connection.timeout.ms", "30000"));
+    }
+
+    /**
+     * Gets how long an unused connection above the minimum may stay idle.
+     * @return Idle timeout in milliseconds
+     */
+    public static long getPoolIdleTimeoutMs() {
+        return Long.parseLong(getProperty("db.pool.idle.timeout.ms", "600000"));
+    }
+
+    /**
+     * Gets the number of prepared statements cached per connection by the JDBC driver.
+     * @return Statement cache size (0 disables the cache)
+     */
+    public static int getStatementCacheSize() {
+        return Integer.parseInt(getProperty("db.pool.statement.cache.size", "256"));
+    }
+
+    /**
+     * Gets the JDBC URLs of the read replicas, from the comma-separated db.replica.urls.
+     * @return Replica URLs; empty when every read goes to the primary
+     */
+    public static List<String> getReplicaUrls() {
+        return Arrays.stream(getProperty("db.replica.urls", "").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Gets the username for the read replicas.
+     * @return Replica username, by default the primary's
+     */
+    public static String getReplicaUser() {
+        return getProperty("db.replica.user", getUser());
+    }
+
+    /**
+     * Gets the password for the read replicas.
+     * @return Replica password, by default the primary's
+     */
+    public static String getReplicaPassword() {
+        return getProperty("db.replica.password", getPassword());
+    }
+
+    /**
+     * Gets how reads pick a replica: round-robin or least-latency.
+     * @return Replica selection strategy
+     */
+    public static String getReplicaSelection() {
+        return getProperty("db.replica.selection", "round-robin");
+    }
+
+    /**
+     * Gets how far a replica may lag behind the primary and still serve reads. Reads
+     * also go to the primary for this long after a write of this application.
+     * @return Maximum replica lag in milliseconds
+     */
+    public static long getReplicaMaxLagMs() {
+        return Long.parseLong(getProperty("db.replica.max.lag.ms", "1000"));
+    }
+
+    /**
+     * Gets the query returning a replica's lag in milliseconds. PostgreSQL standbys
+     * are measured by default; without a query the lag is not checked.
+     * @param url Replica URL
+     * @return Lag query, or an empty string
+     */
+    public static String getReplicaLagQuery(String url) {
+        String query = getProperty("db.replica.lag.query", "");
+        if (query.isBlank() && url.startsWith("jdbc:postgresql:")) {
+            // Zero while every received change is replayed; an idle standby is not stale
+            return "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+        }
+        return query;
+    }
+
+    /**
+     * Gets how often the replicas are checked for latency, lag and availability.
+     * @return Check interval in milliseconds
+     */
+    public static long getReplicaCheckIntervalMs() {
+        return Long.parseLong(getProperty("db.replica.check.interval.ms", "1000"));
+    }
+
+    /**
+     * Gets how long a read waits for a replica connection before using the primary.
+     * @return Replica connection timeout in milliseconds (at least 250)
+     */
+    public static long getReplicaConnectionTimeoutMs() {
+        return Long.parseLong(getProperty("db.replica.connection.timeout.ms", "1000"));
+    }
+
+    /**
+     * Gets how a single rate update that conflicts with a concurrent one is retried.
+     * @return Maximum number of attempts, the first included
+     */
+    public static int getUpdateMaxAttempts() {
+        return Integer.parseInt(getProperty("db.update.max.attempts", "8"));
+    }
+
+    /**
+     * Gets the base pause between conflicting rate update attempts, doubled per attempt.
+     * @return Backoff in milliseconds
+     */
+    public static long getUpdateBackoffMs() {
+        return Long.parseLong(getProperty("db.update.backoff.ms", "5"));
+    }
+
+    /**
+     * Gets the currency storage: jpa (EntityManager and second-level cache) or jdbc.
+     * @return Repository name
+     */
+    public static String getRepository() {
+        return getProperty("db.repository", "jpa");
+    }
+
+    /**
+     * Gets the number of transactions the write-behind buffer holds before callers wait.
+     * @return Queue capacity
+     */
+    public static int getWriteBehindQueueCapacity() {
+        return Integer.parseInt(getProperty("transaction.writebehind.queue.capacity", "10000"));
+    }
+
+    /**
+     * Gets the most transactions the write-behind buffer stores in one batch.
+     * @return Batch size
+     */
+    public static int getWriteBehindBatchSize() {
+        return Integer.parseInt(getProperty("transaction.writebehind.batch.size", "500"));
+    }
+
+    /**
+     * Gets how long the write-behind buffer waits for a batch to fill.
+     * @return Maximum latency in milliseconds
+     */
+    public static long getWriteBehindMaxLatencyMs() {
+        return Long.parseLong(getProperty("transaction.writebehind.max.latency.ms", "50"));
+    }
+
+    /**
+     * Gets the number of currencies whose rate history is cached in memory.
+     * @return Maximum cached currencies
+     */
+    public static int getHistoryCacheMaxCurrencies() {
+        return Integer.parseInt(getProperty("history.cache.max.currencies", "256"));
+    }
+
+    /**
+     * Gets the number of most recent rates cached per currency.
+     * @return Maximum cached points per currency
+     */
+    public static int getHistoryCacheMaxPoints() {
+        return Integer.parseInt(getProperty("history.cache.max.points", "4096"));
+    }
+
+    /**
+     * Tells whether the headless server records transactions in the local journal.
+     * @return true if the journal is enabled
+     */
+    public static boolean isJournalEnabled() {
+        return Boolean.parseBoolean(getProperty("journal.enabled", "false"));
+    }
+
+    /**
+     * Gets the directory holding the journal segment files.
+     * @return Journal directory
+     */
+    public static Path getJournalDir() {
+        return Paths.get(getProperty("journal.dir", "journal"));
+    }
+
+    /**
+     * Gets the number of records per journal segment file.
+     * @return Segment capacity in records
+     */
+    public static int getJournalSegmentRecords() {
+        return Integer.parseInt(getProperty("journal.segment.records", "65536"));
+    }
+
+    /**
+     * Gets the most journal records replayed into the database in one transaction.
+     * @return Replay batch size
+     */
+    public static int getJournalReplayBatchSize() {
+        return Integer.parseInt(getProperty("journal.replay.batch.size", "500"));
+    }
+
+    /**
+     * Gets how long the journal replayer waits when there is nothing to replay.
+     * @return Replay interval in milliseconds
+     */
+    public static long getJournalReplayIntervalMs() {
+        return Long.parseLong(getProperty("journal.replay.interval.ms", "200"));
+    }
+
+    /**
+     * Gets the file holding the local snapshot of the currencies.
+     * @return Snapshot path, or null when snapshots are disabled
+     */
+    public static Path getSnapshotFile() {
+        String path = getProperty("snapshot.file", "currency-snapshot.bin").trim();
+        return path.isEmpty() ? null : Paths.get(path);
+    }
+
+    /**
+     * Gets how far back before the last seen quote change a delta refresh reads quotes.
+     * @return Delta window in milliseconds
+     */
+    public static long getRefreshDeltaWindowMs() {
+        return Long.parseLong(getProperty("refresh.delta.window.ms", "5000"));
+    }
+
+    /**
+     * Gets the most direct pair quotes chained in one conversion.
+     * @return Maximum number of hops
+     */
+    public static int getPairMaxHops() {
+        return Integer.parseInt(getProperty("pair.max.hops", "3"));
+    }
+
+    /**
+     * Gets the longest time a streamed rate tick waits before it is stored.
+     * @return Flush interval in milliseconds
+     */
+    public static long getRateTicksFlushIntervalMs() {
+        return Long.parseLong(getProperty("rate.ticks.flush.interval.ms", "250"));
+    }
+
+    /**
+     * Gets the number of currencies with unstored ticks that triggers an early flush.
+     * @return Dirty threshold
+     */
+    public static int getRateTicksDirtyThreshold() {
+        return Integer.parseInt(getProperty("rate.ticks.dirty.threshold", "64"));
+    }
+
+    /**
+     * Gets the port of the headless conversion server.
+     * @return Server port
+     */
+    public static int getServerPort() {
+        return Integer.parseInt(getProperty("server.port", "8080"));
     }
 
     /**
@@ -0,0 +1,27 @@
+package fi.metropolia.currency_converter.datasource;
+
+/**
+ * Point-in-time usage figures of a {@link ConnectionPool}.
+ *
+ * @param active             Connections currently handed out
+ * @param idle               Connections waiting in the pool
+ * @param total              All open connections
+ * @param pending            Threads waiting for a connection
+ * @param maxSize            Configured maximum pool size
+ * @param acquireCount       Connections handed out since the pool started
+ * @param meanAcquireMillis  Mean time a caller waited for a connection
+ * @param maxAcquireMillis   Longest time a caller waited for a connection
+ * @param timeoutCount       Acquire attempts that timed out
+ */
+public record PoolStats(int active, int idle, int total, int pending, int maxSize,
+                        long acquireCount, double meanAcquireMillis, double maxAcquireMillis,
+                        long timeoutCount) {
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d total=%d/%d pending=%d acquired=%d "
+                        + "acquire(mean=%.3fms max=%.3fms) timeouts=%d",
+                active, idle, total, maxSize, pending, acquireCount,
+                meanAcquireMillis, maxAcquireMillis, timeoutCount);
+    }
+}
@@ -0,0 +1,342 @@
+package fi.metropolia.currency_converter.datasource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * DataSource that sends reads to read replicas and everything else to the primary.
+ * <p>
+ * Work run through {@link #read(Supplier)} takes its connections from a replica,
+ * picked round-robin or by the lowest measured latency; all other connections,
+ * and so every transaction, come from the primary. A background check measures
+ * each replica's latency and, with a lag query, how far it is behind. A replica
+ * that lags more than the allowed staleness, or fails, is skipped until a check
+ * succeeds again; reads without a usable replica, and reads that failed on one,
+ * go to the primary. For the allowed staleness after a write of this application
+ * all reads go to the primary, so a write is visible to the reads that follow it.
+ */
+public class RoutingDataSource implements DataSource, AutoCloseable {
+    private static final ThreadLocal<Boolean> READ_ONLY = ThreadLocal.withInitial(() -> false);
+    // Replica that served the current read, if any
+    private static final ThreadLocal<Replica> SERVED_BY = new ThreadLocal<>();
+
+    // Weight of the newest sample in the latency average
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final boolean leastLatency;
+    private final long maxLagNanos;
+    private final ScheduledExecutorService checker;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong lastWriteNanos = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryReads = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * A read replica and what the last checks found out about it.
+     */
+    private static final class Replica {
+        final String name;
+        final ConnectionPool pool;
+        final String lagQuery;
+        final AtomicLong reads = new AtomicLong();
+        volatile boolean usable = true;
+        volatile double latencyMillis;
+        volatile double lagMillis;
+
+        Replica(String name, ConnectionPool pool, String lagQuery) {
+            this.name = name;
+            this.pool = pool;
+            this.lagQuery = lagQuery;
+        }
+    }
+
+    /**
+     * Point-in-time state of one replica.
+     *
+     * @param name          Pool name of the replica
+     * @param usable        Whether reads are sent to it
+     * @param latencyMillis Smoothed latency of the checks
+     * @param lagMillis     Lag found by the last check; 0 without a lag query
+     * @param reads         Reads served since start
+     */
+    public record ReplicaStatus(String name, boolean usable, double latencyMillis, double lagMillis, long reads) {
+    }
+
+    /**
+     * Creates a routing DataSource and starts checking the replicas.
+     *
+     * @param primary         DataSource of the primary, for writes and fallback reads
+     * @param replicaPools    Pools of the replicas
+     * @param lagQueries      Lag query per replica, empty for none
+     * @param leastLatency    Whether reads pick the fastest replica rather than the next one
+     * @param maxLagMillis    Largest lag a replica may have and still serve reads
+     * @param checkIntervalMs Time between two checks of the replicas
+     */
+    public RoutingDataSource(DataSource primary, List<ConnectionPool> replicaPools, List<String> lagQueries,
+                             boolean leastLatency, long maxLagMillis, long checkIntervalMs) {
+        if (replicaPools.isEmpty() || replicaPools.size() != lagQueries.size()) {
+            throw new IllegalArgumentException("Need at least one replica and one lag query per replica");
+        }
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < replicaPools.size(); i++) {
+            replicas.add(new Replica("replica-" + (i + 1), replicaPools.get(i), lagQueries.get(i)));
+        }
+        this.leastLatency = leastLatency;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkReplicas, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a routing DataSource for the replicas configured in database.properties
+     * (db.replica.*), or returns null when none are configured.
+     */
+    public static RoutingDataSource fromConfig(DataSource primary) {
+        List<String> urls = DatabaseConfig.getReplicaUrls();
+        if (urls.isEmpty()) {
+            return null;
+        }
+        List<ConnectionPool> pools = new ArrayList<>();
+        List<String> lagQueries = new ArrayList<>();
+        try {
+            for (int i = 0; i < urls.size(); i++) {
+                pools.add(new ConnectionPool("currency-replica-" + (i + 1), urls.get(i),
+                        DatabaseConfig.getReplicaUser(), DatabaseConfig.getReplicaPassword(),
+                        DatabaseConfig.getReplicaConnectionTimeoutMs(), false));
+                lagQueries.add(DatabaseConfig.getReplicaLagQuery(urls.get(i)));
+            }
+        } catch (RuntimeException e) {
+            pools.forEach(ConnectionPool::close);
+            throw e;
+        }
+        String selection = DatabaseConfig.getReplicaSelection();
+        if (!selection.equals("round-robin") && !selection.equals("least-latency")) {
+            pools.forEach(ConnectionPool::close);
+            throw new IllegalArgumentException("db.replica.selection must be round-robin or least-latency: " + selection);
+        }
+        return new RoutingDataSource(primary, pools, lagQueries, selection.equals("least-latency"),
+                DatabaseConfig.getReplicaMaxLagMs(), DatabaseConfig.getReplicaCheckIntervalMs());
+    }
+
+    /**
+     * Runs read-only work with connections from a replica. If the work fails after a
+     * replica served it, it runs once more on the primary, which has the last word;
+     * a replica that failed with a database error is skipped until its next good check.
+     */
+    public <T> T read(Supplier<T> work) {
+        boolean outer = READ_ONLY.get();
+        READ_ONLY.set(true);
+        SERVED_BY.remove();
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            Replica replica = SERVED_BY.get();
+            if (replica == null || outer) {
+                throw e;
+            }
+            if (isDatabaseError(e)) {
+                replica.usable = false;
+                System.err.println("⚠️ Read failed on " + replica.name + ", using the primary: " + e.getMessage());
+            }
+            fallbacks.incrementAndGet();
+            READ_ONLY.set(false);
+            return work.get();
+        } finally {
+            READ_ONLY.set(outer);
+            if (!outer) {
+                SERVED_BY.remove();
+            }
+        }
+    }
+
+    /**
+     * Notes a committed write, so reads use the primary until the replicas have caught up.
+     */
+    public void onWrite() {
+        lastWriteNanos.set(System.nanoTime());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (READ_ONLY.get() && System.nanoTime() - lastWriteNanos.get() > maxLagNanos) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = select();
+                if (replica == null) {
+                    break;
+                }
+                try {
+                    Connection connection = replica.pool.getDataSource().getConnection();
+                    replica.reads.incrementAndGet();
+                    replicaReads.incrementAndGet();
+                    SERVED_BY.set(replica);
+                    return connection;
+                } catch (SQLException e) {
+                    replica.usable = false;
+                    System.err.println("⚠️ " + replica.name + " unavailable, trying another: " + e.getMessage());
+                }
+            }
+            fallbacks.incrementAndGet();
+        }
+        if (READ_ONLY.get()) {
+            primaryReads.incrementAndGet();
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Picks a usable replica, or returns null if there is none.
+     */
+    private Replica select() {
+        if (leastLatency) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.usable && (best == null || replica.latencyMillis < best.latencyMillis)) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            try (Connection connection = replica.pool.getDataSource().getConnection()) {
+                double lag = 0;
+                if (!replica.lagQuery.isBlank()) {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet rows = statement.executeQuery(replica.lagQuery)) {
+                        lag = rows.next() ? rows.getDouble(1) : 0;
+                    }
+                } else if (!connection.isValid(1)) {
+                    throw new SQLException("Connection is not valid");
+                }
+                double latency = (System.nanoTime() - start) / 1_000_000.0;
+                replica.latencyMillis = replica.latencyMillis == 0 ? latency
+                        : replica.latencyMillis + LATENCY_SMOOTHING * (latency - replica.latencyMillis);
+                replica.lagMillis = lag;
+                replica.usable = TimeUnit.MILLISECONDS.toNanos((long) lag) <= maxLagNanos;
+            } catch (SQLException | RuntimeException e) {
+                replica.usable = false;
+            }
+        }
+    }
+
+    private static boolean isDatabaseError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the current state of every replica.
+     */
+    public List<ReplicaStatus> getReplicaStatus() {
+        List<ReplicaStatus> status = new ArrayList<>();
+        for (Replica replica : replicas) {
+            status.add(new ReplicaStatus(replica.name, replica.usable, replica.latencyMillis,
+                    replica.lagMillis, replica.reads.get()));
+        }
+        return status;
+    }
+
+    public long getReplicaReadCount() {
+        return replicaReads.get();
+    }
+
+    /**
+     * Gets the number of read connections taken from the primary.
+     */
+    public long getPrimaryReadCount() {
+        return primaryReads.get();
+    }
+
+    /**
+     * Gets the number of reads that wanted a replica but went to the primary because
+     * none was usable or the replica failed them.
+     */
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : primary.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || primary.isWrapperFor(type);
+    }
+}
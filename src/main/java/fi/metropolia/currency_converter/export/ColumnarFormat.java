@@ -0,0 +1,84 @@
+package fi.metropolia.currency_converter.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Layout of the columnar transaction export file.
+ * <pre>
+ * file      = magic "CCTX", int version, rowGroup*, int 0, long totalRows
+ * rowGroup  = int rowCount, int dictionarySize, dictionaryEntry*, column{6}
+ * column    = int rawLength, int compressedLength, deflated bytes
+ * </pre>
+ * Columns are stored in this order: transaction ids and timestamps as zigzag
+ * varint deltas, source and target currency as one-byte indexes into the row
+ * group dictionary, source and target amounts as raw doubles. Timestamps are
+ * microseconds since the epoch in UTC. All integers are big-endian.
+ */
+final class ColumnarFormat {
+    static final int MAGIC = 0x43435458; // "CCTX"
+    static final int VERSION = 1;
+    static final int COLUMN_COUNT = 6;
+
+    /** Rows per row group; bounds the memory used by the writer and the reader. */
+    static final int DEFAULT_ROW_GROUP_SIZE = 1 << 16;
+    /** Currency codes per row group dictionary; indexes are stored in one byte. */
+    static final int MAX_DICTIONARY_SIZE = 256;
+
+    private ColumnarFormat() {
+    }
+
+    static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the buffer up to its limit.
+     *
+     * @throws EOFException if the channel ends first
+     */
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of export file");
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package fi.metropolia.currency_converter.export;
+
+import fi.metropolia.currency_converter.model.TransactionSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static fi.metropolia.currency_converter.export.ColumnarFormat.*;
+
+/**
+ * Reads columnar export files written by {@link ColumnarTransactionWriter}.
+ * The file is decoded one row group at a time into reused primitive arrays.
+ * Scans filtered by currency skip every row group whose dictionary does not
+ * contain the requested codes without decompressing it.
+ */
+public class ColumnarTransactionReader implements AutoCloseable {
+    private static final int HEADER_LENGTH = 8;
+    private static final int TRAILER_LENGTH = 12;
+
+    private final FileChannel channel;
+    private final long rowCount;
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+
+    private ByteBuffer compressed = ByteBuffer.allocate(0);
+    private ByteBuffer raw = ByteBuffer.allocate(0);
+    private long[] ids = new long[0];
+    private long[] times = new long[0];
+    private byte[] sources = new byte[0];
+    private byte[] targets = new byte[0];
+    private double[] sourceAmounts = new double[0];
+    private double[] targetAmounts = new double[0];
+    private final String[] dictionary = new String[MAX_DICTIONARY_SIZE];
+
+    /**
+     * Opens an export file and validates its header and trailer.
+     *
+     * @throws IOException if the file cannot be read or is not a complete export file
+     */
+    public ColumnarTransactionReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+                throw new IOException("Not a transaction export file: " + file);
+            }
+            readFully(channel, header.clear());
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a transaction export file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported export file version " + version + ": " + file);
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+            channel.position(size - TRAILER_LENGTH);
+            readFully(channel, trailer);
+            trailer.flip();
+            if (trailer.getInt() != 0) {
+                throw new IOException("Export file is incomplete: " + file);
+            }
+            rowCount = trailer.getLong();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of transactions in the file, from its trailer.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Visits every transaction in file order.
+     *
+     * @return Number of rows visited
+     */
+    public long scan(TransactionVisitor visitor) throws IOException {
+        return scan(null, null, visitor);
+    }
+
+    /**
+     * Visits the transactions of one currency pair.
+     *
+     * @param sourceCurrency Required source currency, or null for any
+     * @param targetCurrency Required target currency, or null for any
+     * @return Number of rows visited
+     */
+    public long scan(String sourceCurrency, String targetCurrency, TransactionVisitor visitor) throws IOException {
+        channel.position(HEADER_LENGTH);
+        long visited = 0;
+        int groupRows;
+        while ((groupRows = readInt()) != 0) {
+            int dictionarySize = readInt();
+            readDictionary(dictionarySize);
+            int source = sourceCurrency == null ? -1 : find(sourceCurrency, dictionarySize);
+            int target = targetCurrency == null ? -1 : find(targetCurrency, dictionarySize);
+            if ((sourceCurrency != null && source < 0) || (targetCurrency != null && target < 0)) {
+                skipColumns(COLUMN_COUNT);
+                continue;
+            }
+
+            decodeRowGroup(groupRows);
+            for (int i = 0; i < groupRows; i++) {
+                if ((source >= 0 && (sources[i] & 0xFF) != source)
+                        || (target >= 0 && (targets[i] & 0xFF) != target)) {
+                    continue;
+                }
+                visitor.visit(ids[i], dictionary[sources[i] & 0xFF], dictionary[targets[i] & 0xFF],
+                        sourceAmounts[i], targetAmounts[i], times[i]);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Reads every transaction as a {@link TransactionSummary}.
+     */
+    public void forEach(Consumer<TransactionSummary> consumer) throws IOException {
+        scan((id, source, target, sourceAmount, targetAmount, micros) -> consumer.accept(
+                new TransactionSummary(id, source, target, sourceAmount, targetAmount, fromEpochMicros(micros))));
+    }
+
+    private int readInt() throws IOException {
+        header.clear().limit(4);
+        readFully(channel, header);
+        return header.getInt(0);
+    }
+
+    private void readDictionary(int size) throws IOException {
+        if (size < 0 || size > MAX_DICTIONARY_SIZE) {
+            throw new IOException("Corrupt export file: dictionary size " + size);
+        }
+        ByteBuffer length = ByteBuffer.allocate(2);
+        for (int i = 0; i < size; i++) {
+            readFully(channel, length.clear());
+            byte[] bytes = new byte[length.getShort(0)];
+            readFully(channel, ByteBuffer.wrap(bytes));
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private int find(String code, int dictionarySize) {
+        for (int i = 0; i < dictionarySize; i++) {
+            if (dictionary[i].equals(code)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void skipColumns(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readFully(channel, header.clear());
+            channel.position(channel.position() + header.getInt(4));
+        }
+    }
+
+    private void decodeRowGroup(int groupRows) throws IOException {
+        if (ids.length < groupRows) {
+            ids = new long[groupRows];
+            times = new long[groupRows];
+            sources = new byte[groupRows];
+            targets = new byte[groupRows];
+            sourceAmounts = new double[groupRows];
+            targetAmounts = new double[groupRows];
+        }
+
+        ByteBuffer column = readColumn();
+        long previous = 0;
+        for (int i = 0; i < groupRows; i++) {
+            previous += getVarLong(column);
+            ids[i] = previous;
+        }
+        column = readColumn();
+        previous = 0;
+        for (int i = 0; i < groupRows; i++) {
+            previous += getVarLong(column);
+            times[i] = previous;
+        }
+        readColumn().get(sources, 0, groupRows);
+        readColumn().get(targets, 0, groupRows);
+        readColumn().asDoubleBuffer().get(sourceAmounts, 0, groupRows);
+        readColumn().asDoubleBuffer().get(targetAmounts, 0, groupRows);
+    }
+
+    /**
+     * Reads and inflates the next column block into the reused raw buffer.
+     */
+    private ByteBuffer readColumn() throws IOException {
+        readFully(channel, header.clear());
+        int rawLength = header.getInt(0);
+        int compressedLength = header.getInt(4);
+        if (rawLength < 0 || compressedLength < 0) {
+            throw new IOException("Corrupt export file: negative column length");
+        }
+        if (compressed.capacity() < compressedLength) {
+            compressed = ByteBuffer.allocate(compressedLength);
+        }
+        if (raw.capacity() < rawLength) {
+            raw = ByteBuffer.allocate(rawLength);
+        }
+
+        compressed.clear().limit(compressedLength);
+        readFully(channel, compressed);
+        compressed.flip();
+        raw.clear().limit(rawLength);
+
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            while (raw.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(raw) == 0 && inflater.needsInput()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt export file: " + e.getMessage(), e);
+        }
+        if (raw.hasRemaining()) {
+            throw new IOException("Corrupt export file: truncated column");
+        }
+        return raw.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,207 @@
+package fi.metropolia.currency_converter.export;
+
+import fi.metropolia.currency_converter.model.TransactionSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static fi.metropolia.currency_converter.export.ColumnarFormat.*;
+
+/**
+ * Writes transactions to a columnar export file (see {@link ColumnarFormat}).
+ * Rows are buffered in primitive arrays for one row group at a time, then each
+ * column is encoded and deflated into reused buffers and written through a
+ * {@link FileChannel}. Memory use depends on the row group size only, never on
+ * the number of rows written.
+ */
+public class ColumnarTransactionWriter implements AutoCloseable {
+    private final FileChannel channel;
+    private final int rowGroupSize;
+
+    private final long[] ids;
+    private final long[] times;
+    private final byte[] sources;
+    private final byte[] targets;
+    private final double[] sourceAmounts;
+    private final double[] targetAmounts;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final String[] dictionaryCodes = new String[MAX_DICTIONARY_SIZE];
+
+    private final ByteBuffer raw;
+    private final ByteBuffer compressed;
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    private int rows;
+    private long totalRows;
+    private boolean closed;
+
+    public ColumnarTransactionWriter(Path file) throws IOException {
+        this(file, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    /**
+     * Creates or truncates the file and writes the file header.
+     *
+     * @param rowGroupSize Maximum number of rows per row group
+     */
+    public ColumnarTransactionWriter(Path file, int rowGroupSize) throws IOException {
+        if (rowGroupSize <= 0) {
+            throw new IllegalArgumentException("Row group size must be positive");
+        }
+        this.rowGroupSize = rowGroupSize;
+        ids = new long[rowGroupSize];
+        times = new long[rowGroupSize];
+        sources = new byte[rowGroupSize];
+        targets = new byte[rowGroupSize];
+        sourceAmounts = new double[rowGroupSize];
+        targetAmounts = new double[rowGroupSize];
+
+        // Largest block: a varint column at up to 10 bytes per row, or the dictionary
+        int rawCapacity = Math.max(rowGroupSize * 10, MAX_DICTIONARY_SIZE * 258);
+        raw = ByteBuffer.allocate(rawCapacity);
+        compressed = ByteBuffer.allocate(rawCapacity + rawCapacity / 100 + 64);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header);
+    }
+
+    public void write(TransactionSummary row) throws IOException {
+        write(row.transactionId(), row.sourceCurrency(), row.targetCurrency(),
+                row.sourceAmount(), row.targetAmount(), toEpochMicros(row.transactionDate()));
+    }
+
+    /**
+     * Appends one transaction.
+     *
+     * @param epochMicros Transaction time in microseconds since the epoch, UTC
+     */
+    public void write(long transactionId, String sourceCurrency, String targetCurrency,
+                      double sourceAmount, double targetAmount, long epochMicros) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        // A row may add two new codes; start a new group rather than overflow the dictionary
+        if (rows == rowGroupSize || dictionary.size() > MAX_DICTIONARY_SIZE - 2) {
+            flushRowGroup();
+        }
+        ids[rows] = transactionId;
+        times[rows] = epochMicros;
+        sources[rows] = code(sourceCurrency);
+        targets[rows] = code(targetCurrency);
+        sourceAmounts[rows] = sourceAmount;
+        targetAmounts[rows] = targetAmount;
+        rows++;
+        totalRows++;
+    }
+
+    public long getRowCount() {
+        return totalRows;
+    }
+
+    private byte code(String currency) {
+        Integer index = dictionary.get(currency);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(currency, index);
+            dictionaryCodes[index] = currency;
+        }
+        return (byte) index.intValue();
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        raw.clear();
+        raw.putInt(rows).putInt(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            byte[] bytes = dictionaryCodes[i].getBytes(StandardCharsets.UTF_8);
+            raw.putShort((short) bytes.length).put(bytes);
+        }
+        raw.flip();
+        writeFully(channel, raw);
+
+        raw.clear();
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            putVarLong(raw, ids[i] - previous);
+            previous = ids[i];
+        }
+        writeColumn();
+
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            putVarLong(raw, times[i] - previous);
+            previous = times[i];
+        }
+        writeColumn();
+
+        raw.put(sources, 0, rows);
+        writeColumn();
+        raw.put(targets, 0, rows);
+        writeColumn();
+
+        raw.asDoubleBuffer().put(sourceAmounts, 0, rows);
+        raw.position(rows * Double.BYTES);
+        writeColumn();
+        raw.asDoubleBuffer().put(targetAmounts, 0, rows);
+        raw.position(rows * Double.BYTES);
+        writeColumn();
+
+        rows = 0;
+        dictionary.clear();
+    }
+
+    /**
+     * Deflates the bytes written to {@code raw} and writes them as one column block.
+     */
+    private void writeColumn() throws IOException {
+        raw.flip();
+        int rawLength = raw.remaining();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        compressed.clear();
+        while (!deflater.finished()) {
+            deflater.deflate(compressed);
+        }
+        compressed.flip();
+
+        header.clear();
+        header.putInt(rawLength).putInt(compressed.remaining()).flip();
+        writeFully(channel, header);
+        writeFully(channel, compressed);
+        raw.clear();
+    }
+
+    /**
+     * Writes the last row group and the file trailer, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushRowGroup();
+            ByteBuffer trailer = ByteBuffer.allocate(12).putInt(0).putLong(totalRows).flip();
+            writeFully(channel, trailer);
+            channel.force(false);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+}
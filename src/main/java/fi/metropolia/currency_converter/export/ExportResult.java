@@ -0,0 +1,14 @@
+package fi.metropolia.currency_converter.export;
+
+/**
+ * Outcome of a transaction export.
+ *
+ * @param rows         Number of transactions written
+ * @param bytes        Size of the export file
+ * @param elapsedNanos Wall-clock duration of the export
+ */
+public record ExportResult(long rows, long bytes, long elapsedNanos) {
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,60 @@
+package fi.metropolia.currency_converter.export;
+
+import fi.metropolia.currency_converter.dao.TransactionDAO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Exports the transaction table to a columnar file for offline analysis.
+ * Rows are streamed from the database through a forward-only cursor straight
+ * into a {@link ColumnarTransactionWriter}, so the export runs in constant
+ * memory however large the table is. The file is written next to the target
+ * and moved into place only when complete.
+ */
+public class TransactionExporter {
+    private static final int FETCH_SIZE = 1000;
+
+    private final TransactionDAO dao;
+
+    public TransactionExporter(TransactionDAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Exports all transactions, ordered by id, to the given file.
+     *
+     * @return Number of rows and bytes written and the export throughput
+     * @throws RuntimeException if the database or the file cannot be accessed;
+     *                          an existing file is left untouched then
+     */
+    public ExportResult exportTo(Path file) {
+        long start = System.nanoTime();
+        Path target = file.toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            long rows;
+            try (ColumnarTransactionWriter writer = new ColumnarTransactionWriter(temp)) {
+                rows = dao.streamHistory(FETCH_SIZE, row -> {
+                    try {
+                        writer.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new ExportResult(rows, Files.size(target), System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort; the original error is more useful
+            }
+            throw new RuntimeException("Failed to export transactions to " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package fi.metropolia.currency_converter.export;
+
+/**
+ * Receives the rows of an export file one at a time.
+ * Values are passed as primitives, so scanning a file does not allocate per row.
+ */
+@FunctionalInterface
+public interface TransactionVisitor {
+    /**
+     * @param epochMicros Transaction time in microseconds since the epoch, UTC
+     */
+    void visit(long transactionId, String sourceCurrency, String targetCurrency,
+               double sourceAmount, double targetAmount, long epochMicros);
+}
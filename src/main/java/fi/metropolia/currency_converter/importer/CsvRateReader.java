@@ -0,0 +1,96 @@
+package fi.metropolia.currency_converter.importer;
+
+import fi.metropolia.currency_converter.model.RateRecord;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader for CSV rate files, one line at a time.
+ * <p>
+ * Each line is either {@code abbreviation,name,rate_to_usd} or
+ * {@code abbreviation,rate_to_usd}. Blank lines, lines starting with '#'
+ * and a header line starting with "abbreviation" are skipped.
+ */
+public class CsvRateReader implements Iterator<RateRecord>, Closeable {
+    private final BufferedReader reader;
+    private RateRecord next;
+    private int lineNumber;
+
+    public CsvRateReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readRecord();
+        }
+        return next != null;
+    }
+
+    @Override
+    public RateRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RateRecord record = next;
+        next = null;
+        return record;
+    }
+
+    private RateRecord readRecord() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.regionMatches(true, 0, "abbreviation", 0, 12)) {
+                    continue;
+                }
+                return parse(line);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read line " + (lineNumber + 1) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private RateRecord parse(String line) {
+        int first = line.indexOf(',');
+        int last = line.lastIndexOf(',');
+        if (first < 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected abbreviation and rate");
+        }
+
+        String abbreviation = unquote(line.substring(0, first)).toUpperCase();
+        String name = first == last ? null : unquote(line.substring(first + 1, last));
+        String rateText = unquote(line.substring(last + 1));
+
+        try {
+            return ImportValidation.validate(abbreviation, name, Double.parseDouble(rateText));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid rate '" + rateText + "'");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private static String unquote(String field) {
+        String value = field.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
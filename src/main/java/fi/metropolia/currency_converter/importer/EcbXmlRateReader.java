@@ -0,0 +1,118 @@
+package fi.metropolia.currency_converter.importer;
+
+import fi.metropolia.currency_converter.model.RateRecord;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader for ECB-style reference rate files (eurofxref XML), using StAX.
+ * <p>
+ * ECB rates are quoted per euro ({@code <Cube currency="USD" rate="1.0892"/>}),
+ * so they are converted to rates to USD using the USD quote of the same day.
+ * Only the first dated {@code Cube} is read, which in ECB files is the most
+ * recent day; the rest of the file is never parsed. Only that day's quotes
+ * (a few dozen) are held in memory.
+ */
+public class EcbXmlRateReader implements Iterator<RateRecord>, Closeable {
+    private final XMLStreamReader xml;
+    private Iterator<RateRecord> day;
+
+    public EcbXmlRateReader(InputStream input) {
+        try {
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            xml = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid rate file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (day == null) {
+            day = readFirstDay().iterator();
+        }
+        return day.hasNext();
+    }
+
+    @Override
+    public RateRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return day.next();
+    }
+
+    private List<RateRecord> readFirstDay() {
+        List<String> codes = new ArrayList<>();
+        List<Double> perEuro = new ArrayList<>();
+        double usdPerEuro = Double.NaN;
+        int depth = 0;
+        boolean inDay = false;
+
+        try {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT && "Cube".equals(xml.getLocalName())) {
+                    depth++;
+                    if (xml.getAttributeValue(null, "time") != null) {
+                        inDay = true;
+                    }
+                    String currency = xml.getAttributeValue(null, "currency");
+                    String rate = xml.getAttributeValue(null, "rate");
+                    if (inDay && currency != null && rate != null) {
+                        double value = Double.parseDouble(rate);
+                        if (currency.equals("USD")) {
+                            usdPerEuro = value;
+                        }
+                        codes.add(currency.trim().toUpperCase());
+                        perEuro.add(value);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "Cube".equals(xml.getLocalName())) {
+                    depth--;
+                    if (inDay && depth == 1) {
+                        break; // end of the first day
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid rate file: " + e.getMessage(), e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate in rate file: " + e.getMessage(), e);
+        }
+
+        if (codes.isEmpty()) {
+            return List.of();
+        }
+        if (Double.isNaN(usdPerEuro)) {
+            throw new IllegalArgumentException("Rate file has no USD quote; cannot convert rates to USD");
+        }
+
+        List<RateRecord> records = new ArrayList<>(codes.size() + 1);
+        records.add(ImportValidation.validate("EUR", "Euro", usdPerEuro));
+        for (int i = 0; i < codes.size(); i++) {
+            records.add(ImportValidation.validate(codes.get(i), null, usdPerEuro / perEuro.get(i)));
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package fi.metropolia.currency_converter.importer;
+
+/**
+ * Outcome of a rate import.
+ *
+ * @param rows         Number of currencies inserted or updated
+ * @param elapsedNanos Time spent parsing and writing
+ */
+public record ImportResult(int rows, long elapsedNanos) {
+
+    /**
+     * Gets the import throughput in rows per second.
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %.1f ms (%.0f rows/s)", rows, elapsedNanos / 1_000_000.0, rowsPerSecond());
+    }
+}
@@ -0,0 +1,27 @@
+package fi.metropolia.currency_converter.importer;
+
+import fi.metropolia.currency_converter.model.RateRecord;
+
+/**
+ * Validation shared by the rate file readers.
+ */
+final class ImportValidation {
+
+    private ImportValidation() {
+    }
+
+    static RateRecord validate(String abbreviation, String name, double rateToUSD) {
+        if (abbreviation.length() != 3) {
+            throw new IllegalArgumentException("Abbreviation must be exactly 3 letters: '" + abbreviation + "'");
+        }
+        if (!(rateToUSD > 0) || Double.isInfinite(rateToUSD)) {
+            throw new IllegalArgumentException("Exchange rate must be positive for " + abbreviation);
+        }
+        if (name != null && name.isEmpty()) {
+            name = null;
+        } else if (name != null && name.length() > 50) {
+            name = name.substring(0, 50); // currency.name is VARCHAR(50)
+        }
+        return new RateRecord(abbreviation, name, rateToUSD);
+    }
+}
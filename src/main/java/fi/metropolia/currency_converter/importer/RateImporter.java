@@ -0,0 +1,63 @@
+package fi.metropolia.currency_converter.importer;
+
+import fi.metropolia.currency_converter.dao.CurrencyRepository;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports currency rates from CSV or ECB-style XML files.
+ * Files are parsed incrementally while rows are upserted into the currency
+ * table with JDBC batching, all in one database transaction.
+ */
+public class RateImporter {
+    private final CurrencyRepository dao;
+
+    public RateImporter(CurrencyRepository dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Imports a rate file. Files ending in ".xml" are read as ECB reference
+     * rates, everything else as CSV.
+     *
+     * @return Number of rows written and the import throughput
+     * @throws RuntimeException if the file cannot be read, contains invalid data or the
+     *                          database operation fails; nothing is imported then
+     */
+    public ImportResult importFile(Path file) {
+        boolean xml = file.getFileName().toString().toLowerCase().endsWith(".xml");
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            return xml ? importEcbXml(input) : importCsv(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read rate file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Imports rates from CSV data ({@code abbreviation,name,rate_to_usd} per line).
+     */
+    public ImportResult importCsv(InputStream input) throws IOException {
+        long start = System.nanoTime();
+        try (CsvRateReader reader = new CsvRateReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            int rows = dao.upsertRates(reader);
+            return new ImportResult(rows, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Imports the most recent day of an ECB-style reference rate file.
+     */
+    public ImportResult importEcbXml(InputStream input) throws IOException {
+        long start = System.nanoTime();
+        try (EcbXmlRateReader reader = new EcbXmlRateReader(input)) {
+            int rows = dao.upsertRates(reader);
+            return new ImportResult(rows, System.nanoTime() - start);
+        }
+    }
+}
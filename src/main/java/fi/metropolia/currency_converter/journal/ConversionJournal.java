@@ -0,0 +1,366 @@
+package fi.metropolia.currency_converter.journal;
+
+import fi.metropolia.currency_converter.dao.TransactionDAO;
+import fi.metropolia.currency_converter.dao.TransactionSink;
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.model.Transaction;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Local write-ahead journal for conversions.
+ * Recording a transaction writes one fixed-size, checksummed record into a
+ * memory-mapped segment file and returns, without touching the database. A
+ * background replayer copies the records into the transaction table, skipping
+ * records already stored, and hands fully replayed segments back for reuse.
+ * <p>
+ * Records are in the OS page cache as soon as {@link #append} returns, so they
+ * survive a crash or kill of the JVM and a database outage of any length.
+ * Segments are forced to disk when they fill up and on {@link #close()}.
+ * <p>
+ * Each journal has a random node id, stored with every replayed transaction next to
+ * the journal id. A journal that starts without any segment to continue, because its
+ * directory is new or was wiped, takes a new node id, so its ids never match those of
+ * another journal. A lock file keeps a second process out of the same directory.
+ */
+public class ConversionJournal implements TransactionSink {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "journal.lock";
+    // Replayed segments kept mapped for reuse; further ones are deleted
+    private static final int MAX_FREE_SEGMENTS = 2;
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final List<JournalSegment> segments = new ArrayList<>(); // oldest generation first
+    private final Deque<JournalSegment> free = new ArrayDeque<>();
+    private JournalSegment active;
+    private UUID node;
+    private FileChannel lockChannel;
+    private int nextFileNumber;
+    private JournalReplayer replayer;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the given directory, recovering the records of earlier runs.
+     *
+     * @param segmentCapacity Number of records per segment file
+     * @throws RuntimeException if the directory or a segment file cannot be opened
+     */
+    public ConversionJournal(Path directory, int segmentCapacity) {
+        if (segmentCapacity <= 0) {
+            throw new IllegalArgumentException("Segment capacity must be positive");
+        }
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        try {
+            Files.createDirectories(directory);
+            lock();
+            recover();
+        } catch (IOException | RuntimeException e) {
+            closeSegments();
+            unlock();
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Failed to open journal in " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens the journal configured in database.properties (journal.dir, journal.segment.records)
+     * and starts replaying it into the database through the given DAO
+     * (journal.replay.batch.size, journal.replay.interval.ms).
+     */
+    public static ConversionJournal fromConfig(TransactionDAO dao) {
+        ConversionJournal journal = new ConversionJournal(
+                DatabaseConfig.getJournalDir(),
+                DatabaseConfig.getJournalSegmentRecords());
+        journal.startReplay(dao,
+                DatabaseConfig.getJournalReplayBatchSize(),
+                DatabaseConfig.getJournalReplayIntervalMs());
+        return journal;
+    }
+
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IllegalStateException("Journal in " + directory + " is used by another journal");
+        }
+    }
+
+    private void unlock() {
+        if (lockChannel != null) {
+            try {
+                lockChannel.close(); // Releases the lock
+            } catch (IOException e) {
+                System.err.println("Failed to release journal lock in " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<JournalSegment> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                nextFileNumber = Math.max(nextFileNumber, fileNumber(file) + 1);
+                JournalSegment segment = JournalSegment.open(file, segmentCapacity);
+                if (segment.recover()) {
+                    found.add(segment);
+                } else {
+                    free.add(segment);
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(JournalSegment::getGeneration));
+
+        for (int i = 0; i < found.size(); i++) {
+            JournalSegment segment = found.get(i);
+            boolean newest = i == found.size() - 1;
+            if (!newest && segment.getReplayed() == segment.getWritten()) {
+                free.add(segment);
+            } else {
+                segments.add(segment);
+            }
+        }
+
+        // Ids continue the newest segment; without one they restart, under a new node
+        node = segments.isEmpty() ? UUID.randomUUID() : segments.get(segments.size() - 1).getNode();
+        if (!segments.isEmpty() && !segments.get(segments.size() - 1).isFull()) {
+            active = segments.get(segments.size() - 1);
+        } else {
+            roll();
+        }
+        int pending = 0;
+        for (JournalSegment segment : segments) {
+            pending += segment.getWritten() - segment.getReplayed();
+        }
+        if (pending > 0) {
+            System.out.println("Journal recovered " + pending + " records not yet in the database");
+        }
+    }
+
+    private static int fileNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Starts the background thread replaying records into the database.
+     */
+    public synchronized void startReplay(TransactionDAO dao, int batchSize, long intervalMillis) {
+        if (replayer != null) {
+            throw new IllegalStateException("Journal replay already started");
+        }
+        replayer = new JournalReplayer(this, dao, batchSize, intervalMillis);
+        replayer.start();
+    }
+
+    /**
+     * Records a conversion.
+     *
+     * @param epochMicros Transaction time in microseconds since the epoch, UTC
+     * @return Journal id of the record, stored with the transaction when it is replayed
+     * @throws IllegalArgumentException if a currency code is not 1-4 ASCII characters
+     */
+    public synchronized long append(String sourceCurrency, String targetCurrency,
+                                    double sourceAmount, double targetAmount, long epochMicros) {
+        checkCode(sourceCurrency);
+        checkCode(targetCurrency);
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (active.isFull()) {
+            roll();
+        }
+        return active.append(sourceCurrency, targetCurrency, sourceAmount, targetAmount, epochMicros);
+    }
+
+    /**
+     * Records a transaction. Only its currency codes, amounts and date are kept.
+     */
+    @Override
+    public void submit(Transaction transaction) {
+        LocalDateTime date = transaction.getTransactionDate();
+        append(transaction.getSourceCurrency().getAbbreviation(),
+                transaction.getTargetCurrency().getAbbreviation(),
+                transaction.getSourceAmount(), transaction.getTargetAmount(),
+                date.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + date.getNano() / 1_000);
+    }
+
+    private static void checkCode(String code) {
+        if (code == null || code.isEmpty() || code.length() > 4) {
+            throw new IllegalArgumentException("Invalid currency code: " + code);
+        }
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) > 0x7F || code.charAt(i) == 0) {
+                throw new IllegalArgumentException("Invalid currency code: " + code);
+            }
+        }
+    }
+
+    private void roll() {
+        long generation = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getGeneration() + 1;
+        if (active != null) {
+            active.force();
+        }
+        JournalSegment segment = free.poll();
+        if (segment == null) {
+            Path file = directory.resolve(SEGMENT_PREFIX + (nextFileNumber++) + SEGMENT_SUFFIX);
+            try {
+                segment = JournalSegment.open(file, segmentCapacity);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create journal segment " + file + ": " + e.getMessage(), e);
+            }
+        }
+        segment.reset(generation, node);
+        segments.add(segment);
+        active = segment;
+    }
+
+    /**
+     * Gets the oldest segment with records that are not yet in the database, or null.
+     */
+    synchronized JournalSegment nextToReplay() {
+        for (JournalSegment segment : segments) {
+            if (segment.getReplayed() < segment.getWritten()) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a fully replayed segment for reuse. The active segment is kept.
+     */
+    synchronized void recycle(JournalSegment segment) {
+        if (segment == active || !segment.isFull() || segment.getReplayed() < segment.getWritten()) {
+            return;
+        }
+        segments.remove(segment);
+        if (free.size() < MAX_FREE_SEGMENTS) {
+            free.add(segment);
+        } else {
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                System.err.println("Failed to delete journal segment " + segment.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of records not yet replayed into the database.
+     */
+    public synchronized long getPendingCount() {
+        long pending = 0;
+        for (JournalSegment segment : segments) {
+            pending += segment.getWritten() - segment.getReplayed();
+        }
+        return pending;
+    }
+
+    public long getReplayedCount() {
+        JournalReplayer current;
+        synchronized (this) {
+            current = replayer;
+        }
+        return current == null ? 0 : current.getReplayedCount();
+    }
+
+    /**
+     * Gets the number of records the database rejected, such as records of an unknown
+     * currency. They are skipped so they do not hold back the records behind them.
+     */
+    public long getRejectedCount() {
+        JournalReplayer current;
+        synchronized (this) {
+            current = replayer;
+        }
+        return current == null ? 0 : current.getRejectedCount();
+    }
+
+    /**
+     * Waits until every record written before this call has been replayed,
+     * or until the timeout passes.
+     *
+     * @return true if nothing was left to replay
+     */
+    public boolean awaitReplay(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (getPendingCount() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the replayer after a last replay attempt and forces all segments to disk.
+     * Records that could not be replayed stay in the journal for the next run.
+     */
+    @Override
+    public void close() {
+        JournalReplayer current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = replayer;
+        }
+        if (current != null) {
+            current.close();
+        }
+        synchronized (this) {
+            closeSegments();
+            unlock();
+        }
+    }
+
+    private void closeSegments() {
+        for (JournalSegment segment : segments) {
+            close(segment);
+        }
+        for (JournalSegment segment : free) {
+            close(segment);
+        }
+    }
+
+    private static void close(JournalSegment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close journal segment " + segment.getPath() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package fi.metropolia.currency_converter.journal;
+
+import fi.metropolia.currency_converter.dao.TransactionDAO;
+import fi.metropolia.currency_converter.model.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background thread copying journal records into the transaction table.
+ * Records are stored in batches through {@link TransactionDAO#saveJournaledTransactions(List)},
+ * which skips records stored before, so a batch interrupted by a crash is simply
+ * replayed again. While the database is unavailable the replayer keeps retrying,
+ * waiting up to 32 times the replay interval between attempts.
+ * <p>
+ * A batch the database rejects for its data, such as a record of a currency that no
+ * longer exists, is stored again one record at a time; the records rejected on their
+ * own are logged and skipped instead of failing every later attempt.
+ */
+class JournalReplayer {
+    private static final int MAX_BACKOFF_FACTOR = 32;
+
+    private final ConversionJournal journal;
+    private final TransactionDAO dao;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final Thread thread;
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Object wakeup = new Object();
+    private volatile boolean running = true;
+
+    JournalReplayer(ConversionJournal journal, TransactionDAO dao, int batchSize, long intervalMillis) {
+        if (batchSize <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Replay batch size and interval must be positive");
+        }
+        this.journal = journal;
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        thread = new Thread(this::replayLoop, "journal-replayer");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    long getReplayedCount() {
+        return replayed.get();
+    }
+
+    long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private void replayLoop() {
+        int backoff = 1;
+        while (running) {
+            boolean progress;
+            try {
+                progress = replayBatch();
+                backoff = 1;
+            } catch (RuntimeException e) {
+                System.err.println("Journal replay failed, retrying later: " + e.getMessage());
+                progress = false;
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_FACTOR);
+            }
+            if (!progress) {
+                synchronized (wakeup) {
+                    try {
+                        if (running) {
+                            wakeup.wait(intervalMillis * backoff);
+                        }
+                    } catch (InterruptedException e) {
+                        // Keep replaying; close() stops the loop through the running flag
+                    }
+                }
+            }
+        }
+        // Last attempt, so a clean shutdown leaves as little as possible behind
+        try {
+            while (replayBatch()) {
+                // keep going until the journal is drained
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Journal replay on shutdown failed, records are kept: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays up to one batch from the oldest segment with pending records.
+     *
+     * @return true if any record was replayed
+     */
+    private boolean replayBatch() {
+        JournalSegment segment = journal.nextToReplay();
+        if (segment == null) {
+            return false;
+        }
+        int from = segment.getReplayed();
+        int to = Math.min(segment.getWritten(), from + batchSize);
+        List<Transaction> batch = new ArrayList<>(to - from);
+        for (int slot = from; slot < to; slot++) {
+            batch.add(segment.read(slot));
+        }
+
+        try {
+            dao.saveJournaledTransactions(batch);
+        } catch (RuntimeException e) {
+            if (!isRejected(e)) {
+                throw e;
+            }
+            replayOneByOne(segment, from, to);
+        }
+        segment.markReplayed(to);
+        replayed.addAndGet(to - from);
+        if (segment.isFull() && to == segment.getWritten()) {
+            journal.recycle(segment);
+        }
+        return true;
+    }
+
+    private void replayOneByOne(JournalSegment segment, int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            // Read again: the failed batch left ids on the transactions it persisted
+            Transaction transaction = segment.read(slot);
+            try {
+                dao.saveJournaledTransactions(List.of(transaction));
+            } catch (RuntimeException e) {
+                if (!isRejected(e)) {
+                    throw e;
+                }
+                rejected.incrementAndGet();
+                System.err.println("Journal record " + transaction.getJournalId() + " ("
+                        + transaction.getSourceCurrency().getAbbreviation() + " -> "
+                        + transaction.getTargetCurrency().getAbbreviation()
+                        + ") rejected by the database, skipped: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tells whether a failure is the database rejecting the data, an integrity
+     * constraint violation or a data exception, rather than the database being unavailable.
+     */
+    private static boolean isRejected(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("23") || sql.getSQLState().startsWith("22"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the thread after it has replayed whatever the database accepts.
+     */
+    void close() {
+        synchronized (wakeup) {
+            running = false;
+            wakeup.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
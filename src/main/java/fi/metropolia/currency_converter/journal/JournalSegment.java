@@ -0,0 +1,244 @@
+package fi.metropolia.currency_converter.journal;
+
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped journal file holding a fixed number of fixed-size records.
+ * <pre>
+ * header (64 bytes) = int magic "CCJL", int version, long generation, int capacity, int replayed,
+ *                     16 bytes node id
+ * record (64 bytes) = long journalId, long epochMicros, double sourceAmount, double targetAmount,
+ *                     4 bytes source code, 4 bytes target code, int CRC32C of the preceding 40 bytes
+ * </pre>
+ * Record ids are {@code generation * capacity + slot}. A record is valid only when its
+ * CRC matches and its id belongs to the current generation, so a recycled file needs
+ * no clearing: records left over from an earlier generation are simply not valid.
+ * Ids are unique only within one journal; the node id in the header names that journal.
+ * <p>
+ * Appending is not thread-safe; {@link ConversionJournal} serializes it. The count of
+ * written records is published through a volatile field, so one reader thread may
+ * read every record below {@link #getWritten()} concurrently.
+ */
+final class JournalSegment {
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+    private static final int MAGIC = 0x43434A4C; // "CCJL"
+    private static final int VERSION = 2;
+    private static final int CHECKED_LENGTH = 40;
+    private static final int CODE_LENGTH = 4;
+    private static final int REPLAYED_OFFSET = 20;
+    private static final int NODE_OFFSET = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+
+    private long generation;
+    private UUID node;
+    private volatile int written;
+    private volatile int replayed;
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens or creates a segment file and maps it in full.
+     */
+    static JournalSegment open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            return new JournalSegment(path, channel, buffer, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header and counts the valid records after a restart.
+     *
+     * @return false if the file does not hold a segment of this capacity
+     */
+    boolean recover() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(16) != capacity) {
+            return false;
+        }
+        generation = buffer.getLong(8);
+        node = new UUID(buffer.getLong(NODE_OFFSET), buffer.getLong(NODE_OFFSET + 8));
+        int count = 0;
+        while (count < capacity && isValid(count)) {
+            count++;
+        }
+        written = count;
+        replayed = Math.min(buffer.getInt(REPLAYED_OFFSET), count);
+        return generation > 0;
+    }
+
+    private boolean isValid(int slot) {
+        int offset = offsetOf(slot);
+        if (buffer.getLong(offset) != firstId() + slot) {
+            return false;
+        }
+        buffer.get(offset, scratch, 0, CHECKED_LENGTH);
+        crc.reset();
+        crc.update(scratch, 0, CHECKED_LENGTH);
+        return buffer.getInt(offset + CHECKED_LENGTH) == (int) crc.getValue();
+    }
+
+    /**
+     * Starts a new generation of the given journal: the segment is empty afterwards,
+     * whatever the file holds.
+     */
+    void reset(long newGeneration, UUID newNode) {
+        generation = newGeneration;
+        node = newNode;
+        written = 0;
+        replayed = 0;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, newGeneration);
+        buffer.putInt(16, capacity);
+        buffer.putInt(REPLAYED_OFFSET, 0);
+        buffer.putLong(NODE_OFFSET, newNode.getMostSignificantBits());
+        buffer.putLong(NODE_OFFSET + 8, newNode.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes a record into the next free slot. The caller checks {@link #isFull()} first.
+     *
+     * @return Journal id of the record
+     */
+    long append(String sourceCurrency, String targetCurrency, double sourceAmount, double targetAmount,
+                long epochMicros) {
+        int slot = written;
+        long id = firstId() + slot;
+        record.clear();
+        record.putLong(id).putLong(epochMicros).putDouble(sourceAmount).putDouble(targetAmount);
+        putCode(sourceCurrency);
+        putCode(targetCurrency);
+        crc.reset();
+        crc.update(scratch, 0, CHECKED_LENGTH);
+        record.putInt((int) crc.getValue());
+
+        buffer.put(offsetOf(slot), scratch, 0, CHECKED_LENGTH + Integer.BYTES);
+        written = slot + 1;
+        return id;
+    }
+
+    private void putCode(String code) {
+        int length = code.length();
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            record.put(i < length ? (byte) code.charAt(i) : 0);
+        }
+    }
+
+    /**
+     * Reads a written record as a transaction carrying its journal node and id and its currency codes.
+     */
+    Transaction read(int slot) {
+        int offset = offsetOf(slot);
+        long micros = buffer.getLong(offset + 8);
+        Transaction transaction = new Transaction(
+                new Currency(readCode(offset + 32), null, 0),
+                new Currency(readCode(offset + 36), null, 0),
+                buffer.getDouble(offset + 16),
+                buffer.getDouble(offset + 24));
+        transaction.setTransactionDate(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC));
+        transaction.setJournalNode(node);
+        transaction.setJournalId(buffer.getLong(offset));
+        return transaction;
+    }
+
+    private String readCode(int offset) {
+        int length = 0;
+        while (length < CODE_LENGTH && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Records that every record below {@code count} is stored in the database.
+     */
+    void markReplayed(int count) {
+        replayed = count;
+        buffer.putInt(REPLAYED_OFFSET, count);
+    }
+
+    private long firstId() {
+        return generation * capacity;
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    UUID getNode() {
+        return node;
+    }
+
+    int getWritten() {
+        return written;
+    }
+
+    int getReplayed() {
+        return replayed;
+    }
+
+    boolean isFull() {
+        return written == capacity;
+    }
+
+    /**
+     * Writes the mapped pages to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+}
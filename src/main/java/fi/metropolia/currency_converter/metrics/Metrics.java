@@ -0,0 +1,72 @@
+package fi.metropolia.currency_converter.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the instrumented operations.
+ * Each operation is registered once as an MBean named
+ * {@code fi.metropolia.currency_converter:type=Operation,name=<operation>}, so the
+ * figures can be read with JConsole or any other JMX client.
+ */
+public final class Metrics {
+    private static final String DOMAIN = "fi.metropolia.currency_converter";
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets the metrics of an operation, creating and registering them on first use.
+     * Callers keep the result in a field; this lookup is not meant for the hot path.
+     *
+     * @param name Operation name, e.g. "CurrencyDAO.updateCurrencyRate"
+     */
+    public static OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, key -> {
+            OperationMetrics metrics = new OperationMetrics(key);
+            register(metrics);
+            return metrics;
+        });
+    }
+
+    private static void register(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, new ObjectName(DOMAIN + ":type=Operation,name="
+                    + ObjectName.quote(metrics.getName())));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another class loader, e.g. in tests; keep recording locally
+        } catch (JMException | RuntimeException e) {
+            System.err.println("Cannot register metrics MBean for " + metrics.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the current figures of all operations, sorted by name.
+     */
+    public static List<OperationStats> getStats() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (OperationMetrics metrics : operations.values()) {
+            stats.add(metrics.getStats());
+        }
+        stats.sort((a, b) -> a.name().compareTo(b.name()));
+        return stats;
+    }
+
+    /**
+     * Clears the figures of all operations.
+     */
+    public static void resetAll() {
+        for (OperationMetrics metrics : operations.values()) {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fi.metropolia.currency_converter.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one operation.
+ * Typical use, with the instance held in a static final field:
+ * <pre>
+ * long start = System.nanoTime();
+ * boolean success = false;
+ * try {
+ *     ...
+ *     success = true;
+ * } finally {
+ *     METRICS.record(start, success);
+ * }
+ * </pre>
+ * Instances are created and registered with JMX by {@link Metrics#operation(String)}.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one call that started at {@code startNanos} (from {@link System#nanoTime()}).
+     */
+    public void record(long startNanos, boolean success) {
+        latency.record(System.nanoTime() - startNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / 1_000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getQuantileNanos(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getQuantileNanos(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getQuantileNanos(0.999) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+    }
+
+    /**
+     * Gets the current figures of this operation.
+     */
+    public OperationStats getStats() {
+        return new OperationStats(name, getCount(), getErrorCount(), getMeanMicros(),
+                getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
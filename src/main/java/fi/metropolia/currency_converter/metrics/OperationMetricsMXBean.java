@@ -0,0 +1,25 @@
+package fi.metropolia.currency_converter.metrics;
+
+/**
+ * JMX view of one instrumented operation. Latencies are in microseconds.
+ */
+public interface OperationMetricsMXBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    /**
+     * Clears the counters and the latency histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,8 @@
+package fi.metropolia.currency_converter.metrics;
+
+/**
+ * Point-in-time figures of one instrumented operation. Latencies are in microseconds.
+ */
+public record OperationStats(String name, long count, long errors, double meanMicros,
+                             double p50Micros, double p99Micros, double p999Micros, double maxMicros) {
+}
@@ -0,0 +1,259 @@
+package fi.metropolia.currency_converter.model;
+
+import java.nio.DoubleBuffer;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk conversion of amount arrays against a single {@link RateTable} snapshot,
+ * or any other source of {@link PairRates} such as the quote graph.
+ * Arguments are validated once per call, the inner loops do not allocate and
+ * inputs larger than {@link #PARALLEL_THRESHOLD} are split across the common
+ * ForkJoinPool. Results are written into caller-supplied output arrays.
+ */
+public final class BatchConverter {
+    /**
+     * Number of amounts below which a batch is converted on the calling thread.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private BatchConverter() {
+    }
+
+    /**
+     * Rate for converting one unit of one currency into another.
+     */
+    @FunctionalInterface
+    public interface PairRates {
+        /**
+         * @throws IllegalArgumentException if a currency is unknown or a rate is not positive
+         */
+        double rate(String from, String to);
+    }
+
+    /**
+     * Gets the cross rates of a rate table snapshot.
+     */
+    public static PairRates ratesOf(RateTable table) {
+        return (from, to) -> pairRate(table, from, to);
+    }
+
+    /**
+     * Converts with the cross rates of a rate table snapshot.
+     */
+    public static void convert(RateTable table, double[] amounts, int offset, int length,
+                               String from, String to, double[] out, int outOffset) {
+        convert(ratesOf(table), amounts, offset, length, from, to, out, outOffset);
+    }
+
+    /**
+     * Converts with the cross rates of a rate table snapshot.
+     */
+    public static void convert(RateTable table, double[] amounts, String[] from, String[] to, double[] out) {
+        convert(ratesOf(table), amounts, from, to, out);
+    }
+
+    /**
+     * Converts with the cross rates of a rate table snapshot.
+     */
+    public static void convert(RateTable table, DoubleBuffer amounts, String from, String to, DoubleBuffer out) {
+        convert(ratesOf(table), amounts, from, to, out);
+    }
+
+    /**
+     * Converts every amount from one currency to another.
+     *
+     * @throws IllegalArgumentException  if a currency is unknown or an amount is negative
+     * @throws IndexOutOfBoundsException if a range does not fit its array
+     */
+    public static void convert(PairRates rates, double[] amounts, int offset, int length,
+                               String from, String to, double[] out, int outOffset) {
+        checkRange(amounts.length, offset, length, out.length, outOffset);
+        double rate = checkedRate(rates, from, to);
+
+        if (length < PARALLEL_THRESHOLD) {
+            scale(amounts, offset, offset + length, rate, out, outOffset - offset);
+        } else {
+            ForkJoinPool.commonPool().invoke(
+                    new ScaleTask(amounts, offset, offset + length, rate, out, outOffset - offset));
+        }
+    }
+
+    /**
+     * Converts every amount using its own pair of currencies.
+     * {@code from[i]} and {@code to[i]} apply to {@code amounts[i]}.
+     *
+     * @throws IllegalArgumentException  if a currency is unknown, the arrays differ in length
+     *                                   or an amount is negative
+     * @throws IndexOutOfBoundsException if the output is shorter than the amounts
+     */
+    public static void convert(PairRates rates, double[] amounts, String[] from, String[] to, double[] out) {
+        int n = amounts.length;
+        if (from.length != n || to.length != n) {
+            throw new IllegalArgumentException("Amount and currency arrays must have the same length");
+        }
+        checkRange(n, 0, n, out.length, 0);
+
+        if (n < PARALLEL_THRESHOLD) {
+            mixed(rates, amounts, from, to, out, 0, n);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MixedTask(rates, amounts, from, to, out, 0, n));
+        }
+    }
+
+    /**
+     * Converts the remaining amounts of a buffer into another buffer.
+     * Both buffer positions are advanced by the number of converted amounts.
+     *
+     * @throws IllegalArgumentException if a currency is unknown, the output has too little
+     *                                  room or an amount is negative
+     */
+    public static void convert(PairRates rates, DoubleBuffer amounts, String from, String to, DoubleBuffer out) {
+        int length = amounts.remaining();
+        if (out.remaining() < length) {
+            throw new IllegalArgumentException("Output buffer too small: " + out.remaining() + " < " + length);
+        }
+        if (out.isReadOnly()) {
+            throw new IllegalArgumentException("Output buffer is read-only");
+        }
+
+        if (amounts.hasArray() && out.hasArray()) {
+            convert(rates, amounts.array(), amounts.arrayOffset() + amounts.position(), length,
+                    from, to, out.array(), out.arrayOffset() + out.position());
+        } else {
+            double rate = checkedRate(rates, from, to);
+            int in = amounts.position();
+            int dst = out.position();
+            for (int i = 0; i < length; i++) {
+                double amount = amounts.get(in + i);
+                if (amount < 0) {
+                    throw negativeAmount(i);
+                }
+                out.put(dst + i, amount * rate);
+            }
+        }
+
+        amounts.position(amounts.position() + length);
+        out.position(out.position() + length);
+    }
+
+    private static double pairRate(RateTable table, String from, String to) {
+        int fromSlot = slotOf(table, from);
+        int toSlot = slotOf(table, to);
+        if (table.rateAt(fromSlot) <= 0 || table.rateAt(toSlot) <= 0) {
+            throw new IllegalArgumentException("Exchange rates must be positive");
+        }
+        return table.crossRate(fromSlot, toSlot);
+    }
+
+    private static int slotOf(RateTable table, String code) {
+        int slot = table.indexOf(code);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Currency not found: " + code);
+        }
+        return slot;
+    }
+
+    /**
+     * Gets a rate, rejecting the non-positive or infinite ones a rate source let through.
+     */
+    private static double checkedRate(PairRates rates, String from, String to) {
+        double rate = rates.rate(from, to);
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Exchange rate must be positive: " + from + " -> " + to);
+        }
+        return rate;
+    }
+
+    private static void checkRange(int inLength, int offset, int length, int outLength, int outOffset) {
+        // Unlike offset + length > inLength, these cannot overflow
+        Objects.checkFromIndexSize(offset, length, inLength);
+        Objects.checkFromIndexSize(outOffset, length, outLength);
+    }
+
+    private static IllegalArgumentException negativeAmount(int index) {
+        return new IllegalArgumentException("Amount cannot be negative (index " + index + ")");
+    }
+
+    private static void scale(double[] amounts, int start, int end, double rate, double[] out, int shift) {
+        for (int i = start; i < end; i++) {
+            double amount = amounts[i];
+            if (amount < 0) {
+                throw negativeAmount(i);
+            }
+            out[i + shift] = amount * rate;
+        }
+    }
+
+    private static void mixed(PairRates rates, double[] amounts, String[] from, String[] to,
+                              double[] out, int start, int end) {
+        for (int i = start; i < end; i++) {
+            double amount = amounts[i];
+            if (amount < 0) {
+                throw negativeAmount(i);
+            }
+            out[i] = amount * checkedRate(rates, from[i], to[i]);
+        }
+    }
+
+    private static final class ScaleTask extends RecursiveAction {
+        private final double[] amounts;
+        private final int start;
+        private final int end;
+        private final double rate;
+        private final double[] out;
+        private final int shift;
+
+        ScaleTask(double[] amounts, int start, int end, double rate, double[] out, int shift) {
+            this.amounts = amounts;
+            this.start = start;
+            this.end = end;
+            this.rate = rate;
+            this.out = out;
+            this.shift = shift;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_THRESHOLD) {
+                scale(amounts, start, end, rate, out, shift);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new ScaleTask(amounts, start, mid, rate, out, shift),
+                    new ScaleTask(amounts, mid, end, rate, out, shift));
+        }
+    }
+
+    private static final class MixedTask extends RecursiveAction {
+        private final PairRates rates;
+        private final double[] amounts;
+        private final String[] from;
+        private final String[] to;
+        private final double[] out;
+        private final int start;
+        private final int end;
+
+        MixedTask(PairRates rates, double[] amounts, String[] from, String[] to, double[] out, int start, int end) {
+            this.rates = rates;
+            this.amounts = amounts;
+            this.from = from;
+            this.to = to;
+            this.out = out;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_THRESHOLD) {
+                mixed(rates, amounts, from, to, out, start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new MixedTask(rates, amounts, from, to, out, start, mid),
+                    new MixedTask(rates, amounts, from, to, out, mid, end));
+        }
+    }
+}
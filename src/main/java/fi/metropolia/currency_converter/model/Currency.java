@@ -1,14 +1,29 @@
 package fi.metropolia.currency_converter.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 /**
  * JPA Entity class representing a currency with its exchange rate to USD.
  * Matches the database schema exactly.
+ * Instances are kept in the "currency" second-level cache region.
+ * {@code updated_at} is set on every insert and update. {@code change_id} is
+ * assigned in commit order by every write (see {@link CurrencyChange}), so clients
+ * can fetch only the currencies changed since their last refresh. {@code version}
+ * is checked and incremented by every update, so concurrent updates of the same
+ * currency cannot silently overwrite each other.
  */
 @Entity
-@Table(name = "currency")
+@Table(name = "currency", indexes = @Index(name = "idx_currency_change_id", columnList = "change_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Currency.CACHE_REGION)
 public class Currency {
+    public static final String CACHE_REGION = "currency";
+
     @Id
     @Column(name = "abbreviation", columnDefinition = "CHAR(3)")
     private String abbreviation;
@@ -19,6 +34,18 @@ public class Currency {
     @Column(name = "rate_to_usd", nullable = false)
     private double rateToUSD;
 
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // Written by the DAOs with plain SQL at the end of each write, never through JPA
+    @ColumnDefault("0")
+    @Column(name = "change_id", nullable = false, insertable = false, updatable = false)
+    private long changeId;
+
     /**
      * Default constructor (required by JPA).
      */
@@ -59,6 +86,53 @@ public class Currency {
         this.rateToUSD = rateToUSD;
     }
 
+    /**
+     * Gets the time of the last insert or update, or null if not known
+     * (e.g. for currencies read from the local snapshot).
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Gets the optimistic-lock version, incremented on every update.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of a copy, e.g. one read with plain JDBC. Hibernate manages
+     * the version of managed entities.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the id of the last change of this currency; higher ids were committed later.
+     */
+    public long getChangeId() {
+        return changeId;
+    }
+
+    /**
+     * Sets the change id of a copy, e.g. one read with plain JDBC.
+     */
+    public void setChangeId(long changeId) {
+        this.changeId = changeId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
     @Override
     public String toString() {
         return abbreviation + " - " + name;
@@ -0,0 +1,40 @@
+package fi.metropolia.currency_converter.model;
+
+import jakarta.persistence.*;
+
+/**
+ * JPA Entity class for the single row counting currency changes.
+ * Every transaction writing currencies increments it as its last statement and
+ * gives the written rows the new value as {@code change_id}. The row stays
+ * locked until that transaction ends, so change ids become visible in commit
+ * order and a refresh can fetch the rows with a higher id than it has seen.
+ */
+@Entity
+@Table(name = "currency_change")
+public class CurrencyChange {
+    /**
+     * Key of the counter row.
+     */
+    public static final int COUNTER_ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private int id;
+
+    @Column(name = "last_change", nullable = false)
+    private long lastChange;
+
+    /**
+     * Default constructor (required by JPA).
+     */
+    public CurrencyChange() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getLastChange() {
+        return lastChange;
+    }
+}
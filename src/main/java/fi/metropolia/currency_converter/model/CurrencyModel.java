@@ -2,58 +2,670 @@
 package fi.metropolia.currency_converter.model;
 
 import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.CurrencyPairDAO;
+import fi.metropolia.currency_converter.dao.CurrencyRepository;
+import fi.metropolia.currency_converter.dao.CurrencySnapshotStore;
+import fi.metropolia.currency_converter.dao.DatabaseExecutor;
+import fi.metropolia.currency_converter.dao.RateConflictException;
+import fi.metropolia.currency_converter.dao.RateHistoryDAO;
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.importer.ImportResult;
+import fi.metropolia.currency_converter.importer.RateImporter;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
+import java.math.RoundingMode;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Model class containing business logic for currency conversion.
+ * Currencies and rates are held in an immutable {@link RateTable} snapshot
+ * that is replaced atomically on every change, so readers never lock.
+ * <p>
+ * Direct pair quotes ({@link CurrencyPair}) are held in a {@link RateGraph}; when
+ * there are any, conversions between currencies follow the shortest chain of
+ * quotes and fall back to the rates to USD.
+ * <p>
+ * Every published table is also saved to the local {@link CurrencySnapshotStore}, so
+ * the next start can convert before, or without, connecting to the database.
+ * <p>
+ * The {@code ...Async} methods run their database work on the {@link DatabaseExecutor}
+ * and return immediately. Concurrent refreshes share one database read, and rate
+ * updates of the same currency are applied in the order they were requested.
+ * <p>
+ * After the first full read, refreshes only fetch the currencies whose change id
+ * is higher than the highest one seen and patch them into the rate table. Change
+ * ids are assigned in commit order by the database, so no commit is missed however
+ * long it took or whatever the writer's clock said. Quotes are still fetched by
+ * {@code updated_at}, minus a safety window ({@code refresh.delta.window.ms}).
+ * <p>
+ * Conversions and writes record their latency and failures in {@link Metrics}.
+ * Currencies are stored through the {@link CurrencyRepository} selected by {@code db.repository}.
  */
 public class CurrencyModel {
-    private final CurrencyDAO dao;
-    private List<Currency> currencies;
+    private volatile CurrencyRepository dao;
+    private volatile RateHistoryCache history;
+    private volatile CurrencyPairDAO pairDao;
+    private final CurrencySnapshotStore snapshots;
+    private final AtomicReference<RateTable> rateTable = new AtomicReference<>(new RateTable(List.of()));
+    // Highest change id read from the database; NO_CHANGE until a full read returned one
+    private final AtomicLong changeCursor = new AtomicLong(NO_CHANGE);
+    private final Duration deltaWindow;
+    // Latest updated_at of the quotes read; null until a read returned one
+    private final AtomicReference<Instant> pairCursor = new AtomicReference<>();
+    private final RateGraph rateGraph;
+
+    // Refresh that later callers join instead of starting another query
+    private final AtomicReference<CompletableFuture<List<Currency>>> refreshInFlight = new AtomicReference<>();
+    // Incremented after every committed write, so a refresh can tell whether its read is outdated
+    private final AtomicLong writeCount = new AtomicLong();
+    private final ConcurrentMap<String, CompletableFuture<Void>> lastRateUpdate = new ConcurrentHashMap<>();
+
+    private static final long NO_CHANGE = -1;
+    // Refresh attempts before an outdated read is published anyway
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+    private static final String OFFLINE_MESSAGE = "Database is not connected; working offline with saved rates";
+
+    private static final OperationMetrics CONVERT = Metrics.operation("CurrencyModel.convert");
+    private static final OperationMetrics CONVERT_MINOR = Metrics.operation("CurrencyModel.convertMinor");
+    private static final OperationMetrics CONVERT_HISTORICAL = Metrics.operation("CurrencyModel.convertHistorical");
+    private static final OperationMetrics UPDATE_RATE = Metrics.operation("CurrencyModel.updateCurrencyRate");
+    private static final OperationMetrics UPDATE_RATES = Metrics.operation("CurrencyModel.updateCurrencyRates");
+    private static final OperationMetrics IMPORT_RATES = Metrics.operation("CurrencyModel.importRates");
 
     public CurrencyModel() {
-        dao = new CurrencyDAO();
-        refreshCurrencies();
+        this(null);
+    }
+
+    /**
+     * Creates the model with currencies that were already loaded, for example
+     * by {@link CurrencyDAO#loadCurrenciesDirect()} while JPA was starting.
+     *
+     * @param initialCurrencies Currencies to start with, or null to load them now
+     */
+    public CurrencyModel(List<Currency> initialCurrencies) {
+        this(CurrencySnapshotStore.fromConfig(), List.of());
+        connect(initialCurrencies);
+    }
+
+    /**
+     * Creates a model that is not connected to the database yet. It converts with
+     * the given currencies, typically from the local snapshot, until {@link #connect}
+     * succeeds; operations that need the database fail until then.
+     *
+     * @param snapshots Store receiving a snapshot after every change, or null for none
+     */
+    public CurrencyModel(CurrencySnapshotStore snapshots, List<Currency> offlineCurrencies) {
+        this.snapshots = snapshots;
+        this.deltaWindow = Duration.ofMillis(DatabaseConfig.getRefreshDeltaWindowMs());
+        this.rateGraph = new RateGraph(DatabaseConfig.getPairMaxHops());
+        rateTable.set(new RateTable(offlineCurrencies));
+    }
+
+    /**
+     * Connects the model to the database and replaces the offline currencies with
+     * the database ones. Does nothing but publish the currencies if already connected.
+     *
+     * @param currencies Currencies already read from the database, or null to read them now
+     * @throws RuntimeException if the database is unavailable; the model stays offline then
+     */
+    public void connect(List<Currency> currencies) {
+        attachDatabase();
+        List<Currency> loaded = currencies != null ? currencies : dao.getAllCurrencies();
+        applyChanges(new CurrencyChanges(loaded, true, pairDao.getPairsChangedSince(null)));
+    }
+
+    private synchronized void attachDatabase() {
+        if (dao != null) {
+            return;
+        }
+        CurrencyRepository currencyDao = CurrencyRepository.fromConfig();
+        RateHistoryDAO rateHistoryDao = new RateHistoryDAO(CurrencyDAO.getEntityManagerFactory());
+        // Currencies written before the history existed get their first point
+        rateHistoryDao.seedMissing();
+        history = new RateHistoryCache(rateHistoryDao,
+                DatabaseConfig.getHistoryCacheMaxCurrencies(), DatabaseConfig.getHistoryCacheMaxPoints());
+        pairDao = new CurrencyPairDAO(CurrencyDAO.getEntityManagerFactory());
+        dao = currencyDao;
+    }
+
+    /**
+     * Tells whether the model is connected to the database.
+     */
+    public boolean isConnected() {
+        return dao != null;
+    }
+
+    private CurrencyRepository requireDao() {
+        CurrencyRepository current = dao;
+        if (current == null) {
+            throw new IllegalStateException(OFFLINE_MESSAGE);
+        }
+        return current;
+    }
+
+    private void publish(RateTable table) {
+        rateTable.set(table);
+        saveSnapshot();
+    }
+
+    private void saveSnapshot() {
+        if (snapshots != null) {
+            snapshots.saveAsync(rateTable.get().getCurrencies());
+        }
     }
 
     public List<Currency> getCurrencies() {
-        return currencies;
+        return rateTable.get().getCurrencies();
     }
 
+    /**
+     * Brings the rate table up to date with the database: a full read the first
+     * time, then only the currencies changed since the last read.
+     */
     public void refreshCurrencies() {
-        this.currencies = dao.getAllCurrencies();
+        applyChanges(readChanges(requireDao()));
+    }
+
+    /**
+     * Currencies read by a refresh, all of them or only those changed since the
+     * cursor, and the quotes changed since the quote cursor.
+     */
+    private record CurrencyChanges(List<Currency> currencies, boolean full, List<CurrencyPair> pairs) {
+    }
+
+    private CurrencyChanges readChanges(CurrencyRepository current) {
+        Instant pairsSince = pairCursor.get();
+        List<CurrencyPair> pairs = pairDao.getPairsChangedSince(pairsSince != null ? pairsSince.minus(deltaWindow) : null);
+        long cursor = changeCursor.get();
+        if (cursor == NO_CHANGE) {
+            return new CurrencyChanges(current.getAllCurrencies(), true, pairs);
+        }
+        return new CurrencyChanges(current.getCurrenciesChangedSince(cursor), false, pairs);
+    }
+
+    private static void advance(AtomicReference<Instant> cursor, Instant updatedAt) {
+        if (updatedAt != null) {
+            cursor.accumulateAndGet(updatedAt, (a, b) -> a == null || b.isAfter(a) ? b : a);
+        }
+    }
+
+    private void applyChanges(CurrencyChanges changes) {
+        for (CurrencyPair pair : changes.pairs()) {
+            // Unchanged quotes leave the cached paths alone
+            rateGraph.putQuote(pair.getBaseCurrency(), pair.getQuoteCurrency(), pair.getRate());
+            advance(pairCursor, pair.getUpdatedAt());
+        }
+        for (Currency currency : changes.currencies()) {
+            changeCursor.accumulateAndGet(currency.getChangeId(), Math::max);
+        }
+        if (changes.full()) {
+            publish(new RateTable(changes.currencies()));
+            return;
+        }
+        RateTable current;
+        RateTable patched;
+        do {
+            current = rateTable.get();
+            patched = current.withChanges(changes.currencies());
+            if (patched == current) {
+                return; // Nothing changed; keep the table and the saved snapshot
+            }
+        } while (!rateTable.compareAndSet(current, patched));
+        saveSnapshot();
+    }
+
+    /**
+     * Reloads the currencies from the database without blocking the caller.
+     * While a refresh is running, further calls join it instead of querying again.
+     * Cancelling the returned future only detaches the caller.
+     *
+     * @return Future completed with the refreshed currencies
+     */
+    public CompletableFuture<List<Currency>> refreshCurrenciesAsync() {
+        while (true) {
+            CompletableFuture<List<Currency>> current = refreshInFlight.get();
+            if (current != null) {
+                return current.copy();
+            }
+            CompletableFuture<List<Currency>> refresh = new CompletableFuture<>();
+            if (refreshInFlight.compareAndSet(null, refresh)) {
+                startRefresh(refresh, 1);
+                return refresh.copy();
+            }
+        }
+    }
+
+    private void startRefresh(CompletableFuture<List<Currency>> refresh, int attempt) {
+        long writesAtStart = writeCount.get();
+        CompletableFuture<CurrencyChanges> read = DatabaseExecutor.supply(() -> {
+            // An offline model tries to connect first
+            attachDatabase();
+            return readChanges(dao);
+        });
+        read.whenComplete((changes, error) -> {
+            if (error == null && writeCount.get() != writesAtStart && attempt < MAX_REFRESH_ATTEMPTS) {
+                // A write committed while reading; the list may predate it
+                startRefresh(refresh, attempt + 1);
+                return;
+            }
+            refreshInFlight.set(null);
+            if (error != null) {
+                refresh.completeExceptionally(error);
+            } else {
+                applyChanges(changes);
+                refresh.complete(rateTable.get().getCurrencies());
+            }
+        });
     }
 
     public double convert(double amount, Currency from, Currency to) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            double result = convertWithTable(amount, from, to);
+            success = true;
+            return result;
+        } finally {
+            CONVERT.record(start, success);
+        }
+    }
+
+    private double convertWithTable(double amount, Currency from, Currency to) {
         if (from == null || to == null) {
             throw new IllegalArgumentException("From and To currencies cannot be null");
         }
         if (amount < 0) {
             throw new IllegalArgumentException("Amount cannot be negative");
         }
+
+        // Prefer the current snapshot over rates carried by possibly stale objects
+        RateTable table = rateTable.get();
+        if (rateGraph.hasQuotes()) {
+            return amount * graphRate(table, from.getAbbreviation(), to.getAbbreviation());
+        }
+        int fromSlot = table.indexOf(from.getAbbreviation());
+        int toSlot = table.indexOf(to.getAbbreviation());
+        if (fromSlot >= 0 && toSlot >= 0) {
+            if (table.rateAt(fromSlot) <= 0 || table.rateAt(toSlot) <= 0) {
+                throw new IllegalArgumentException("Exchange rates must be positive");
+            }
+            return amount * table.crossRate(fromSlot, toSlot);
+        }
+
         if (from.getRateToUSD() <= 0 || to.getRateToUSD() <= 0) {
             throw new IllegalArgumentException("Exchange rates must be positive");
         }
-
         return amount * (from.getRateToUSD() / to.getRateToUSD());
     }
 
+    /**
+     * Converts an amount between two currencies given by abbreviation.
+     * Served from the in-memory rate table, or the rate graph when there are quotes,
+     * without a database round trip.
+     */
+    public double convert(String from, String to, double amount) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            double result;
+            if (rateGraph.hasQuotes()) {
+                if (amount < 0) {
+                    throw new IllegalArgumentException("Amount cannot be negative");
+                }
+                result = amount * graphRate(rateTable.get(), from, to);
+            } else {
+                result = rateTable.get().convert(from, to, amount);
+            }
+            success = true;
+            return result;
+        } finally {
+            CONVERT.record(start, success);
+        }
+    }
+
+    /**
+     * Gets the rate of a pair from the quote graph, which falls back to the rates to USD.
+     */
+    private double graphRate(RateTable table, String from, String to) {
+        double rate = rateGraph.rate(table, from, to);
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Exchange rates must be positive");
+        }
+        return rate;
+    }
+
+    /**
+     * Gets the rates every conversion path uses now: the quote graph when there are
+     * quotes, otherwise the cross rates of the current rate table.
+     */
+    private BatchConverter.PairRates currentRates() {
+        RateTable table = rateTable.get();
+        if (!rateGraph.hasQuotes()) {
+            return BatchConverter.ratesOf(table);
+        }
+        return (from, to) -> graphRate(table, from, to);
+    }
+
+    /**
+     * Converts an amount given in minor units (cents, yen, fils) between two currencies
+     * exactly, with fixed-point arithmetic on the rates as stored in the database
+     * (six decimals), rounding once with the given mode. Does not allocate.
+     * A pair converted over quotes uses the rate of the quote path instead, like
+     * {@link #convert(String, String, double)}.
+     *
+     * @return Amount in minor units of the target currency
+     * @throws ArithmeticException if the result overflows or {@link RoundingMode#UNNECESSARY}
+     *                             is given and rounding is needed
+     * @see FixedPoint
+     */
+    public long convertMinor(String from, String to, long amountMinor, RoundingMode mode) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            RateTable table = rateTable.get();
+            long result;
+            if (rateGraph.hasQuotes() && rateGraph.usesQuotes(table, from, to)) {
+                if (amountMinor < 0) {
+                    throw new IllegalArgumentException("Amount cannot be negative");
+                }
+                result = FixedPoint.convertAtRate(amountMinor, rateGraph.rate(table, from, to),
+                        FixedPoint.minorUnits(from), FixedPoint.minorUnits(to), mode);
+            } else {
+                result = table.convertMinor(from, to, amountMinor, mode);
+            }
+            success = true;
+            return result;
+        } finally {
+            CONVERT_MINOR.record(start, success);
+        }
+    }
+
+    /**
+     * Converts an amount with the rates that were valid at the given time.
+     * A currency without any recorded history is converted at its current rate.
+     *
+     * @throws IllegalArgumentException if a currency is unknown or had no rate yet at that time
+     */
+    public double convert(double amount, String from, String to, Instant at) {
+        if (at == null) {
+            throw new IllegalArgumentException("Time cannot be null");
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            double result = amount * (historicalRate(from, at) / historicalRate(to, at));
+            success = true;
+            return result;
+        } finally {
+            CONVERT_HISTORICAL.record(start, success);
+        }
+    }
+
+    private double historicalRate(String abbreviation, Instant at) {
+        requireDao();
+        double rate = history.rateAt(abbreviation, at);
+        if (!Double.isNaN(rate)) {
+            return rate;
+        }
+        if (!history.hasHistory(abbreviation)) {
+            return rateTable.get().getExchangeRate(abbreviation);
+        }
+        throw new IllegalArgumentException("No " + abbreviation + " rate recorded at or before " + at);
+    }
+
+    /**
+     * Converts all amounts from one currency to another into {@code out}, with the
+     * same rates as {@link #convert(String, String, double)}.
+     * Large batches are split across the ForkJoin common pool.
+     */
+    public void convertBatch(double[] amounts, String from, String to, double[] out) {
+        BatchConverter.convert(currentRates(), amounts, 0, amounts.length, from, to, out, 0);
+    }
+
+    /**
+     * Converts {@code length} amounts starting at {@code offset} into {@code out} starting at {@code outOffset}.
+     */
+    public void convertBatch(double[] amounts, int offset, int length, String from, String to,
+                             double[] out, int outOffset) {
+        BatchConverter.convert(currentRates(), amounts, offset, length, from, to, out, outOffset);
+    }
+
+    /**
+     * Converts each amount with its own currency pair: {@code from[i]} to {@code to[i]}.
+     */
+    public void convertBatch(double[] amounts, String[] from, String[] to, double[] out) {
+        BatchConverter.convert(currentRates(), amounts, from, to, out);
+    }
+
+    /**
+     * Converts the remaining amounts of {@code amounts} into {@code out}, advancing both buffers.
+     */
+    public void convertBatch(DoubleBuffer amounts, String from, String to, DoubleBuffer out) {
+        BatchConverter.convert(currentRates(), amounts, from, to, out);
+    }
+
+    /**
+     * Sets a rate regardless of concurrent updates; the database retries an update
+     * that collides with another one.
+     *
+     * @throws RateConflictException if the update kept colliding
+     */
     public void updateCurrencyRate(String abbreviation, double newRate) {
-        if (newRate <= 0) {
+        updateRate(abbreviation, newRate, -1);
+    }
+
+    /**
+     * Sets a rate only if the currency still has the version the caller based the new
+     * rate on, e.g. the one shown when the user started editing. On a conflict the
+     * current rate is published, so {@link #getCurrencies()} shows what changed.
+     *
+     * @throws RateConflictException if the currency was changed since that version
+     */
+    public void updateCurrencyRate(String abbreviation, double newRate, long expectedVersion) {
+        if (expectedVersion < 0) {
+            throw new IllegalArgumentException("Version must not be negative: " + expectedVersion);
+        }
+        updateRate(abbreviation, newRate, expectedVersion);
+    }
+
+    private void updateRate(String abbreviation, double newRate, long expectedVersion) {
+        if (!(newRate > 0) || Double.isInfinite(newRate)) {
             throw new IllegalArgumentException("Exchange rate must be positive");
         }
 
-        dao.updateCurrencyRate(abbreviation, newRate);
+        long start = System.nanoTime();
+        boolean success = false;
+        long version;
+        try {
+            CurrencyRepository dao = requireDao();
+            version = expectedVersion < 0
+                    ? dao.updateCurrencyRate(abbreviation, newRate)
+                    : dao.updateCurrencyRate(abbreviation, newRate, expectedVersion);
+            writeCount.incrementAndGet();
+            history.onRateChanged(abbreviation);
+            success = true;
+        } catch (RateConflictException e) {
+            if (e.getCurrentVersion() >= 0) {
+                publishRate(abbreviation, e.getCurrentRate(), e.getCurrentVersion());
+            }
+            throw e;
+        } finally {
+            UPDATE_RATE.record(start, success);
+        }
+
+        publishRate(abbreviation, newRate, version);
+        saveSnapshot();
+    }
+
+    /**
+     * Publishes a new snapshot with the given rate, unless it already holds a newer
+     * version of the currency; retried if another writer published first.
+     */
+    private void publishRate(String abbreviation, double rate, long version) {
+        rateTable.updateAndGet(table -> {
+            int slot = table.indexOf(abbreviation);
+            return slot >= 0 && table.getCurrencies().get(slot).getVersion() <= version
+                    ? table.withRate(slot, rate, version) : table;
+        });
+    }
+
+    /**
+     * Publishes a rate in memory only, keeping the currency's version. Used by
+     * {@link RateTickCoalescer}, which stores the rate with its next flush.
+     *
+     * @throws IllegalArgumentException if the currency is unknown
+     */
+    void publishTick(String abbreviation, double rateToUSD) {
+        if (rateTable.get().indexOf(abbreviation) < 0) {
+            throw new IllegalArgumentException("Currency not found: " + abbreviation);
+        }
+        rateTable.updateAndGet(table -> {
+            int slot = table.indexOf(abbreviation);
+            return slot >= 0 && table.rateAt(slot) != rateToUSD
+                    ? table.withRate(slot, rateToUSD, table.getCurrencies().get(slot).getVersion()) : table;
+        });
+    }
+
+    /**
+     * Updates a rate without blocking the caller. Updates of the same currency run
+     * one after another in call order, so the last requested rate is the one stored.
+     *
+     * @return Future completed when the rate is stored and published
+     */
+    public CompletableFuture<Void> updateCurrencyRateAsync(String abbreviation, double newRate) {
+        if (!(newRate > 0) || Double.isInfinite(newRate)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Exchange rate must be positive"));
+        }
+        return enqueueRateUpdate(abbreviation, () -> updateCurrencyRate(abbreviation, newRate));
+    }
+
+    /**
+     * Asynchronous {@link #updateCurrencyRate(String, double, long)}, queued behind the
+     * other updates of the same currency like {@link #updateCurrencyRateAsync(String, double)}.
+     *
+     * @return Future completed when the rate is stored and published, or failed with
+     *         {@link RateConflictException} on a conflict
+     */
+    public CompletableFuture<Void> updateCurrencyRateAsync(String abbreviation, double newRate, long expectedVersion) {
+        if (!(newRate > 0) || Double.isInfinite(newRate)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Exchange rate must be positive"));
+        }
+        return enqueueRateUpdate(abbreviation, () -> updateCurrencyRate(abbreviation, newRate, expectedVersion));
+    }
 
-        // Update the cached currency object
-        currencies.stream()
-                .filter(c -> c.getAbbreviation().equals(abbreviation))
-                .findFirst()
-                .ifPresent(c -> c.setRateToUSD(newRate));
+    private CompletableFuture<Void> enqueueRateUpdate(String abbreviation, Runnable update) {
+        CompletableFuture<Void> queued = lastRateUpdate.compute(abbreviation, (code, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(e -> null))
+                        .thenRunAsync(update, DatabaseExecutor.get()));
+        queued.whenComplete((result, error) -> lastRateUpdate.remove(abbreviation, queued));
+        return queued;
     }
 
+    /**
+     * Updates the rates of several currencies at once: one database transaction with
+     * a batched update and the matching history rows, and a single new rate table
+     * published with all of the currencies as written, with the versions the database
+     * gave them, so readers see either none or all of the new rates.
+     *
+     * @param rates New rate to USD per abbreviation
+     * @throws IllegalArgumentException if a rate is missing or not positive; nothing is updated then
+     * @throws RuntimeException         if a currency does not exist or the database fails
+     */
+    public void updateCurrencyRates(Map<String, Double> rates) {
+        requirePositiveRates(rates);
+        if (rates.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        List<Currency> written;
+        try {
+            written = requireDao().updateCurrencyRates(rates);
+            writeCount.incrementAndGet();
+            for (String abbreviation : rates.keySet()) {
+                history.onRateChanged(abbreviation);
+            }
+            success = true;
+        } finally {
+            UPDATE_RATES.record(start, success);
+        }
+
+        // Skips currencies a concurrent refresh already moved past
+        rateTable.updateAndGet(table -> table.withChanges(written));
+        saveSnapshot();
+    }
+
+    /**
+     * Updates the rates of several currencies without blocking the caller.
+     * The map is copied, so the caller may reuse it.
+     *
+     * @return Future completed when the rates are stored and published
+     */
+    public CompletableFuture<Void> updateCurrencyRatesAsync(Map<String, Double> rates) {
+        try {
+            requirePositiveRates(rates);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Map<String, Double> copy = Map.copyOf(rates);
+        return DatabaseExecutor.run(() -> updateCurrencyRates(copy));
+    }
+
+    private static void requirePositiveRates(Map<String, Double> rates) {
+        for (Map.Entry<String, Double> rate : rates.entrySet()) {
+            if (rate.getValue() == null || !(rate.getValue() > 0) || rate.getValue().isInfinite()) {
+                throw new IllegalArgumentException("Exchange rate must be positive: " + rate.getKey());
+            }
+        }
+    }
+
+    /**
+     * Stores a direct quote, one {@code base} costs {@code rate} {@code quote}, and
+     * uses it for conversions at once. Only cached paths through this pair are
+     * resolved again.
+     *
+     * @throws IllegalArgumentException if the rate is not positive or the currencies are equal
+     */
+    public void updateQuote(String base, String quote, double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Quote rate must be positive");
+        }
+        if (base.equals(quote)) {
+            throw new IllegalArgumentException("Quote needs two different currencies");
+        }
+        requireDao();
+        pairDao.saveQuote(base, quote, rate);
+        writeCount.incrementAndGet();
+        // The cursor is left alone: quotes written by others meanwhile must still be read
+        rateGraph.putQuote(base, quote, rate);
+    }
+
+    /**
+     * Gets the exchange rate to USD from the in-memory rate table.
+     */
     public double getExchangeRate(String abbreviation) {
-        return dao.getExchangeRate(abbreviation);
+        return rateTable.get().getExchangeRate(abbreviation);
+    }
+
+    /**
+     * Gets the current rate snapshot. The returned table never changes.
+     */
+    public RateTable getRateTable() {
+        return rateTable.get();
     }
 
     /**
@@ -63,14 +675,62 @@ public class CurrencyModel {
         if (currency.getRateToUSD() <= 0) {
             throw new IllegalArgumentException("Exchange rate must be positive");
         }
-        dao.insertCurrency(currency);
+        requireDao().insertCurrency(currency);
+        writeCount.incrementAndGet();
+        history.onRateChanged(currency.getAbbreviation());
         refreshCurrencies(); // Refresh to include the new currency
     }
 
+    /**
+     * Inserts a new currency without blocking the caller.
+     */
+    public CompletableFuture<Void> insertCurrencyAsync(Currency currency) {
+        if (currency.getRateToUSD() <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Exchange rate must be positive"));
+        }
+        return DatabaseExecutor.run(() -> insertCurrency(currency));
+    }
+
+    /**
+     * Imports a CSV or ECB XML rate file and refreshes the cached rates once afterwards.
+     */
+    public ImportResult importRates(Path file) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ImportResult result = new RateImporter(requireDao()).importFile(file);
+            writeCount.incrementAndGet();
+            history.clear();
+            refreshCurrencies();
+            success = true;
+            return result;
+        } finally {
+            IMPORT_RATES.record(start, success);
+        }
+    }
+
+    /**
+     * Imports a rate file without blocking the caller.
+     */
+    public CompletableFuture<ImportResult> importRatesAsync(Path file) {
+        return DatabaseExecutor.supply(() -> importRates(file));
+    }
+
     /**
      * Checks if a currency with the given abbreviation already exists.
      */
     public boolean currencyExists(String abbreviation) {
-        return dao.currencyExists(abbreviation);
+        return requireDao().currencyExists(abbreviation);
+    }
+
+    /**
+     * Checks without blocking the caller whether a currency already exists.
+     */
+    public CompletableFuture<Boolean> currencyExistsAsync(String abbreviation) {
+        if (!isConnected()) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    OFFLINE_MESSAGE));
+        }
+        return dao.currencyExistsAsync(abbreviation);
     }
 }
@@ -0,0 +1,86 @@
+package fi.metropolia.currency_converter.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * JPA Entity class representing a direct quote between two currencies:
+ * one unit of the base currency costs {@code rate} units of the quote currency
+ * (EUR/SEK 11.4). Quotes need not go through USD and their currencies need
+ * not have a rate to USD.
+ */
+@Entity
+@Table(name = "currency_pair",
+        uniqueConstraints = @UniqueConstraint(name = "uq_currency_pair", columnNames = {"base_currency", "quote_currency"}),
+        indexes = @Index(name = "idx_currency_pair_updated_at", columnList = "updated_at"))
+public class CurrencyPair {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "currency_pair_seq")
+    @SequenceGenerator(name = "currency_pair_seq", sequenceName = "currency_pair_seq", allocationSize = 50)
+    @Column(name = "pair_id")
+    private Long pairId;
+
+    @Column(name = "base_currency", columnDefinition = "CHAR(3)", nullable = false)
+    private String baseCurrency;
+
+    @Column(name = "quote_currency", columnDefinition = "CHAR(3)", nullable = false)
+    private String quoteCurrency;
+
+    @Column(name = "rate", nullable = false)
+    private double rate;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Default constructor (required by JPA).
+     */
+    public CurrencyPair() {
+    }
+
+    /**
+     * Constructor with parameters.
+     */
+    public CurrencyPair(String baseCurrency, String quoteCurrency, double rate) {
+        this.baseCurrency = baseCurrency;
+        this.quoteCurrency = quoteCurrency;
+        this.rate = rate;
+    }
+
+    // Getters and setters
+    public Long getPairId() {
+        return pairId;
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public String getQuoteCurrency() {
+        return quoteCurrency;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
+    @Override
+    public String toString() {
+        return baseCurrency + "/" + quoteCurrency + " " + rate;
+    }
+}
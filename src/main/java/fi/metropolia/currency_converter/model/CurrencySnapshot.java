@@ -0,0 +1,13 @@
+package fi.metropolia.currency_converter.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Currencies and rates as saved in the local snapshot file.
+ *
+ * @param currencies Currencies ordered as they were in the rate table
+ * @param savedAt    When the snapshot was written
+ */
+public record CurrencySnapshot(List<Currency> currencies, Instant savedAt) {
+}
@@ -0,0 +1,225 @@
+package fi.metropolia.currency_converter.model;
+
+import java.math.RoundingMode;
+
+/**
+ * Exact arithmetic on scaled {@code long} values.
+ * Amounts are held in minor units of their currency (cents for EUR, yen for JPY)
+ * and rates to USD are scaled by {@link #RATE_SCALE}, the precision of the
+ * {@code rate_to_usd NUMERIC(10,6)} column. {@link #multiplyDivide} keeps the full
+ * 128-bit intermediate product, so the only rounding is the final one, done with
+ * the given {@link RoundingMode}. Nothing here allocates.
+ */
+public final class FixedPoint {
+    /**
+     * Number of decimal places of a scaled rate.
+     */
+    public static final int RATE_DIGITS = 6;
+    /**
+     * Factor between a rate and its scaled {@code long} value.
+     */
+    public static final long RATE_SCALE = 1_000_000L;
+
+    private static final int DEFAULT_MINOR_UNITS = 2;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final long LOW_MASK = 0xFFFF_FFFFL;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Gets the number of minor-unit digits of a currency per ISO 4217
+     * (2 for EUR, 0 for JPY, 3 for KWD); 2 for codes Java does not know.
+     */
+    public static int minorUnits(String code) {
+        try {
+            int digits = java.util.Currency.getInstance(code).getDefaultFractionDigits();
+            return digits >= 0 ? digits : DEFAULT_MINOR_UNITS;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return DEFAULT_MINOR_UNITS;
+        }
+    }
+
+    /**
+     * Scales a rate to a {@code long} with {@link #RATE_DIGITS} decimals, rounding half even.
+     *
+     * @throws ArithmeticException if the rate is not finite or too large
+     */
+    public static long scaleRate(double rate) {
+        double scaled = Math.rint(rate * RATE_SCALE);
+        if (!Double.isFinite(scaled) || Math.abs(scaled) >= 0x1p62) {
+            throw new ArithmeticException("Rate out of range: " + rate);
+        }
+        return (long) scaled;
+    }
+
+    /**
+     * Gets 10 to the given power, for 0 to 9.
+     */
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Converts an amount in minor units of one currency to minor units of another.
+     * Computes {@code amount * fromRate * 10^toUnits / (toRate * 10^fromUnits)} exactly
+     * and rounds once.
+     *
+     * @param fromRate  Scaled rate to USD of the source currency
+     * @param fromUnits Minor-unit digits of the source currency
+     * @throws ArithmeticException if a rate is not positive, the result does not fit
+     *                             in a long, or rounding is needed with {@link RoundingMode#UNNECESSARY}
+     */
+    public static long convert(long amount, long fromRate, int fromUnits, long toRate, int toUnits,
+                               RoundingMode mode) {
+        if (fromRate <= 0 || toRate <= 0) {
+            throw new ArithmeticException("Exchange rates must be positive");
+        }
+        return multiplyDivide(amount,
+                Math.multiplyExact(fromRate, POWERS_OF_TEN[toUnits]),
+                Math.multiplyExact(toRate, POWERS_OF_TEN[fromUnits]),
+                mode);
+    }
+
+    /**
+     * Converts an amount in minor units at a cross rate given as a double, e.g. one
+     * chained from several quotes. The rate is taken with up to nine decimals, as many
+     * as fit; the only rounding of the result is the final one.
+     *
+     * @param rate Units of the target currency per unit of the source currency
+     * @throws ArithmeticException if the rate is not positive, the result does not fit
+     *                             in a long, or rounding is needed with {@link RoundingMode#UNNECESSARY}
+     */
+    public static long convertAtRate(long amount, double rate, int fromUnits, int toUnits, RoundingMode mode) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new ArithmeticException("Exchange rates must be positive");
+        }
+        int digits = POWERS_OF_TEN.length - 1;
+        while (digits > 0 && rate * POWERS_OF_TEN[digits] * POWERS_OF_TEN[toUnits] >= 0x1p62) {
+            digits--;
+        }
+        long scaled = Math.round(rate * POWERS_OF_TEN[digits]);
+        if (scaled <= 0 || rate * POWERS_OF_TEN[toUnits] >= 0x1p62) {
+            throw new ArithmeticException("Rate out of range: " + rate);
+        }
+        return multiplyDivide(amount,
+                Math.multiplyExact(scaled, POWERS_OF_TEN[toUnits]),
+                Math.multiplyExact(POWERS_OF_TEN[digits], POWERS_OF_TEN[fromUnits]),
+                mode);
+    }
+
+    /**
+     * Computes {@code value * multiplier / divisor} with a 128-bit intermediate product,
+     * rounded with the given mode.
+     *
+     * @param multiplier Non-negative factor
+     * @param divisor    Positive divisor
+     * @throws ArithmeticException if the result does not fit in a long or rounding is
+     *                             needed with {@link RoundingMode#UNNECESSARY}
+     */
+    public static long multiplyDivide(long value, long multiplier, long divisor, RoundingMode mode) {
+        if (multiplier < 0 || divisor <= 0) {
+            throw new ArithmeticException("Multiplier must be non-negative and divisor positive");
+        }
+        boolean negative = value < 0;
+        // |Long.MIN_VALUE| is 2^63, which is correct as an unsigned value
+        long magnitude = negative ? -value : value;
+
+        long high = Math.multiplyHigh(magnitude, multiplier);
+        if (magnitude < 0) {
+            // multiplyHigh is signed; add back the multiplier for the unsigned high word
+            high += multiplier;
+        }
+        long low = magnitude * multiplier;
+        if (Long.compareUnsigned(high, divisor) >= 0) {
+            throw new ArithmeticException("Fixed-point overflow");
+        }
+
+        long quotient = divideUnsigned128(high, low, divisor);
+        long remainder = low - quotient * divisor; // exact: the remainder is below the divisor
+        if (remainder != 0 && roundsAway(mode, negative, quotient, remainder, divisor)) {
+            quotient++;
+        }
+        if (quotient < 0) {
+            if (negative && quotient == Long.MIN_VALUE) {
+                return Long.MIN_VALUE;
+            }
+            throw new ArithmeticException("Fixed-point overflow");
+        }
+        return negative ? -quotient : quotient;
+    }
+
+    /**
+     * Tells whether a truncated magnitude must be incremented.
+     */
+    private static boolean roundsAway(RoundingMode mode, boolean negative, long quotient, long remainder,
+                                      long divisor) {
+        // remainder < divisor < 2^63, so doubling cannot overflow as unsigned
+        int half = Long.compareUnsigned(remainder << 1, divisor);
+        switch (mode) {
+            case UP:
+                return true;
+            case DOWN:
+                return false;
+            case CEILING:
+                return !negative;
+            case FLOOR:
+                return negative;
+            case HALF_UP:
+                return half >= 0;
+            case HALF_DOWN:
+                return half > 0;
+            case HALF_EVEN:
+                return half > 0 || (half == 0 && (quotient & 1) != 0);
+            case UNNECESSARY:
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+    }
+
+    /**
+     * Divides the unsigned 128-bit value {@code high:low} by {@code divisor}.
+     * Requires {@code high < divisor} (unsigned), so the quotient fits in 64 bits.
+     * Long division in 32-bit digits (Knuth, algorithm D).
+     */
+    static long divideUnsigned128(long high, long low, long divisor) {
+        if (high == 0) {
+            return Long.divideUnsigned(low, divisor);
+        }
+        int shift = Long.numberOfLeadingZeros(divisor);
+        long v = divisor << shift;
+        long vHigh = v >>> 32;
+        long vLow = v & LOW_MASK;
+
+        long u32 = shift == 0 ? high : (high << shift) | (low >>> (64 - shift));
+        long u10 = low << shift;
+        long u1 = u10 >>> 32;
+        long u0 = u10 & LOW_MASK;
+
+        long q1 = Long.divideUnsigned(u32, vHigh);
+        long rest = u32 - q1 * vHigh;
+        while (Long.compareUnsigned(q1, 1L << 32) >= 0
+                || Long.compareUnsigned(q1 * vLow, (rest << 32) | u1) > 0) {
+            q1--;
+            rest += vHigh;
+            if (Long.compareUnsigned(rest, 1L << 32) >= 0) {
+                break;
+            }
+        }
+
+        long u21 = (u32 << 32) + u1 - q1 * v;
+        long q0 = Long.divideUnsigned(u21, vHigh);
+        rest = u21 - q0 * vHigh;
+        while (Long.compareUnsigned(q0, 1L << 32) >= 0
+                || Long.compareUnsigned(q0 * vLow, (rest << 32) | u0) > 0) {
+            q0--;
+            rest += vHigh;
+            if (Long.compareUnsigned(rest, 1L << 32) >= 0) {
+                break;
+            }
+        }
+        return (q1 << 32) | q0;
+    }
+}
@@ -0,0 +1,14 @@
+package fi.metropolia.currency_converter.model;
+
+import java.time.LocalDate;
+
+/**
+ * Transaction volume of one currency pair on one day, aggregated in the database.
+ *
+ * @param sourceVolume Sum of the source amounts
+ * @param targetVolume Sum of the target amounts
+ * @param count        Number of transactions
+ */
+public record PairDailyVolume(String sourceCurrency, String targetCurrency, LocalDate day,
+                              double sourceVolume, double targetVolume, long count) {
+}
@@ -0,0 +1,282 @@
+package fi.metropolia.currency_converter.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Conversion rates over a graph of direct currency pair quotes, with a fallback
+ * to triangulation through USD.
+ * <p>
+ * A conversion follows the path with the fewest quotes, at most {@code maxHops},
+ * found by breadth-first search; every quote can be used in both directions.
+ * Without such a path the rates to USD of the reference {@link RateTable} are used.
+ * <p>
+ * Resolved rates are cached in an N x N table over all currencies seen, filled a
+ * source row at a time, so after warm-up a conversion is two hash lookups and one
+ * array read. Changing the rate of an existing quote only invalidates the cached
+ * pairs whose path uses that quote; a new quote or currency can shorten any path
+ * and starts a new table. Lookups never lock; resolving and changes are serialized.
+ */
+public class RateGraph {
+    // Cache entries hold the raw bits of the rate or one of these markers
+    // (0 is never a rate, the others are NaN payloads)
+    private static final long UNRESOLVED = 0L;
+    private static final long VIA_USD = 0x7ff8_0000_0000_0001L;
+    private static final long NO_PATH = 0x7ff8_0000_0000_0002L;
+
+    private final int maxHops;
+
+    // Replaced under the lock, read without it
+    private volatile Nodes nodes = new Nodes(new String[0], Map.of());
+    private volatile boolean hasQuotes;
+    private volatile int referenceSize = -1;
+
+    // Guarded by this
+    private final List<List<Edge>> adjacency = new ArrayList<>();
+    private final Map<Long, Quote> quotes = new HashMap<>();
+
+    /**
+     * Currencies of the graph and the cache over them. Never changes except for cache entries.
+     */
+    private static final class Nodes {
+        final String[] codes;
+        final Map<String, Integer> index;
+        final AtomicLongArray cache;
+
+        Nodes(String[] codes, Map<String, Integer> index) {
+            this.codes = codes;
+            this.index = index;
+            this.cache = new AtomicLongArray(codes.length * codes.length);
+        }
+    }
+
+    private static final class Quote {
+        final int base;
+        final int quote;
+        double rate;
+        // Cache entries whose path uses this quote; a set, so re-resolving an entry does not grow it
+        final BitSet dependents = new BitSet();
+
+        Quote(int base, int quote, double rate) {
+            this.base = base;
+            this.quote = quote;
+            this.rate = rate;
+        }
+    }
+
+    private record Edge(Quote quote, int to, boolean inverse) {
+        double factor() {
+            return inverse ? 1.0 / quote.rate : quote.rate;
+        }
+    }
+
+    /**
+     * @param maxHops Maximum number of quotes chained in one conversion
+     */
+    public RateGraph(int maxHops) {
+        if (maxHops < 1) {
+            throw new IllegalArgumentException("maxHops must be at least 1");
+        }
+        this.maxHops = maxHops;
+    }
+
+    /**
+     * Tells whether any quote is known; without quotes every rate comes from USD triangulation.
+     */
+    public boolean hasQuotes() {
+        return hasQuotes;
+    }
+
+    /**
+     * Adds or changes the quote of a pair: one {@code base} costs {@code rate} {@code quote}.
+     *
+     * @return Whether anything changed
+     * @throws IllegalArgumentException if the rate is not positive or both codes are equal
+     */
+    public synchronized boolean putQuote(String base, String quote, double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Quote rate must be positive: " + base + "/" + quote);
+        }
+        if (base.equals(quote)) {
+            throw new IllegalArgumentException("Quote needs two different currencies: " + base + "/" + quote);
+        }
+        int baseNode = addNode(base);
+        int quoteNode = addNode(quote);
+        long key = ((long) baseNode << 32) | quoteNode;
+
+        Quote existing = quotes.get(key);
+        if (existing != null) {
+            if (existing.rate == rate) {
+                return false;
+            }
+            existing.rate = rate;
+            // Paths stay the shortest; only the rates along them changed
+            AtomicLongArray cache = nodes.cache;
+            for (int slot = existing.dependents.nextSetBit(0); slot >= 0;
+                 slot = existing.dependents.nextSetBit(slot + 1)) {
+                cache.set(slot, UNRESOLVED);
+            }
+            existing.dependents.clear();
+            return true;
+        }
+
+        Quote added = new Quote(baseNode, quoteNode, rate);
+        quotes.put(key, added);
+        adjacency.get(baseNode).add(new Edge(added, quoteNode, false));
+        adjacency.get(quoteNode).add(new Edge(added, baseNode, true));
+        hasQuotes = true;
+        resetCache(); // A new edge may shorten any path
+        return true;
+    }
+
+    /**
+     * Gets the rate for converting one unit of {@code from} into {@code to}.
+     *
+     * @param reference Current rates to USD, used when no quote path exists
+     * @throws IllegalArgumentException if a currency is unknown or no path exists
+     */
+    public double rate(RateTable reference, String from, String to) {
+        long bits = resolve(reference, from, to);
+        return bits == VIA_USD ? reference.convert(from, to, 1.0) : Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Tells whether converting {@code from} into {@code to} follows quotes rather
+     * than the rates to USD of the reference table.
+     *
+     * @throws IllegalArgumentException if a currency is unknown or no path exists
+     */
+    public boolean usesQuotes(RateTable reference, String from, String to) {
+        return resolve(reference, from, to) != VIA_USD;
+    }
+
+    /**
+     * Gets the cache entry of a pair, resolving it first if needed: the rate bits or {@link #VIA_USD}.
+     */
+    private long resolve(RateTable reference, String from, String to) {
+        if (reference.size() != referenceSize) {
+            addReferenceCodes(reference);
+        }
+        while (true) {
+            Nodes current = nodes;
+            Integer fromNode = current.index.get(from);
+            Integer toNode = current.index.get(to);
+            if (fromNode == null || toNode == null) {
+                throw new IllegalArgumentException("Currency not found: " + (fromNode == null ? from : to));
+            }
+            long bits = current.cache.get(fromNode * current.codes.length + toNode);
+            if (bits == NO_PATH) {
+                throw new IllegalArgumentException("No rate path from " + from + " to " + to);
+            }
+            if (bits != UNRESOLVED) {
+                return bits;
+            }
+            resolveRow(current, fromNode, reference);
+        }
+    }
+
+    /**
+     * Adds the currencies of a reference table that are not nodes yet. Currencies are
+     * never removed, so a table of the same size has the same currencies.
+     */
+    private synchronized void addReferenceCodes(RateTable reference) {
+        if (reference.size() == referenceSize) {
+            return;
+        }
+        for (int slot = 0; slot < reference.size(); slot++) {
+            addNode(reference.codeAt(slot));
+        }
+        referenceSize = reference.size();
+        // Pairs without a quote path may have become reachable through USD
+        resetCache();
+    }
+
+    private int addNode(String code) {
+        Integer existing = nodes.index.get(code);
+        if (existing != null) {
+            return existing;
+        }
+        String[] codes = Arrays.copyOf(nodes.codes, nodes.codes.length + 1);
+        codes[codes.length - 1] = code;
+        Map<String, Integer> index = new HashMap<>(nodes.index);
+        index.put(code, codes.length - 1);
+        adjacency.add(new ArrayList<>());
+        nodes = new Nodes(codes, index);
+        clearDependents();
+        return codes.length - 1;
+    }
+
+    private void resetCache() {
+        Nodes current = nodes;
+        nodes = new Nodes(current.codes, current.index);
+        clearDependents();
+    }
+
+    private void clearDependents() {
+        for (Quote quote : quotes.values()) {
+            quote.dependents.clear();
+        }
+    }
+
+    /**
+     * Resolves all rates from one currency with a breadth-first search over the quotes.
+     */
+    private synchronized void resolveRow(Nodes seen, int source, RateTable reference) {
+        if (nodes != seen) {
+            return; // The nodes changed meanwhile; the caller looks up again
+        }
+        int n = seen.codes.length;
+        Edge[] parent = new Edge[n];
+        int[] hops = new int[n];
+        double[] factors = new double[n];
+        Arrays.fill(hops, -1);
+        hops[source] = 0;
+        factors[source] = 1.0;
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            if (hops[node] == maxHops) {
+                continue;
+            }
+            for (Edge edge : adjacency.get(node)) {
+                if (hops[edge.to()] < 0) {
+                    hops[edge.to()] = hops[node] + 1;
+                    factors[edge.to()] = factors[node] * edge.factor();
+                    parent[edge.to()] = edge;
+                    queue.add(edge.to());
+                }
+            }
+        }
+
+        int row = source * n;
+        String from = seen.codes[source];
+        boolean fromHasUsdRate = reference.indexOf(from) >= 0;
+        for (int target = 0; target < n; target++) {
+            int slot = row + target;
+            if (seen.cache.get(slot) != UNRESOLVED) {
+                continue; // Still valid and already registered with its quotes
+            }
+            if (hops[target] >= 0) {
+                seen.cache.set(slot, Double.doubleToRawLongBits(factors[target]));
+                // Register the entry with every quote on its path
+                for (int node = target; node != source; ) {
+                    Edge edge = parent[node];
+                    edge.quote().dependents.set(slot);
+                    node = edge.inverse() ? edge.quote().quote : edge.quote().base;
+                }
+            } else if (fromHasUsdRate && reference.indexOf(seen.codes[target]) >= 0) {
+                seen.cache.set(slot, VIA_USD);
+            } else {
+                seen.cache.set(slot, NO_PATH);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package fi.metropolia.currency_converter.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * JPA Entity class representing one historical exchange rate of a currency.
+ * Rows are only ever appended: a rate is valid from {@code validFrom} until
+ * the next row of the same currency.
+ */
+@Entity
+@Table(name = "rate_history",
+        indexes = @Index(name = "idx_rate_history_currency_time", columnList = "abbreviation, valid_from"))
+public class RateHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rate_history_seq")
+    // No pooled ids: the repositories insert rows over JDBC with nextval
+    @SequenceGenerator(name = "rate_history_seq", sequenceName = "rate_history_seq", allocationSize = 1)
+    @Column(name = "history_id")
+    private Long historyId;
+
+    @Column(name = "abbreviation", columnDefinition = "CHAR(3)", nullable = false)
+    private String abbreviation;
+
+    @Column(name = "rate_to_usd", nullable = false)
+    private double rateToUSD;
+
+    @Column(name = "valid_from", nullable = false)
+    private Instant validFrom;
+
+    /**
+     * Default constructor (required by JPA).
+     */
+    public RateHistory() {
+    }
+
+    /**
+     * Constructor with parameters.
+     */
+    public RateHistory(String abbreviation, double rateToUSD, Instant validFrom) {
+        this.abbreviation = abbreviation;
+        this.rateToUSD = rateToUSD;
+        this.validFrom = validFrom;
+    }
+
+    // Getters and setters
+    public Long getHistoryId() {
+        return historyId;
+    }
+
+    public void setHistoryId(Long historyId) {
+        this.historyId = historyId;
+    }
+
+    public String getAbbreviation() {
+        return abbreviation;
+    }
+
+    public void setAbbreviation(String abbreviation) {
+        this.abbreviation = abbreviation;
+    }
+
+    public double getRateToUSD() {
+        return rateToUSD;
+    }
+
+    public void setRateToUSD(double rateToUSD) {
+        this.rateToUSD = rateToUSD;
+    }
+
+    public Instant getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(Instant validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RateHistory[%s %.6f from %s]", abbreviation, rateToUSD, validFrom);
+    }
+}
@@ -0,0 +1,110 @@
+package fi.metropolia.currency_converter.model;
+
+import fi.metropolia.currency_converter.dao.RateHistoryDAO;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of per-currency {@link RateSeries}.
+ * A currency's history is loaded from the database the first time it is needed,
+ * holding at most {@code maxPoints} of its most recent rates; at most
+ * {@code maxCurrencies} series are kept, least recently used ones are dropped.
+ * Lookups older than a cached series fall back to a single database query.
+ * A rate write drops the currency's series; a load that overlapped a write is
+ * repeated rather than cached.
+ */
+public class RateHistoryCache {
+    private final RateHistoryDAO dao;
+    private final int maxPoints;
+    private final Map<String, RateSeries> series;
+    // Times each currency's series was dropped, and all of them; guarded by series
+    private final Map<String, Long> changes = new HashMap<>();
+    private long epoch;
+
+    public RateHistoryCache(RateHistoryDAO dao, int maxCurrencies, int maxPoints) {
+        if (maxCurrencies <= 0 || maxPoints <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        this.dao = dao;
+        this.maxPoints = maxPoints;
+        this.series = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RateSeries> eldest) {
+                return size() > maxCurrencies;
+            }
+        };
+    }
+
+    /**
+     * Gets the rate of a currency valid at the given time.
+     *
+     * @return The rate, or NaN if no rate was recorded at or before the time
+     */
+    public double rateAt(String abbreviation, Instant at) {
+        RateSeries rates = getSeries(abbreviation);
+        double rate = rates.rateAt(at.toEpochMilli());
+        if (Double.isNaN(rate) && !rates.isComplete()) {
+            rate = dao.findRateAt(abbreviation, at);
+        }
+        return rate;
+    }
+
+    /**
+     * Tells whether any rate history is recorded for the currency.
+     */
+    public boolean hasHistory(String abbreviation) {
+        return getSeries(abbreviation).size() > 0;
+    }
+
+    /**
+     * Drops the cached series of a currency whose rate was written; it is reloaded,
+     * with the new rate, on the next lookup.
+     */
+    public void onRateChanged(String abbreviation) {
+        synchronized (series) {
+            series.remove(abbreviation);
+            changes.merge(abbreviation, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Drops all cached series; they are reloaded on the next lookup.
+     */
+    public void clear() {
+        synchronized (series) {
+            series.clear();
+            epoch++;
+        }
+    }
+
+    private RateSeries getSeries(String abbreviation) {
+        while (true) {
+            long stamp;
+            synchronized (series) {
+                RateSeries rates = series.get(abbreviation);
+                if (rates != null) {
+                    return rates;
+                }
+                stamp = stampOf(abbreviation);
+            }
+
+            // Load outside the lock so a slow query does not block other lookups
+            RateSeries loaded = dao.loadSeries(abbreviation, maxPoints);
+            synchronized (series) {
+                if (stampOf(abbreviation) == stamp) {
+                    RateSeries existing = series.putIfAbsent(abbreviation, loaded);
+                    return existing != null ? existing : loaded;
+                }
+            }
+            // The rate was written during the load, which may have missed it
+        }
+    }
+
+    // Changes whenever the series of the currency is dropped; guarded by series
+    private long stampOf(String abbreviation) {
+        return epoch + changes.getOrDefault(abbreviation, 0L);
+    }
+}
@@ -0,0 +1,11 @@
+package fi.metropolia.currency_converter.model;
+
+/**
+ * One currency rate read from an import file.
+ *
+ * @param abbreviation Three-letter currency code
+ * @param name         Currency name, or null if the source does not provide one
+ * @param rateToUSD    Exchange rate to USD
+ */
+public record RateRecord(String abbreviation, String name, double rateToUSD) {
+}
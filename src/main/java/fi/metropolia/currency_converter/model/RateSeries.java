@@ -0,0 +1,94 @@
+package fi.metropolia.currency_converter.model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable time series of one currency's rates to USD.
+ * Timestamps (epoch milliseconds, ascending) and rates are kept in primitive
+ * arrays, so looking up the rate valid at a given time is a binary search
+ * without boxing.
+ * <p>
+ * A series may hold only the most recent part of the history. {@link #isComplete()}
+ * tells whether it also covers everything before its first point.
+ */
+public class RateSeries {
+    private final long[] times;
+    private final double[] rates;
+    private final boolean complete;
+
+    /**
+     * Creates a series from ascending timestamps and their rates.
+     * The arrays are owned by the series afterwards.
+     *
+     * @param complete true if no older history exists than the first point
+     */
+    public RateSeries(long[] times, double[] rates, boolean complete) {
+        if (times.length != rates.length) {
+            throw new IllegalArgumentException("Timestamps and rates must have the same length");
+        }
+        this.times = times;
+        this.rates = rates;
+        this.complete = complete;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Gets the first timestamp held, or Long.MAX_VALUE for an empty series.
+     */
+    public long firstTime() {
+        return times.length == 0 ? Long.MAX_VALUE : times[0];
+    }
+
+    /**
+     * Gets the rate valid at the given time: the rate of the last point at or before it.
+     *
+     * @return The rate, or NaN if the series has no point at or before the time
+     */
+    public double rateAt(long epochMillis) {
+        int index = Arrays.binarySearch(times, epochMillis);
+        if (index < 0) {
+            index = -index - 2; // last point before the insertion point
+        } else {
+            // Several points can share a timestamp; the last one wins
+            while (index + 1 < times.length && times[index + 1] == epochMillis) {
+                index++;
+            }
+        }
+        return index >= 0 ? rates[index] : Double.NaN;
+    }
+
+    /**
+     * Returns a series with one more point, keeping at most {@code maxPoints} of the most recent ones.
+     * Points older than the last one are inserted in order.
+     */
+    public RateSeries append(long epochMillis, double rate, int maxPoints) {
+        int n = times.length;
+        int position = n;
+        while (position > 0 && times[position - 1] > epochMillis) {
+            position--;
+        }
+
+        long[] newTimes = new long[n + 1];
+        double[] newRates = new double[n + 1];
+        System.arraycopy(times, 0, newTimes, 0, position);
+        System.arraycopy(rates, 0, newRates, 0, position);
+        newTimes[position] = epochMillis;
+        newRates[position] = rate;
+        System.arraycopy(times, position, newTimes, position + 1, n - position);
+        System.arraycopy(rates, position, newRates, position + 1, n - position);
+
+        if (newTimes.length <= maxPoints) {
+            return new RateSeries(newTimes, newRates, complete);
+        }
+        int drop = newTimes.length - maxPoints;
+        return new RateSeries(Arrays.copyOfRange(newTimes, drop, newTimes.length),
+                Arrays.copyOfRange(newRates, drop, newRates.length), false);
+    }
+}
@@ -0,0 +1,328 @@
+package fi.metropolia.currency_converter.model;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, index-based snapshot of the exchange rates.
+ * Every currency code is mapped to a dense int slot, the rates to USD are
+ * kept in a primitive array and all cross rates are precomputed in an
+ * N x N matrix, so conversions never box, never divide and never go to
+ * the database.
+ * <p>
+ * A table is never modified after construction. Rate changes produce a new
+ * table through {@link #withRate(int, double, long)}, which the model publishes
+ * atomically, so any number of reader threads can use a table without locks.
+ * <p>
+ * Next to the {@code double} rates, every rate is also kept as a scaled {@code long}
+ * with the minor units of its currency, for exact conversions of amounts in
+ * minor units through {@link FixedPoint}.
+ */
+public class RateTable {
+    private final List<Currency> currencies;
+    private final String[] codes;
+    private final double[] rates;
+    private final double[] crossRates;
+    private final long[] scaledRates;
+    private final int[] minorUnits;
+
+    // Open-addressing index: code -> slot, shared between derived tables
+    private final String[] keys;
+    private final int[] slots;
+    private final int mask;
+
+    /**
+     * Builds a rate table from the given currencies.
+     * Slots are assigned in list order.
+     */
+    public RateTable(List<Currency> currencies) {
+        int n = currencies.size();
+        this.currencies = Collections.unmodifiableList(new ArrayList<>(currencies));
+        codes = new String[n];
+        rates = new double[n];
+        minorUnits = new int[n];
+
+        int capacity = Integer.highestOneBit(Math.max(4, n * 2 - 1)) << 1;
+        keys = new String[capacity];
+        slots = new int[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < n; i++) {
+            Currency currency = currencies.get(i);
+            codes[i] = currency.getAbbreviation();
+            rates[i] = currency.getRateToUSD();
+            minorUnits[i] = FixedPoint.minorUnits(codes[i]);
+
+            int h = hash(codes[i]) & mask;
+            while (keys[h] != null) {
+                if (keys[h].equals(codes[i])) {
+                    throw new IllegalArgumentException("Duplicate currency: " + codes[i]);
+                }
+                h = (h + 1) & mask;
+            }
+            keys[h] = codes[i];
+            slots[h] = i;
+        }
+        crossRates = buildCrossRates(rates);
+        scaledRates = scaleRates(rates);
+    }
+
+    /**
+     * Derives a table with new rates in the given slots. Only the rows and columns of
+     * those slots are recomputed; the rest of the matrix is copied from the source.
+     */
+    private RateTable(RateTable source, List<Currency> currencies, double[] rates, int[] changed, int changedCount) {
+        this.currencies = currencies;
+        this.codes = source.codes;
+        this.rates = rates;
+        this.keys = source.keys;
+        this.slots = source.slots;
+        this.mask = source.mask;
+        this.minorUnits = source.minorUnits;
+
+        int n = rates.length;
+        crossRates = source.crossRates.clone();
+        scaledRates = source.scaledRates.clone();
+        for (int c = 0; c < changedCount; c++) {
+            int slot = changed[c];
+            int row = slot * n;
+            for (int j = 0; j < n; j++) {
+                crossRates[row + j] = rates[slot] / rates[j];
+                crossRates[j * n + slot] = rates[j] / rates[slot];
+            }
+            scaledRates[slot] = scaleRate(rates[slot]);
+        }
+    }
+
+    private static long[] scaleRates(double[] rates) {
+        long[] scaled = new long[rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            scaled[i] = scaleRate(rates[i]);
+        }
+        return scaled;
+    }
+
+    private static long scaleRate(double rate) {
+        try {
+            return FixedPoint.scaleRate(rate);
+        } catch (ArithmeticException e) {
+            return 0; // Unusable rate; exact conversions reject it like a non-positive one
+        }
+    }
+
+    private static double[] buildCrossRates(double[] rates) {
+        int n = rates.length;
+        double[] cross = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                cross[row + j] = rates[i] / rates[j];
+            }
+        }
+        return cross;
+    }
+
+    private static int hash(String code) {
+        int h = code.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns a copy of this table with the rate and version in the given slot replaced.
+     * The currency in that slot is replaced by a new object that keeps the update time
+     * and change id of the old one, until a refresh brings those of the write; the
+     * currencies held by this table are left untouched. Only the cross rates from and
+     * to that slot are recomputed, so a tick costs O(N) divisions, not O(N^2).
+     */
+    public RateTable withRate(int slot, double rateToUSD, long version) {
+        double[] newRates = rates.clone();
+        newRates[slot] = rateToUSD;
+
+        Currency old = currencies.get(slot);
+        List<Currency> newCurrencies = new ArrayList<>(currencies);
+        Currency updated = new Currency(old.getAbbreviation(), old.getName(), rateToUSD);
+        updated.setVersion(version);
+        updated.setUpdatedAt(old.getUpdatedAt());
+        updated.setChangeId(old.getChangeId());
+        newCurrencies.set(slot, updated);
+
+        return new RateTable(this, Collections.unmodifiableList(newCurrencies), newRates, new int[]{slot}, 1);
+    }
+
+    /**
+     * Returns a table with the given currencies applied: known codes take the new
+     * rate and name, unknown codes are added and the currencies re-sorted by
+     * abbreviation. A currency with an older version than the one in this table is
+     * skipped, so a stale read (e.g. from a lagging replica) never rolls a rate back.
+     * One with the same rate, name and version but another change id replaces the
+     * held one, which brings the update time and change id of a write published
+     * through {@link #withRate}.
+     * Returns this table if nothing differs, so applying the same changes again
+     * publishes nothing.
+     */
+    public RateTable withChanges(List<Currency> changed) {
+        double[] newRates = null;
+        List<Currency> newCurrencies = null;
+        List<Currency> added = null;
+        int[] changedSlots = new int[Math.min(changed.size(), codes.length)];
+        int changedCount = 0;
+        for (Currency currency : changed) {
+            int slot = indexOf(currency.getAbbreviation());
+            if (slot < 0) {
+                if (added == null) {
+                    added = new ArrayList<>();
+                }
+                added.add(currency);
+                continue;
+            }
+            Currency old = currencies.get(slot);
+            if (currency.getVersion() < old.getVersion()) {
+                continue;
+            }
+            if (old.getRateToUSD() == currency.getRateToUSD() && Objects.equals(old.getName(), currency.getName())
+                    && old.getVersion() == currency.getVersion() && old.getChangeId() == currency.getChangeId()) {
+                continue;
+            }
+            if (newRates == null) {
+                newRates = rates.clone();
+                newCurrencies = new ArrayList<>(currencies);
+            }
+            if (newCurrencies.get(slot) == old) {
+                changedSlots[changedCount++] = slot;
+            }
+            newRates[slot] = currency.getRateToUSD();
+            newCurrencies.set(slot, currency);
+        }
+
+        if (added != null) {
+            // New codes need new slots; rebuild the index
+            List<Currency> merged = new ArrayList<>(newCurrencies != null ? newCurrencies : currencies);
+            merged.addAll(added);
+            merged.sort(Comparator.comparing(Currency::getAbbreviation));
+            return new RateTable(merged);
+        }
+        if (newRates == null) {
+            return this;
+        }
+        return new RateTable(this, Collections.unmodifiableList(newCurrencies), newRates, changedSlots, changedCount);
+    }
+
+    /**
+     * Returns the slot of the given currency code, or -1 if it is unknown.
+     */
+    public int indexOf(String code) {
+        if (code == null) {
+            return -1;
+        }
+        int h = hash(code) & mask;
+        String key;
+        while ((key = keys[h]) != null) {
+            if (key.equals(code)) {
+                return slots[h];
+            }
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public String codeAt(int slot) {
+        return codes[slot];
+    }
+
+    public double rateAt(int slot) {
+        return rates[slot];
+    }
+
+    /**
+     * Gets the rate to USD of the given slot, scaled by {@link FixedPoint#RATE_SCALE}.
+     */
+    public long scaledRateAt(int slot) {
+        return scaledRates[slot];
+    }
+
+    /**
+     * Gets the number of minor-unit digits of the currency in the given slot.
+     */
+    public int minorUnitsAt(int slot) {
+        return minorUnits[slot];
+    }
+
+    /**
+     * Gets the precomputed rate for converting from one slot to another.
+     */
+    public double crossRate(int fromSlot, int toSlot) {
+        return crossRates[fromSlot * codes.length + toSlot];
+    }
+
+    /**
+     * Gets the currencies of this snapshot, ordered by slot.
+     */
+    public List<Currency> getCurrencies() {
+        return currencies;
+    }
+
+    /**
+     * Gets the exchange rate to USD of the given currency.
+     *
+     * @throws IllegalArgumentException if the currency is unknown
+     */
+    public double getExchangeRate(String code) {
+        return rates[slotOf(code)];
+    }
+
+    /**
+     * Converts an amount between two currencies using the precomputed cross rates.
+     *
+     * @throws IllegalArgumentException if a currency is unknown or the amount is negative
+     */
+    public double convert(String from, String to, double amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        int fromSlot = slotOf(from);
+        int toSlot = slotOf(to);
+        if (rates[fromSlot] <= 0 || rates[toSlot] <= 0) {
+            throw new IllegalArgumentException("Exchange rates must be positive");
+        }
+        return amount * crossRates[fromSlot * codes.length + toSlot];
+    }
+
+    /**
+     * Converts an amount in minor units of one currency (e.g. cents) to minor units
+     * of another with fixed-point arithmetic, rounding once with the given mode.
+     * Does not allocate.
+     *
+     * @throws IllegalArgumentException if a currency is unknown, the amount is negative
+     *                                  or a rate is not positive
+     * @throws ArithmeticException      if the result overflows or {@link RoundingMode#UNNECESSARY}
+     *                                  is given and rounding is needed
+     */
+    public long convertMinor(String from, String to, long amountMinor, RoundingMode mode) {
+        if (amountMinor < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        int fromSlot = slotOf(from);
+        int toSlot = slotOf(to);
+        if (scaledRates[fromSlot] <= 0 || scaledRates[toSlot] <= 0) {
+            throw new IllegalArgumentException("Exchange rates must be positive");
+        }
+        return FixedPoint.convert(amountMinor, scaledRates[fromSlot], minorUnits[fromSlot],
+                scaledRates[toSlot], minorUnits[toSlot], mode);
+    }
+
+    private int slotOf(String code) {
+        int slot = indexOf(code);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Currency not found: " + code);
+        }
+        return slot;
+    }
+}
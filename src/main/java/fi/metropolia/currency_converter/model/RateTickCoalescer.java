@@ -0,0 +1,348 @@
+package fi.metropolia.currency_converter.model;
+
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationMetrics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coalesces high-frequency rate ticks, e.g. from a streaming feed, before they reach
+ * the database.
+ * <p>
+ * {@link #submit(String, double)} publishes the rate in the model at once, so
+ * conversions use it immediately, and parks it in a per-currency slot that only
+ * holds the latest rate: a tick overwrites the one still waiting, without locking.
+ * A flusher thread stores the waiting rates with one
+ * {@link CurrencyModel#updateCurrencyRates(Map)} transaction every flush interval,
+ * or as soon as the given number of currencies is waiting. A currency ticking
+ * hundreds of times a second is then written once per flush.
+ * <p>
+ * Waiting rates are flushed by {@link #close()}, which the owner calls before it
+ * closes the database; the coalescer registers no shutdown hook of its own, since
+ * hooks run concurrently and could not order the two.
+ * Rates of a flush that failed wait for the next one unless a newer tick replaced them.
+ */
+public class RateTickCoalescer implements AutoCloseable {
+    // Slot value of a currency without a waiting rate; rates are positive, so never 0 bits
+    private static final long CLEAN = 0L;
+
+    private static final OperationMetrics TICK = Metrics.operation("RateTickCoalescer.tick");
+    private static final OperationMetrics FLUSH = Metrics.operation("RateTickCoalescer.flush");
+
+    private final CurrencyModel model;
+    private final long flushIntervalNanos;
+    private final int dirtyThreshold;
+    private final Runnable afterFlush;
+    private final Thread flusher;
+
+    // Replaced under the grow lock when a currency is added, read without it
+    private volatile Slots slots = new Slots(new String[0], Map.of());
+    // Separate from the flush lock, so a new currency does not wait for a database write
+    private final Object grow = new Object();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    // Submitters hold the read lock from the running check until their tick is parked, so
+    // close() never starts the final flush between the two
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    /**
+     * Currencies with a slot and the waiting rates, as raw double bits per slot.
+     */
+    private static final class Slots {
+        final String[] codes;
+        final Map<String, Integer> index;
+        final AtomicLongArray pending;
+
+        Slots(String[] codes, Map<String, Integer> index) {
+            this.codes = codes;
+            this.index = index;
+            this.pending = new AtomicLongArray(codes.length);
+        }
+    }
+
+    /**
+     * Creates a coalescer and starts its flusher thread.
+     *
+     * @param model               Model receiving the ticks and storing them
+     * @param flushIntervalMillis Longest time a tick waits before it is stored
+     * @param dirtyThreshold      Number of waiting currencies that triggers an early flush
+     * @param afterFlush          Called on the flusher thread after every successful flush, or null
+     */
+    public RateTickCoalescer(CurrencyModel model, long flushIntervalMillis, int dirtyThreshold, Runnable afterFlush) {
+        if (flushIntervalMillis <= 0 || dirtyThreshold <= 0) {
+            throw new IllegalArgumentException("Flush interval and dirty threshold must be positive");
+        }
+        this.model = model;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.dirtyThreshold = dirtyThreshold;
+        this.afterFlush = afterFlush;
+
+        flusher = new Thread(this::flushLoop, "rate-tick-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Creates a coalescer configured from database.properties
+     * (rate.ticks.flush.interval.ms and rate.ticks.dirty.threshold).
+     */
+    public static RateTickCoalescer fromConfig(CurrencyModel model, Runnable afterFlush) {
+        return new RateTickCoalescer(model,
+                DatabaseConfig.getRateTicksFlushIntervalMs(),
+                DatabaseConfig.getRateTicksDirtyThreshold(),
+                afterFlush);
+    }
+
+    /**
+     * Takes the latest rate of a currency: publishes it in the model at once and
+     * queues it for the next flush, replacing a rate still waiting.
+     *
+     * @throws IllegalArgumentException if the rate is not positive or the currency is unknown
+     * @throws IllegalStateException    if the coalescer has been closed
+     */
+    public void submit(String abbreviation, double rateToUSD) {
+        if (!(rateToUSD > 0) || Double.isInfinite(rateToUSD)) {
+            throw new IllegalArgumentException("Exchange rate must be positive: " + abbreviation);
+        }
+        closing.readLock().lock();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            if (!running) {
+                throw new IllegalStateException("Rate tick coalescer is closed");
+            }
+            model.publishTick(abbreviation, rateToUSD);
+            Slots current = slots;
+            if (!current.index.containsKey(abbreviation)) {
+                current = addSlot(abbreviation);
+            }
+            park(current, abbreviation, Double.doubleToRawLongBits(rateToUSD));
+            follow(current, abbreviation, true);
+            ticks.incrementAndGet();
+            success = true;
+        } finally {
+            closing.readLock().unlock();
+            TICK.record(start, success);
+        }
+    }
+
+    /**
+     * Stores the waiting rates now, on the calling thread.
+     *
+     * @return Number of currencies written
+     */
+    public synchronized int flush() {
+        Slots current = slots;
+        Map<String, Double> batch = new HashMap<>();
+        for (int slot = 0; slot < current.codes.length; slot++) {
+            long bits = current.pending.getAndSet(slot, CLEAN);
+            if (bits != CLEAN) {
+                dirtyCount.decrementAndGet();
+                batch.put(current.codes[slot], Double.longBitsToDouble(bits));
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            model.updateCurrencyRates(batch);
+            written.addAndGet(batch.size());
+            flushes.incrementAndGet();
+            success = true;
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            System.err.println("❌ Storing " + batch.size() + " rate ticks failed, retrying with the next flush: "
+                    + e.getMessage());
+            requeue(batch);
+            return 0;
+        } finally {
+            FLUSH.record(start, success);
+        }
+
+        // The stored rates were published; ticks that arrived meanwhile are newer
+        Slots latest = slots;
+        for (int slot = 0; slot < latest.codes.length; slot++) {
+            long bits = latest.pending.get(slot);
+            if (bits != CLEAN) {
+                model.publishTick(latest.codes[slot], Double.longBitsToDouble(bits));
+            }
+        }
+        if (afterFlush != null) {
+            afterFlush.run();
+        }
+        return batch.size();
+    }
+
+    /**
+     * Stores the waiting rates and stops the flusher thread. Waits for submitters
+     * already parking a tick; later ones are rejected. Every call, also a repeated or
+     * concurrent one, returns only once the final flush has finished.
+     */
+    @Override
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of ticks received.
+     */
+    public long getTickCount() {
+        return ticks.get();
+    }
+
+    /**
+     * Gets the number of rates written to the database; ticks that were replaced before a flush are not.
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of database transactions issued by successful flushes.
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    /**
+     * Gets the number of currencies waiting for the next flush.
+     */
+    public int getPendingCount() {
+        return dirtyCount.get();
+    }
+
+    /**
+     * Sets the waiting rate of a currency, counting the currency if it was not waiting.
+     */
+    private void park(Slots current, String abbreviation, long bits) {
+        if (current.pending.getAndSet(current.index.get(abbreviation), bits) == CLEAN
+                && dirtyCount.incrementAndGet() == dirtyThreshold) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Moves a rate parked in slots that were replaced meanwhile into the current ones,
+     * unless the growing already moved it.
+     *
+     * @param replaceNewer Whether the moved rate replaces one that reached the current slots
+     *                     first; false when the moved rate is older than any tick
+     */
+    private void follow(Slots parked, String abbreviation, boolean replaceNewer) {
+        Slots current = parked;
+        while (slots != current) {
+            long moved = current.pending.getAndSet(current.index.get(abbreviation), CLEAN);
+            current = slots;
+            if (moved == CLEAN) {
+                return;
+            }
+            dirtyCount.decrementAndGet();
+            if (replaceNewer) {
+                park(current, abbreviation, moved);
+            } else if (current.pending.compareAndSet(current.index.get(abbreviation), CLEAN, moved)) {
+                dirtyCount.incrementAndGet();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Slots addSlot(String abbreviation) {
+        synchronized (grow) {
+            Slots current = slots;
+            if (current.index.containsKey(abbreviation)) {
+                return current;
+            }
+            String[] codes = Arrays.copyOf(current.codes, current.codes.length + 1);
+            codes[codes.length - 1] = abbreviation;
+            Map<String, Integer> index = new HashMap<>(current.index);
+            index.put(abbreviation, codes.length - 1);
+            Slots grown = new Slots(codes, index);
+            slots = grown;
+            // Move the waiting rates; a tick that reached the new slots first is newer and wins.
+            // Ticks still landing in the old slots are moved by their submitters.
+            for (int slot = 0; slot < current.codes.length; slot++) {
+                long bits = current.pending.getAndSet(slot, CLEAN);
+                if (bits != CLEAN) {
+                    dirtyCount.decrementAndGet();
+                    if (grown.pending.compareAndSet(slot, CLEAN, bits)) {
+                        dirtyCount.incrementAndGet();
+                    }
+                }
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * Puts the rates of a failed flush back into the current slots, which may have grown
+     * during the flush, unless a newer tick took their slot.
+     */
+    private void requeue(Map<String, Double> batch) {
+        for (Map.Entry<String, Double> rate : batch.entrySet()) {
+            Slots current = slots;
+            int slot = current.index.get(rate.getKey());
+            if (current.pending.compareAndSet(slot, CLEAN, Double.doubleToRawLongBits(rate.getValue()))) {
+                dirtyCount.incrementAndGet();
+                follow(current, rate.getKey(), false);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            // Woken early by submit() once enough currencies are waiting, or by close()
+            while (running && dirtyCount.get() < dirtyThreshold) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            flushQuietly();
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Rate tick flush failed: " + e.getMessage());
+        }
+    }
+}
@@ -2,25 +2,35 @@ package fi.metropolia.currency_converter.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * JPA Entity class representing a currency conversion transaction.
  * Each transaction records a conversion from one currency to another.
  */
 @Entity
-@Table(name = "transaction")
+@Table(name = "transaction", indexes = {
+        // Keyset pagination over the history, newest first
+        @Index(name = "idx_transaction_date_id", columnList = "transaction_date, transaction_id"),
+        // Per-pair daily aggregates
+        @Index(name = "idx_transaction_pair_date", columnList = "source_currency, target_currency, transaction_date"),
+        // Makes journal replay idempotent
+        @Index(name = "idx_transaction_journal_id", columnList = "journal_node, journal_id", unique = true)
+})
 public class Transaction {
 
+    // Pooled sequence allocation (instead of IDENTITY) lets Hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     @Column(name = "transaction_id")
     private Long transactionId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "source_currency", referencedColumnName = "abbreviation", nullable = false)
     private Currency sourceCurrency;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "target_currency", referencedColumnName = "abbreviation", nullable = false)
     private Currency targetCurrency;
 
@@ -33,6 +43,14 @@ public class Transaction {
     @Column(name = "transaction_date", nullable = false)
     private LocalDateTime transactionDate;
 
+    // Journal this transaction was replayed from, null otherwise; its record ids are unique only within it
+    @Column(name = "journal_node")
+    private UUID journalNode;
+
+    // Id of the local journal record this transaction was replayed from, null otherwise
+    @Column(name = "journal_id")
+    private Long journalId;
+
     /**
      * Default constructor (required by JPA).
      */
@@ -101,6 +119,22 @@ public class Transaction {
         this.transactionDate = transactionDate;
     }
 
+    public UUID getJournalNode() {
+        return journalNode;
+    }
+
+    public void setJournalNode(UUID journalNode) {
+        this.journalNode = journalNode;
+    }
+
+    public Long getJournalId() {
+        return journalId;
+    }
+
+    public void setJournalId(Long journalId) {
+        this.journalId = journalId;
+    }
+
     @Override
     public String toString() {
         return String.format("Transaction[id=%d, %.2f %s -> %.2f %s, date=%s]",
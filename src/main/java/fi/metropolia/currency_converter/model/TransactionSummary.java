@@ -0,0 +1,12 @@
+package fi.metropolia.currency_converter.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a transaction row.
+ * Carries currency codes instead of {@link Currency} entities, so reading
+ * history never loads the currency table.
+ */
+public record TransactionSummary(long transactionId, String sourceCurrency, String targetCurrency,
+                                 double sourceAmount, double targetAmount, LocalDateTime transactionDate) {
+}
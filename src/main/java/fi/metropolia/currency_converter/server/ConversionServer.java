@@ -0,0 +1,344 @@
+package fi.metropolia.currency_converter.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.RateConflictException;
+import fi.metropolia.currency_converter.dao.TransactionDAO;
+import fi.metropolia.currency_converter.dao.TransactionSink;
+import fi.metropolia.currency_converter.dao.TransactionWriteBehind;
+import fi.metropolia.currency_converter.datasource.DatabaseConfig;
+import fi.metropolia.currency_converter.journal.ConversionJournal;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencyModel;
+import fi.metropolia.currency_converter.model.RateTable;
+import fi.metropolia.currency_converter.model.RateTickCoalescer;
+import fi.metropolia.currency_converter.model.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless HTTP interface to {@link CurrencyModel}, built on the JDK's HttpServer.
+ * No JavaFX toolkit is started. Endpoints (all responses are JSON):
+ * <ul>
+ *     <li>{@code GET  /convert?from=EUR&to=USD&amount=100} - converts an amount</li>
+ *     <li>{@code GET  /rate?code=EUR} - gets a rate to USD and its version</li>
+ *     <li>{@code PUT  /rate?code=EUR&rate=1.09} - updates a rate (POST is accepted too); with
+ *     {@code &version=3} only if the rate still has that version, otherwise 409 Conflict</li>
+ *     <li>{@code POST /ticks?code=EUR&rate=1.09} - takes a rate tick from a streaming feed;
+ *     used for conversions at once and stored by the next {@link RateTickCoalescer} flush</li>
+ *     <li>{@code POST /transactions?from=EUR&to=USD&amount=100} - converts and records a transaction</li>
+ *     <li>{@code GET  /health} - liveness check</li>
+ * </ul>
+ * Conversions are served from the in-memory rate snapshot; transactions are
+ * recorded through a {@link TransactionWriteBehind} queue, or through the local
+ * {@link ConversionJournal} when journal.enabled is set.
+ */
+public class ConversionServer {
+    private final CurrencyModel model;
+    private final TransactionSink transactions;
+    private final RateTickCoalescer rateTicks;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server listening on the given port. Call {@link #start()} to accept requests.
+     */
+    public ConversionServer(CurrencyModel model, TransactionSink transactions, int port) throws IOException {
+        // Headers and body are written separately; without TCP_NODELAY the body waits for a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.model = model;
+        this.transactions = transactions;
+        this.rateTicks = RateTickCoalescer.fromConfig(model, null);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/convert", handler(this::convert));
+        server.createContext("/rate", handler(this::rate));
+        server.createContext("/ticks", handler(this::rateTick));
+        server.createContext("/transactions", handler(this::recordTransaction));
+        server.createContext("/health", handler(exchange -> respond(exchange, 200, "{\"status\":\"UP\"}")));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given delay for running ones and flushes
+     * queued transactions and rate ticks.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        rateTicks.close();
+        transactions.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the executor running request handlers: one virtual thread per request
+     * when the JVM supports them (Java 21+), otherwise a bounded platform thread pool.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "http-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    private void convert(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = parseQuery(exchange);
+        String from = required(query, "from");
+        String to = required(query, "to");
+        double amount = number(query, "amount");
+
+        double result = finite(model.convert(from, to, amount));
+        respond(exchange, 200, "{\"from\":\"" + from + "\",\"to\":\"" + to
+                + "\",\"amount\":" + amount + ",\"result\":" + result + "}");
+    }
+
+    private void rate(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+        String code = required(query, "code");
+        String method = exchange.getRequestMethod();
+
+        if (method.equals("PUT") || method.equals("POST")) {
+            double rate = number(query, "rate");
+            String version = query.get("version");
+            if (version == null) {
+                model.updateCurrencyRate(code, rate);
+            } else {
+                model.updateCurrencyRate(code, rate, version(version));
+            }
+            respond(exchange, 200, "{\"code\":\"" + code + "\",\"rateToUSD\":" + rate + "}");
+        } else {
+            requireMethod(exchange, "GET");
+            RateTable table = model.getRateTable();
+            int slot = table.indexOf(code);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Currency not found: " + code);
+            }
+            respond(exchange, 200, "{\"code\":\"" + code + "\",\"rateToUSD\":" + table.rateAt(slot)
+                    + ",\"version\":" + table.getCurrencies().get(slot).getVersion() + "}");
+        }
+    }
+
+    private void rateTick(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        Map<String, String> query = parseQuery(exchange);
+        String code = required(query, "code");
+        double rate = number(query, "rate");
+
+        rateTicks.submit(code, rate);
+        respond(exchange, 202, "{\"code\":\"" + code + "\",\"rateToUSD\":" + rate + "}");
+    }
+
+    private void recordTransaction(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        Map<String, String> query = parseQuery(exchange);
+        String from = required(query, "from");
+        String to = required(query, "to");
+        double amount = number(query, "amount");
+
+        RateTable table = model.getRateTable();
+        int fromSlot = table.indexOf(from);
+        int toSlot = table.indexOf(to);
+        if (fromSlot < 0 || toSlot < 0) {
+            throw new IllegalArgumentException("Currency not found: " + (fromSlot < 0 ? from : to));
+        }
+        Currency source = table.getCurrencies().get(fromSlot);
+        Currency target = table.getCurrencies().get(toSlot);
+        // Same rate as /convert, over quotes when there are any
+        double result = finite(model.convert(from, to, amount));
+
+        transactions.submit(new Transaction(source, target, amount, result));
+        respond(exchange, 202, "{\"from\":\"" + from + "\",\"to\":\"" + to
+                + "\",\"amount\":" + amount + ",\"result\":" + result + "}");
+    }
+
+    private static HttpHandler handler(ExchangeHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (MethodNotAllowedException e) {
+                respond(exchange, 405, error(e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+            } catch (RateConflictException e) {
+                respond(exchange, 409, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                respond(exchange, 500, error(e.getMessage()));
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new MethodNotAllowedException(exchange.getRequestMethod() + " not allowed, use " + method);
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static double number(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+        // NaN and Infinity parse, but are no amounts or rates and have no JSON form
+        if (!Double.isFinite(number)) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+        return number;
+    }
+
+    private static double finite(double result) {
+        if (!Double.isFinite(result)) {
+            throw new IllegalArgumentException("Amount out of range");
+        }
+        return result;
+    }
+
+    private static long version(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid version: " + value);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + jsonEscape(message == null ? "" : message) + "\"}";
+    }
+
+    static String jsonEscape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExchangeHandler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static class MethodNotAllowedException extends RuntimeException {
+        MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Starts the server in headless mode. The port is taken from {@code --port=N},
+     * the server.port property or defaults to 8080.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DatabaseConfig.getServerPort();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+
+        CurrencyModel model = new CurrencyModel();
+        TransactionDAO transactionDao = new TransactionDAO(CurrencyDAO.getEntityManagerFactory());
+        TransactionSink transactions = DatabaseConfig.isJournalEnabled()
+                ? ConversionJournal.fromConfig(transactionDao)
+                // Transactions the database rejects twice are kept in the journal and replayed later
+                : TransactionWriteBehind.fromConfig(transactionDao, ConversionJournal.fromConfig(transactionDao));
+        ConversionServer server = new ConversionServer(model, transactions, port);
+
+        // The only shutdown hook: queued transactions are flushed before the database closes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            CurrencyDAO.close();
+        }, "conversion-server-shutdown"));
+
+        server.start();
+        System.out.println("✅ Conversion server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,122 @@
+package fi.metropolia.currency_converter.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop load test for {@link ConversionServer}.
+ * Each client thread sends {@code GET /convert} requests back to back for the
+ * given duration; the test then reports throughput and latency percentiles.
+ * <p>
+ * Usage: {@code LoadTest [baseUrl] [threads] [seconds]}, defaults
+ * {@code http://localhost:8080 64 20}.
+ */
+public class LoadTest {
+    private static final String[] CODES = {"USD", "EUR", "GBP", "JPY", "AUD", "CAD", "CHF", "CNY"};
+    // Latency samples kept per client thread (the most recent ones)
+    private static final int SAMPLES_PER_THREAD = 1 << 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        Result result = run(baseUrl, threads, Duration.ofSeconds(seconds));
+        System.out.println(result);
+    }
+
+    /**
+     * Runs the load test against a running server.
+     */
+    public static Result run(String baseUrl, int threads, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        // Prepare requests up front so the clients measure the server, not URI building
+        HttpRequest[] requests = new HttpRequest[CODES.length * CODES.length];
+        for (int i = 0; i < CODES.length; i++) {
+            for (int j = 0; j < CODES.length; j++) {
+                requests[i * CODES.length + j] = HttpRequest.newBuilder(URI.create(
+                        baseUrl + "/convert?from=" + CODES[i] + "&to=" + CODES[j] + "&amount=" + (100 + i + j)))
+                        .GET().build();
+            }
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[][] latencies = new long[threads][];
+        int[] counts = new int[threads];
+        int[] errors = new int[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            Thread worker = new Thread(() -> {
+                long[] samples = new long[SAMPLES_PER_THREAD];
+                int n = 0;
+                int failed = 0;
+                int next = id;
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(requests[next++ % requests.length],
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            failed++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                    }
+                    samples[n++ & (SAMPLES_PER_THREAD - 1)] = System.nanoTime() - start;
+                }
+                latencies[id] = Arrays.copyOf(samples, Math.min(n, samples.length));
+                counts[id] = n;
+                errors[id] = failed;
+                done.countDown();
+            }, "load-client-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        long total = Arrays.stream(counts).asLongStream().sum();
+        long failed = Arrays.stream(errors).asLongStream().sum();
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(total, failed, elapsed, percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * Outcome of a load test run; latencies are in nanoseconds.
+     */
+    public record Result(long requests, long errors, long elapsedNanos, long p50, long p99, long p999) {
+
+        public double requestsPerSecond() {
+            return requests * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests (%d errors) in %.1f s: %.0f req/s, latency p50=%.3f ms p99=%.3f ms p99.9=%.3f ms",
+                    requests, errors, elapsedNanos / 1e9, requestsPerSecond(), p50 / 1e6, p99 / 1e6, p999 / 1e6);
+        }
+    }
+}
@@ -9,6 +9,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * View for adding new currencies to the database.
  */
@@ -19,6 +22,7 @@ public class AddCurrencyView {
     private TextField nameField;
     private TextField rateField;
     private Label messageLabel;
+    private Button addButton;
 
     public AddCurrencyView(CurrencyController controller) {
         this.controller = controller;
@@ -42,7 +46,7 @@ public class AddCurrencyView {
 
         messageLabel = new Label();
 
-        Button addButton = new Button("Add Currency");
+        addButton = new Button("Add Currency");
         Button cancelButton = new Button("Cancel");
 
         // Set button actions
@@ -90,27 +94,41 @@ public class AddCurrencyView {
                 return;
             }
 
-            if (controller.currencyExists(abbreviation)) {
-                showMessage("Currency " + abbreviation + " already exists.", true);
-                return;
-            }
-
             double rate = Double.parseDouble(rateText);
             if (rate <= 0) {
                 showMessage("Exchange rate must be positive.", true);
                 return;
             }
 
-            // Create and insert new currency
-            Currency newCurrency = new Currency(abbreviation, name, rate);
-            controller.insertCurrency(newCurrency);
-
-            showMessage("✅ Currency " + abbreviation + " added successfully!", false);
-
-            // Clear fields for next entry
-            abbreviationField.clear();
-            nameField.clear();
-            rateField.clear();
+            // Check and insert in the background; the button is disabled meanwhile
+            addButton.setDisable(true);
+            showMessage("⏳ Adding " + abbreviation + "...", false);
+            controller.currencyExistsAsync(abbreviation)
+                    .thenCompose(exists -> {
+                        if (exists) {
+                            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                                    "Currency " + abbreviation + " already exists."));
+                        }
+                        return controller.insertCurrencyAsync(new Currency(abbreviation, name, rate));
+                    })
+                    .whenComplete((result, error) -> {
+                        addButton.setDisable(false);
+                        if (error instanceof CompletionException && error.getCause() != null) {
+                            error = error.getCause();
+                        }
+                        if (error == null) {
+                            showMessage("✅ Currency " + abbreviation + " added successfully!", false);
+
+                            // Clear fields for next entry
+                            abbreviationField.clear();
+                            nameField.clear();
+                            rateField.clear();
+                        } else if (error instanceof IllegalArgumentException) {
+                            showMessage(error.getMessage(), true);
+                        } else {
+                            showMessage("Error adding currency: " + error.getMessage(), true);
+                        }
+                    });
 
         } catch (NumberFormatException ex) {
             showMessage("Please enter a valid numeric rate.", true);
@@ -2,17 +2,29 @@ package fi.metropolia.currency_converter.view;
 
 import fi.metropolia.currency_converter.model.Currency;
 import fi.metropolia.currency_converter.controller.CurrencyController;
+import fi.metropolia.currency_converter.dao.RateConflictException;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * View class for the Currency Converter application.
  * Handles all UI components and user interactions.
+ * Actions that reach the database use the controller's asynchronous methods, so
+ * the UI stays responsive while they run.
  */
 public class CurrencyView {
     private CurrencyController controller;
@@ -22,6 +34,11 @@ public class CurrencyView {
     private TextField newRateField;
     private Label resultLabel;
     private Button addCurrencyButton;
+    private Button updateRateButton;
+    private Stage stage;
+    private GridPane grid;
+    private CompletableFuture<?> pendingRefresh;
+    private CompletableFuture<?> pendingUpdate;
 
     public void setController(CurrencyController controller) {
         this.controller = controller;
@@ -29,6 +46,9 @@ public class CurrencyView {
 
     /**
      * Populates the currency dropdowns with data from the model.
+     * The items are patched in place: unchanged currencies are kept, changed ones
+     * are replaced at their position and only added or removed ones shift the list,
+     * so the selections survive a refresh without being searched for again.
      *
      * @param currencies List of currencies to display
      */
@@ -38,41 +58,65 @@ public class CurrencyView {
             return;
         }
 
-        // Save current selections
-        Currency currentFrom = fromCurrencyBox.getValue();
-        Currency currentTo = toCurrencyBox.getValue();
-
-        // Update items
-        fromCurrencyBox.getItems().setAll(currencies);
-        toCurrencyBox.getItems().setAll(currencies);
-
-        // Restore selections if possible
-        if (currentFrom != null) {
-            // Find matching currency by abbreviation
-            currencies.stream()
-                    .filter(c -> c.getAbbreviation().equals(currentFrom.getAbbreviation()))
-                    .findFirst()
-                    .ifPresent(c -> fromCurrencyBox.getSelectionModel().select(c));
-        } else if (!currencies.isEmpty()) {
+        patchItems(fromCurrencyBox, currencies);
+        patchItems(toCurrencyBox, currencies);
+
+        // Select defaults on the first population
+        if (fromCurrencyBox.getValue() == null && !currencies.isEmpty()) {
             fromCurrencyBox.getSelectionModel().selectFirst();
         }
-
-        if (currentTo != null) {
-            currencies.stream()
-                    .filter(c -> c.getAbbreviation().equals(currentTo.getAbbreviation()))
-                    .findFirst()
-                    .ifPresent(c -> toCurrencyBox.getSelectionModel().select(c));
-        } else if (currencies.size() > 1) {
+        if (toCurrencyBox.getValue() == null && currencies.size() > 1) {
             toCurrencyBox.getSelectionModel().select(1);
         }
     }
 
+    /**
+     * Makes the items of the box equal to the given currencies, which must keep the
+     * relative order of the currencies already shown (the model keeps them sorted).
+     */
+    private static void patchItems(ComboBox<Currency> box, List<Currency> currencies) {
+        ObservableList<Currency> items = box.getItems();
+        if (items.isEmpty()) {
+            items.setAll(currencies);
+            return;
+        }
+
+        Set<String> codes = new HashSet<>();
+        for (Currency currency : currencies) {
+            codes.add(currency.getAbbreviation());
+        }
+        items.removeIf(item -> !codes.contains(item.getAbbreviation()));
+
+        // The remaining items are now a subsequence of the new list
+        for (int i = 0; i < currencies.size(); i++) {
+            Currency currency = currencies.get(i);
+            if (i == items.size() || !items.get(i).getAbbreviation().equals(currency.getAbbreviation())) {
+                items.add(i, currency);
+            } else if (items.get(i).getRateToUSD() != currency.getRateToUSD()
+                    || items.get(i).getVersion() != currency.getVersion()
+                    || !items.get(i).getName().equals(currency.getName())) {
+                boolean selected = box.getValue() != null
+                        && box.getValue().getAbbreviation().equals(currency.getAbbreviation());
+                items.set(i, currency);
+                if (selected) {
+                    // Replacing keeps the selected index; show the new object too
+                    box.setValue(currency);
+                }
+            }
+        }
+        if (items.size() != currencies.size()) {
+            // The order of the shown currencies differed; replace them all
+            items.setAll(currencies);
+        }
+    }
+
     /**
      * Starts the application UI.
      *
      * @param stage The primary stage
      */
     public void start(Stage stage) {
+        this.stage = stage;
         stage.setTitle("💱 Currency Converter (JPA + MVC)");
 
         // Initialize UI components FIRST
@@ -84,21 +128,25 @@ public class CurrencyView {
         addCurrencyButton = new Button("Add New Currency");
 
         Button convertButton = new Button("Convert");
-        Button updateRateButton = new Button("Update Rate");
+        updateRateButton = new Button("Update Rate");
         Button refreshButton = new Button("Refresh Currencies");
+        Button importButton = new Button("Import Rates...");
+        Button diagnosticsButton = new Button("Diagnostics");
 
         // Set button actions
         convertButton.setOnAction(e -> onConvert());
         updateRateButton.setOnAction(e -> onUpdateRate());
         refreshButton.setOnAction(e -> onRefresh());
         addCurrencyButton.setOnAction(e -> onAddCurrency());
+        importButton.setOnAction(e -> onImportRates());
+        diagnosticsButton.setOnAction(e -> controller.showDiagnosticsWindow());
 
         // Set prompt texts
         amountField.setPromptText("Enter amount");
         newRateField.setPromptText("Enter new rate");
 
         // Create layout
-        GridPane grid = new GridPane();
+        grid = new GridPane();
         grid.setPadding(new Insets(15));
         grid.setHgap(10);
         grid.setVgap(10);
@@ -127,6 +175,8 @@ public class CurrencyView {
         grid.add(new Separator(), 0, 9, 3, 1);
         grid.add(new Label("Currency Management:"), 0, 10, 2, 1);
         grid.add(addCurrencyButton, 0, 11);
+        grid.add(importButton, 1, 11);
+        grid.add(diagnosticsButton, 2, 11);
 
         Scene scene = new Scene(grid, 520, 450); // Increased height for new sections
         stage.setScene(scene);
@@ -139,6 +189,31 @@ public class CurrencyView {
         stage.show();
     }
 
+    /**
+     * Shows or clears the loading state: while loading, all inputs and buttons
+     * are disabled and the result label says the application is connecting.
+     */
+    public void setLoading(boolean loading) {
+        if (grid == null) {
+            return;
+        }
+        for (Node node : grid.getChildren()) {
+            if (node instanceof ButtonBase || node instanceof ComboBoxBase || node instanceof TextInputControl) {
+                node.setDisable(loading);
+            }
+        }
+        resultLabel.setText(loading ? "⏳ Connecting to database..." : "Converted amount will appear here");
+    }
+
+    /**
+     * Shows a status message in the result area.
+     */
+    public void showStatus(String message) {
+        if (resultLabel != null) {
+            resultLabel.setText(message);
+        }
+    }
+
     /**
      * Handles the convert button action.
      */
@@ -195,9 +270,28 @@ public class CurrencyView {
             }
 
             double newRate = Double.parseDouble(rateText);
-            controller.updateCurrencyRate(selected.getAbbreviation(), newRate);
-            resultLabel.setText("✅ Updated " + selected.getAbbreviation() + " rate to " + newRate);
+            String abbreviation = selected.getAbbreviation();
+
+            // One update at a time: the next one must be based on the version this one writes
+            if (pendingUpdate != null && !pendingUpdate.isDone()) {
+                return;
+            }
+            resultLabel.setText("⏳ Updating " + abbreviation + " rate...");
             newRateField.clear();
+            // Based on the rate shown; fails if someone else changed it meanwhile
+            CompletableFuture<Void> update =
+                    controller.updateCurrencyRateAsync(abbreviation, newRate, selected.getVersion());
+            pendingUpdate = update;
+            setUpdating(true);
+            // Runs after the controller showed the currencies with their new versions
+            update.whenComplete((result, error) -> {
+                setUpdating(false);
+                if (error == null) {
+                    resultLabel.setText("✅ Updated " + abbreviation + " rate to " + newRate);
+                } else {
+                    showFailure("Update error: ", error);
+                }
+            });
 
         } catch (NumberFormatException ex) {
             showError("Please enter a valid numeric rate.");
@@ -208,16 +302,30 @@ public class CurrencyView {
         }
     }
 
+    /**
+     * Disables the rate update controls while an update is stored.
+     */
+    private void setUpdating(boolean updating) {
+        updateRateButton.setDisable(updating);
+        newRateField.setDisable(updating);
+    }
+
     /**
      * Handles the refresh button action.
      */
     private void onRefresh() {
-        try {
-            controller.refreshCurrencies();
-            resultLabel.setText("✅ Currency list refreshed");
-        } catch (Exception ex) {
-            showError("Refresh error: " + ex.getMessage());
+        // Repeated clicks while a refresh is running join it
+        if (pendingRefresh != null && !pendingRefresh.isDone()) {
+            return;
         }
+        resultLabel.setText("⏳ Refreshing currencies...");
+        pendingRefresh = controller.refreshCurrenciesAsync().whenComplete((currencies, error) -> {
+            if (error == null) {
+                resultLabel.setText("✅ Currency list refreshed");
+            } else {
+                showFailure("Refresh error: ", error);
+            }
+        });
     }
 
     /**
@@ -239,6 +347,32 @@ public class CurrencyView {
         }
     }
 
+    /**
+     * Handles the import rates button action.
+     * Lets the user pick a CSV or ECB XML rate file and imports it.
+     */
+    private void onImportRates() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Rate File");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Rate files (*.csv, *.xml)", "*.csv", "*.xml"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+
+        File file = chooser.showOpenDialog(stage);
+        if (file == null) {
+            return;
+        }
+
+        resultLabel.setText("⏳ Importing " + file.getName() + "...");
+        controller.importRatesAsync(file.toPath()).whenComplete((result, error) -> {
+            if (error == null) {
+                resultLabel.setText("✅ Imported " + result);
+            } else {
+                showFailure("Import error: ", error);
+            }
+        });
+    }
+
     /**
      * Displays an error message in the UI.
      *
@@ -248,6 +382,24 @@ public class CurrencyView {
         resultLabel.setText("⚠️ " + message);
     }
 
+    /**
+     * Displays the failure of an asynchronous action. Validation messages are shown
+     * as they are; cancelled actions were superseded and show nothing.
+     */
+    private void showFailure(String prefix, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof CancellationException) {
+            return;
+        }
+        if (error instanceof IllegalArgumentException || error instanceof RateConflictException) {
+            showError(error.getMessage());
+        } else {
+            showError(prefix + error.getMessage());
+        }
+    }
+
     /**
      * Displays an error message to the user when database is unavailable.
      * Required by assignment point 6.
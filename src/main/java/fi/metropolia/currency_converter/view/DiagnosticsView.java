@@ -0,0 +1,92 @@
+package fi.metropolia.currency_converter.view;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.datasource.PoolStats;
+import fi.metropolia.currency_converter.metrics.Metrics;
+import fi.metropolia.currency_converter.metrics.OperationStats;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.function.Function;
+
+/**
+ * Window showing the operation metrics and connection pool usage.
+ * The figures are refreshed every second while the window is open.
+ */
+public class DiagnosticsView {
+    private final Stage stage;
+    private final TableView<OperationStats> table = new TableView<>();
+    private final Label poolLabel = new Label();
+    private final Timeline refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+    public DiagnosticsView() {
+        this.stage = new Stage();
+        initialize();
+    }
+
+    private void initialize() {
+        stage.setTitle("Diagnostics");
+
+        table.getColumns().add(column("Operation", OperationStats::name, 240));
+        table.getColumns().add(column("Calls", OperationStats::count, 70));
+        table.getColumns().add(column("Errors", OperationStats::errors, 60));
+        table.getColumns().add(column("Mean µs", s -> format(s.meanMicros()), 80));
+        table.getColumns().add(column("p50 µs", s -> format(s.p50Micros()), 80));
+        table.getColumns().add(column("p99 µs", s -> format(s.p99Micros()), 80));
+        table.getColumns().add(column("p99.9 µs", s -> format(s.p999Micros()), 80));
+        table.getColumns().add(column("Max µs", s -> format(s.maxMicros()), 80));
+
+        Button resetButton = new Button("Reset");
+        Button closeButton = new Button("Close");
+        resetButton.setOnAction(e -> {
+            Metrics.resetAll();
+            refresh();
+        });
+        closeButton.setOnAction(e -> stage.close());
+
+        HBox buttons = new HBox(10, resetButton, closeButton);
+        VBox root = new VBox(10, table, poolLabel, buttons);
+        root.setPadding(new Insets(15));
+
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnShown(e -> refresher.play());
+        stage.setOnHidden(e -> refresher.stop());
+
+        stage.setScene(new Scene(root, 820, 420));
+    }
+
+    private static <T> TableColumn<OperationStats, T> column(String title, Function<OperationStats, T> value,
+                                                             double width) {
+        TableColumn<OperationStats, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static String format(double micros) {
+        return String.format("%,.1f", micros);
+    }
+
+    private void refresh() {
+        table.getItems().setAll(Metrics.getStats());
+        PoolStats pool = CurrencyDAO.getPoolStats();
+        poolLabel.setText(pool != null ? "Connection pool: " + pool : "Connection pool: not started");
+    }
+
+    public void show() {
+        refresh();
+        stage.show();
+        stage.toFront();
+    }
+}
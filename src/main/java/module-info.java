@@ -8,6 +8,11 @@ module fi.metropolia.currency_converter {
     requires jakarta.persistence;
     requires org.hibernate.orm.core;
     requires java.sql;
+    requires java.xml;
+    requires java.management;
+    requires java.net.http;
+    requires jdk.httpserver;
+    requires com.zaxxer.hikari;
 
     // Logging
     requires org.slf4j;
@@ -23,4 +28,9 @@ module fi.metropolia.currency_converter {
     exports fi.metropolia.currency_converter.controller;
     exports fi.metropolia.currency_converter.view;
     exports fi.metropolia.currency_converter.dao;
+    exports fi.metropolia.currency_converter.importer;
+    exports fi.metropolia.currency_converter.export;
+    exports fi.metropolia.currency_converter.journal;
+    exports fi.metropolia.currency_converter.metrics;
+    exports fi.metropolia.currency_converter.server;
 }
@@ -14,9 +14,64 @@ DROP TABLE IF EXISTS currency;
 CREATE TABLE currency (
                           abbreviation CHAR(3) PRIMARY KEY,
                           name VARCHAR(50) NOT NULL,
-                          rate_to_usd NUMERIC(10,6) NOT NULL
+                          rate_to_usd NUMERIC(10,6) NOT NULL,
+                          updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                          version BIGINT NOT NULL DEFAULT 0,
+                          change_id BIGINT NOT NULL DEFAULT 0
 );
 
+-- Lets clients fetch only the currencies changed since their last refresh
+CREATE INDEX idx_currency_change_id ON currency (change_id);
+
+-- Single counter row handing out change ids; every currency write increments it last,
+-- holding its row lock until commit, so ids become visible in increasing order
+CREATE TABLE currency_change (
+                                 id INTEGER PRIMARY KEY,
+                                 last_change BIGINT NOT NULL
+);
+INSERT INTO currency_change (id, last_change) VALUES (1, 0);
+
+-- Direct quotes between two currencies: 1 base_currency = rate quote_currency
+CREATE SEQUENCE currency_pair_seq INCREMENT BY 50;
+CREATE TABLE currency_pair (
+                               pair_id BIGINT PRIMARY KEY,
+                               base_currency CHAR(3) NOT NULL,
+                               quote_currency CHAR(3) NOT NULL,
+                               rate DOUBLE PRECISION NOT NULL,
+                               updated_at TIMESTAMP WITH TIME ZONE,
+                               CONSTRAINT uq_currency_pair UNIQUE (base_currency, quote_currency)
+);
+CREATE INDEX idx_currency_pair_updated_at ON currency_pair (updated_at);
+
+-- Conversions; replayed journal records keep their journal node and id, so replay never duplicates them
+CREATE SEQUENCE transaction_seq INCREMENT BY 50;
+CREATE TABLE transaction (
+                             transaction_id BIGINT PRIMARY KEY,
+                             source_currency CHAR(3) NOT NULL REFERENCES currency (abbreviation),
+                             target_currency CHAR(3) NOT NULL REFERENCES currency (abbreviation),
+                             source_amount DOUBLE PRECISION NOT NULL,
+                             target_amount DOUBLE PRECISION NOT NULL,
+                             transaction_date TIMESTAMP(6) NOT NULL,
+                             journal_node UUID,
+                             journal_id BIGINT
+);
+-- Keyset pagination over the history, newest first
+CREATE INDEX idx_transaction_date_id ON transaction (transaction_date, transaction_id);
+-- Per-pair daily aggregates
+CREATE INDEX idx_transaction_pair_date ON transaction (source_currency, target_currency, transaction_date);
+CREATE UNIQUE INDEX idx_transaction_journal_id ON transaction (journal_node, journal_id);
+
+-- Append-only rate history: a rate is valid from valid_from until the next row of the currency.
+-- Rows are inserted with nextval, one id each
+CREATE SEQUENCE rate_history_seq INCREMENT BY 1;
+CREATE TABLE rate_history (
+                              history_id BIGINT PRIMARY KEY,
+                              abbreviation CHAR(3) NOT NULL,
+                              rate_to_usd DOUBLE PRECISION NOT NULL,
+                              valid_from TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_rate_history_currency_time ON rate_history (abbreviation, valid_from);
+
 -- Insert sample currency data (rates as of October 2025, approximate)
 INSERT INTO currency (abbreviation, name, rate_to_usd) VALUES
                                                            ('USD', 'United States Dollar', 1.000000),
@@ -28,6 +83,10 @@ INSERT INTO currency (abbreviation, name, rate_to_usd) VALUES
                                                            ('CHF', 'Swiss Franc', 1.100000),
                                                            ('CNY', 'Chinese Yuan', 0.137000);
 
+-- Every currency starts its history with its initial rate
+INSERT INTO rate_history (history_id, abbreviation, rate_to_usd, valid_from)
+SELECT nextval('rate_history_seq'), abbreviation, rate_to_usd, updated_at FROM currency;
+
 -- Drop user if it exists
 DO
 $$
@@ -45,6 +104,10 @@ CREATE USER appuser WITH PASSWORD 'app_password';
 GRANT CONNECT ON DATABASE currency_db TO appuser;
 GRANT USAGE ON SCHEMA public TO appuser;
 GRANT SELECT, INSERT, UPDATE ON currency TO appuser;
+GRANT SELECT, INSERT, UPDATE ON currency_change TO appuser;
+GRANT SELECT, INSERT, UPDATE ON currency_pair TO appuser;
+GRANT SELECT, INSERT ON transaction TO appuser;
+GRANT SELECT, INSERT ON rate_history TO appuser;
 
--- Allow appuser to see sequences (not strictly needed here)
-GRANT SELECT ON ALL SEQUENCES IN SCHEMA public TO appuser;
+-- Allow appuser to draw ids from the sequences (nextval needs USAGE)
+GRANT USAGE, SELECT ON ALL SEQUENCES IN SCHEMA public TO appuser;
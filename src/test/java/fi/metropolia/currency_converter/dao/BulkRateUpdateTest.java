@@ -0,0 +1,125 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Currency;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk rate updates of both repositories against an in-memory H2 database in
+ * PostgreSQL mode.
+ */
+class BulkRateUpdateTest {
+    private static CurrencyDAO jpa;
+    private static JdbcCurrencyRepository jdbc;
+
+    @BeforeAll
+    static void startDatabase() {
+        System.setProperty("db.url", "jdbc:h2:mem:bulk_rate_update_test;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("db.schema.action", "drop-and-create");
+        System.setProperty("db.show_sql", "false");
+        jpa = new CurrencyDAO();
+        jdbc = new JdbcCurrencyRepository();
+        jpa.insertCurrency(new Currency("USD", "United States Dollar", 1.0));
+        jpa.insertCurrency(new Currency("EUR", "Euro", 1.09));
+        jpa.insertCurrency(new Currency("GBP", "British Pound", 1.27));
+        jpa.insertCurrency(new Currency("JPY", "Japanese Yen", 0.0067));
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        CurrencyDAO.close();
+    }
+
+    @Test
+    void allRatesAreWrittenInOneChange() throws Exception {
+        for (CurrencyRepository repository : List.of(jpa, jdbc)) {
+            Currency eur = jdbc.getCurrency("EUR");
+            Currency gbp = jdbc.getCurrency("GBP");
+            long cursor = jdbc.getAllCurrencies().stream().mapToLong(Currency::getChangeId).max().orElseThrow();
+            int eurHistory = historyRows("EUR");
+            double eurRate = eur.getRateToUSD() + 0.01;
+            double gbpRate = gbp.getRateToUSD() + 0.01;
+
+            jpa.getExchangeRate("EUR"); // Cached copy the update must evict
+            List<Currency> written = repository.updateCurrencyRates(Map.of("GBP", gbpRate, "EUR", eurRate));
+
+            Currency eurAfter = jdbc.getCurrency("EUR");
+            Currency gbpAfter = jdbc.getCurrency("GBP");
+            assertEquals(List.of("EUR", "GBP"), abbreviations(written));
+            for (int i = 0; i < written.size(); i++) {
+                Currency stored = i == 0 ? eurAfter : gbpAfter;
+                assertEquals(stored.getRateToUSD(), written.get(i).getRateToUSD());
+                assertEquals(stored.getVersion(), written.get(i).getVersion());
+                assertEquals(stored.getUpdatedAt(), written.get(i).getUpdatedAt());
+                assertEquals(stored.getChangeId(), written.get(i).getChangeId());
+                assertEquals(stored.getName(), written.get(i).getName());
+            }
+            assertEquals(eurRate, eurAfter.getRateToUSD());
+            assertEquals(gbpRate, gbpAfter.getRateToUSD());
+            assertEquals(eur.getVersion() + 1, eurAfter.getVersion());
+            assertEquals(gbp.getVersion() + 1, gbpAfter.getVersion());
+            assertEquals(eurAfter.getChangeId(), gbpAfter.getChangeId(), "one transaction, one change id");
+            assertEquals(List.of("EUR", "GBP"), abbreviations(jdbc.getCurrenciesChangedSince(cursor)));
+            assertEquals(eurHistory + 1, historyRows("EUR"));
+            assertEquals(eurRate, jpa.getExchangeRate("EUR"));
+        }
+    }
+
+    @Test
+    void unknownCurrencyRollsBackTheWholeUpdate() throws Exception {
+        for (CurrencyRepository repository : List.of(jpa, jdbc)) {
+            Currency jpy = jdbc.getCurrency("JPY");
+            int history = historyRows("JPY");
+
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> repository.updateCurrencyRates(Map.of("JPY", 0.0070, "ZZZ", 1.0)));
+
+            assertTrue(error.getMessage().contains("ZZZ"), error.getMessage());
+            Currency after = jdbc.getCurrency("JPY");
+            assertEquals(jpy.getRateToUSD(), after.getRateToUSD());
+            assertEquals(jpy.getVersion(), after.getVersion());
+            assertEquals(jpy.getChangeId(), after.getChangeId());
+            assertEquals(history, historyRows("JPY"));
+        }
+    }
+
+    @Test
+    void emptyUpdateDoesNothing() {
+        long changeId = jdbc.getCurrency("USD").getChangeId();
+
+        assertEquals(List.of(), jpa.updateCurrencyRates(Map.of()));
+        assertEquals(List.of(), jdbc.updateCurrencyRates(Map.of()));
+
+        assertEquals(changeId, jdbc.getCurrency("USD").getChangeId());
+    }
+
+    private static int historyRows(String abbreviation) throws SQLException {
+        try (Connection connection = CurrencyDAO.getPool().getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM rate_history WHERE abbreviation = ?")) {
+            statement.setString(1, abbreviation);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getInt(1);
+            }
+        }
+    }
+
+    private static List<String> abbreviations(List<Currency> currencies) {
+        return currencies.stream().map(Currency::getAbbreviation).toList();
+    }
+}
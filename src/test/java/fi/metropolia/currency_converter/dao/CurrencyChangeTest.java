@@ -0,0 +1,109 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Currency;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Delta reads by change id against an in-memory H2 database in PostgreSQL mode.
+ */
+class CurrencyChangeTest {
+    private static CurrencyDAO dao;
+    private static JdbcCurrencyRepository jdbc;
+
+    @BeforeAll
+    static void startDatabase() {
+        System.setProperty("db.url", "jdbc:h2:mem:currency_change_test;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("db.schema.action", "drop-and-create");
+        System.setProperty("db.show_sql", "false");
+        dao = new CurrencyDAO();
+        jdbc = new JdbcCurrencyRepository();
+        dao.insertCurrency(new Currency("USD", "United States Dollar", 1.0));
+        dao.insertCurrency(new Currency("EUR", "Euro", 1.09));
+        jdbc.insertCurrency(new Currency("GBP", "British Pound", 1.27));
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        CurrencyDAO.close();
+    }
+
+    @Test
+    void everyWriteGetsAHigherChangeId() {
+        long before = lastChange();
+        dao.updateCurrencyRate("EUR", 1.10);
+        long afterJpa = jdbc.getCurrency("EUR").getChangeId();
+        jdbc.updateCurrencyRate("EUR", 1.11);
+        long afterJdbc = jdbc.getCurrency("EUR").getChangeId();
+
+        assertTrue(afterJpa > before);
+        assertTrue(afterJdbc > afterJpa);
+        assertEquals(List.of(), dao.getCurrenciesChangedSince(afterJdbc));
+        assertEquals(List.of("EUR"), abbreviations(jdbc.getCurrenciesChangedSince(afterJpa)));
+    }
+
+    @Test
+    void deltaFindsWritesStampedWithAnOldClock() throws Exception {
+        long cursor = lastChange();
+        try (Connection connection = CurrencyDAO.getPool().getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            // A writer whose clock is an hour behind
+            CurrencyDAO.batchUpdateRates(connection, new String[]{"GBP"}, Map.of("GBP", 1.30),
+                    OffsetDateTime.now(ZoneOffset.UTC).minusHours(1));
+            connection.commit();
+        }
+
+        List<Currency> changed = dao.getCurrenciesChangedSince(cursor);
+        assertEquals(List.of("GBP"), abbreviations(changed));
+        assertEquals(1.30, changed.get(0).getRateToUSD(), 1e-9);
+        assertEquals(List.of("GBP"), abbreviations(jdbc.getCurrenciesChangedSince(cursor)));
+    }
+
+    @Test
+    void changeIdsFollowCommitOrder() throws Exception {
+        long cursor = lastChange();
+        try (Connection slow = CurrencyDAO.getPool().getDataSource().getConnection()) {
+            slow.setAutoCommit(false);
+            CurrencyDAO.batchUpdateRates(slow, new String[]{"USD"}, Map.of("USD", 1.0),
+                    OffsetDateTime.now(ZoneOffset.UTC));
+
+            // Starts after the slow transaction but cannot take a change id before it commits
+            CompletableFuture<Long> fast = CompletableFuture.supplyAsync(() -> {
+                jdbc.updateCurrencyRate("EUR", 1.12);
+                return jdbc.getCurrency("EUR").getChangeId();
+            });
+            Thread.sleep(200);
+            assertFalse(fast.isDone());
+            assertEquals(List.of(), dao.getCurrenciesChangedSince(cursor));
+
+            slow.commit();
+            long fastChange = fast.get(5, TimeUnit.SECONDS);
+            long slowChange = jdbc.getCurrency("USD").getChangeId();
+            assertTrue(fastChange > slowChange);
+        }
+        assertEquals(List.of("EUR", "USD"), abbreviations(dao.getCurrenciesChangedSince(cursor)));
+    }
+
+    private static long lastChange() {
+        return jdbc.getAllCurrencies().stream().mapToLong(Currency::getChangeId).max().orElseThrow();
+    }
+
+    private static List<String> abbreviations(List<Currency> currencies) {
+        return currencies.stream().map(Currency::getAbbreviation).toList();
+    }
+}
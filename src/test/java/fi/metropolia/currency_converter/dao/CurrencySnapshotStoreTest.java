@@ -0,0 +1,65 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencySnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurrencySnapshotStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void savedCurrenciesKeepTheirVersionAndUpdateTime() {
+        CurrencySnapshotStore store = new CurrencySnapshotStore(dir.resolve("currencies.snapshot"));
+        Currency eur = new Currency("EUR", "Euro", 1.09);
+        eur.setVersion(7);
+        eur.setUpdatedAt(Instant.parse("2026-03-01T12:30:45.123456Z"));
+        Currency usd = new Currency("USD", "United States Dollar", 1.0);
+
+        store.save(List.of(eur, usd));
+        CurrencySnapshot snapshot = store.load();
+
+        assertNotNull(snapshot);
+        Currency loadedEur = snapshot.currencies().get(0);
+        Currency loadedUsd = snapshot.currencies().get(1);
+        assertEquals("EUR", loadedEur.getAbbreviation());
+        assertEquals(1.09, loadedEur.getRateToUSD());
+        assertEquals(7, loadedEur.getVersion());
+        assertEquals(eur.getUpdatedAt(), loadedEur.getUpdatedAt());
+        assertEquals(0, loadedUsd.getVersion());
+        assertNull(loadedUsd.getUpdatedAt());
+    }
+
+    @Test
+    void snapshotsOfTheFirstFormatAreIgnored() throws Exception {
+        Path file = dir.resolve("old.snapshot");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(0x4343534E).putInt(1).putLong(System.currentTimeMillis()).putInt(1);
+        for (String value : List.of("EUR", "Euro")) {
+            buffer.putShort((short) value.length()).put(value.getBytes());
+        }
+        buffer.putDouble(1.09);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        assertNull(new CurrencySnapshotStore(file).load());
+    }
+
+    @Test
+    void missingSnapshotLoadsAsNone() {
+        assertNull(new CurrencySnapshotStore(dir.resolve("none.snapshot")).load());
+    }
+}
@@ -0,0 +1,20 @@
+package fi.metropolia.currency_converter.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseExecutorTest {
+    @Test
+    void shutDownExecutorIsNotRecreated() throws Exception {
+        assertEquals(42, DatabaseExecutor.supply(() -> 42).get());
+
+        DatabaseExecutor.shutdown();
+
+        assertThrows(RejectedExecutionException.class, DatabaseExecutor::get);
+        assertThrows(RejectedExecutionException.class, () -> DatabaseExecutor.supply(() -> 42));
+        assertThrows(RejectedExecutionException.class, () -> DatabaseExecutor.run(() -> { }));
+    }
+}
@@ -0,0 +1,155 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Currency;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Versioned rate updates of the plain JDBC repository against an in-memory H2
+ * database in PostgreSQL mode.
+ */
+class JdbcCurrencyRepositoryTest {
+    private static CurrencyDAO jpa;
+    private static JdbcCurrencyRepository jdbc;
+
+    @BeforeAll
+    static void startDatabase() {
+        System.setProperty("db.url", "jdbc:h2:mem:jdbc_repository_test;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("db.schema.action", "drop-and-create");
+        System.setProperty("db.show_sql", "false");
+        jpa = new CurrencyDAO();
+        jdbc = new JdbcCurrencyRepository();
+        jdbc.insertCurrency(new Currency("USD", "United States Dollar", 1.0));
+        jdbc.insertCurrency(new Currency("EUR", "Euro", 1.09));
+        jdbc.insertCurrency(new Currency("GBP", "British Pound", 1.27));
+        jdbc.insertCurrency(new Currency("CHF", "Swiss Franc", 1.10));
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        CurrencyDAO.close();
+    }
+
+    @Test
+    void updateWithTheCurrentVersionWritesTheRate() throws Exception {
+        Currency before = jdbc.getCurrency("EUR");
+        int history = historyRows("EUR");
+
+        long version = jdbc.updateCurrencyRate("EUR", 1.11, before.getVersion());
+
+        Currency after = jdbc.getCurrency("EUR");
+        assertEquals(before.getVersion() + 1, version);
+        assertEquals(version, after.getVersion());
+        assertEquals(1.11, after.getRateToUSD());
+        assertTrue(after.getChangeId() > before.getChangeId());
+        assertEquals(history + 1, historyRows("EUR"));
+    }
+
+    @Test
+    void updateWithAnOldVersionConflictsAndWritesNothing() throws Exception {
+        long read = jdbc.getCurrency("GBP").getVersion();
+        long current = jdbc.updateCurrencyRate("GBP", 1.28); // Someone else writes first
+        Currency before = jdbc.getCurrency("GBP");
+        int history = historyRows("GBP");
+
+        RateConflictException conflict = assertThrows(RateConflictException.class,
+                () -> jdbc.updateCurrencyRate("GBP", 1.30, read));
+
+        assertEquals("GBP", conflict.getAbbreviation());
+        assertEquals(read, conflict.getExpectedVersion());
+        assertEquals(current, conflict.getCurrentVersion());
+        assertEquals(1.28, conflict.getCurrentRate());
+        Currency after = jdbc.getCurrency("GBP");
+        assertEquals(1.28, after.getRateToUSD());
+        assertEquals(current, after.getVersion());
+        assertEquals(before.getChangeId(), after.getChangeId());
+        assertEquals(history, historyRows("GBP"));
+    }
+
+    @Test
+    void concurrentUpdatesOfOneVersionLetExactlyOneWin() throws Exception {
+        long read = jdbc.getCurrency("CHF").getVersion();
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                double rate = 1.20 + i / 100.0;
+                Callable<Long> update = () -> {
+                    start.await();
+                    return jdbc.updateCurrencyRate("CHF", rate, read);
+                };
+                results.add(executor.submit(update));
+            }
+            start.countDown();
+
+            int won = 0;
+            for (Future<Long> result : results) {
+                try {
+                    assertEquals(read + 1, result.get());
+                    won++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(RateConflictException.class, e.getCause());
+                }
+            }
+            assertEquals(1, won);
+            assertEquals(read + 1, jdbc.getCurrency("CHF").getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateOfAMissingCurrencyIsNotAConflict() {
+        RuntimeException missing = assertThrows(RuntimeException.class,
+                () -> jdbc.updateCurrencyRate("ABC", 1.0, 0));
+
+        assertFalse(missing instanceof RateConflictException);
+        assertThrows(IllegalArgumentException.class, () -> jdbc.updateCurrencyRate("EUR", 1.0, -1));
+    }
+
+    @Test
+    void writesEvictTheJpaCopy() {
+        jpa.getExchangeRate("USD"); // Caches USD in the second-level cache
+        long version = jdbc.getCurrency("USD").getVersion();
+
+        jdbc.updateCurrencyRate("USD", 1.01, version);
+
+        assertEquals(1.01, jpa.getExchangeRate("USD"));
+        assertThrows(RateConflictException.class, () -> jdbc.updateCurrencyRate("USD", 1.02, version));
+        assertEquals(1.01, jpa.getExchangeRate("USD"));
+    }
+
+    private static int historyRows(String abbreviation) throws SQLException {
+        try (Connection connection = CurrencyDAO.getPool().getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM rate_history WHERE abbreviation = ?")) {
+            statement.setString(1, abbreviation);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getInt(1);
+            }
+        }
+    }
+}
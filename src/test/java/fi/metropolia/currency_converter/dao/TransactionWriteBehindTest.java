@@ -0,0 +1,172 @@
+package fi.metropolia.currency_converter.dao;
+
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionWriteBehindTest {
+    private static final Currency EUR = new Currency("EUR", "Euro", 1.09);
+    private static final Currency USD = new Currency("USD", "United States Dollar", 1.0);
+    // Long enough that only a full batch or close() writes anything
+    private static final long NEVER_MS = 60_000;
+
+    /**
+     * DAO that records stored transactions instead of writing them; batches containing
+     * a poisoned amount fail, and so does storing that transaction alone.
+     */
+    private static final class RecordingDAO extends TransactionDAO {
+        final List<List<Transaction>> batches = new CopyOnWriteArrayList<>();
+        final List<Transaction> singles = new CopyOnWriteArrayList<>();
+        volatile double poison = Double.NaN;
+
+        RecordingDAO() {
+            super(null);
+        }
+
+        @Override
+        public void saveTransactions(List<Transaction> transactions) {
+            if (transactions.stream().anyMatch(t -> t.getSourceAmount() == poison)) {
+                throw new RuntimeException("Batch rejected");
+            }
+            batches.add(List.copyOf(transactions));
+        }
+
+        @Override
+        public void saveTransaction(Transaction transaction) {
+            if (transaction.getSourceAmount() == poison) {
+                throw new RuntimeException("Transaction rejected");
+            }
+            singles.add(transaction);
+        }
+
+        int stored() {
+            return batches.stream().mapToInt(List::size).sum() + singles.size();
+        }
+    }
+
+    private static final class RecordingSink implements TransactionSink {
+        final List<Transaction> received = new CopyOnWriteArrayList<>();
+        volatile boolean closed;
+
+        @Override
+        public void submit(Transaction transaction) {
+            received.add(transaction);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static Transaction transaction(double amount) {
+        return new Transaction(EUR, USD, amount, amount * 1.09);
+    }
+
+    @Test
+    void closeStoresEveryQueuedTransaction() {
+        RecordingDAO dao = new RecordingDAO();
+        TransactionWriteBehind writeBehind = new TransactionWriteBehind(dao, 1_000, 1_000, NEVER_MS, null);
+        for (int i = 0; i < 50; i++) {
+            writeBehind.submit(transaction(i));
+        }
+        writeBehind.close();
+
+        assertEquals(50, dao.stored());
+        assertEquals(50, writeBehind.getPersistedCount());
+        assertEquals(0, writeBehind.getQueueSize());
+        assertThrows(IllegalStateException.class, () -> writeBehind.submit(transaction(1)));
+    }
+
+    @Test
+    void batchesNeverExceedTheMaximumSize() {
+        RecordingDAO dao = new RecordingDAO();
+        TransactionWriteBehind writeBehind = new TransactionWriteBehind(dao, 1_000, 10, NEVER_MS, null);
+        for (int i = 0; i < 35; i++) {
+            writeBehind.submit(transaction(i));
+        }
+        writeBehind.close();
+
+        assertEquals(35, dao.stored());
+        assertTrue(dao.batches.stream().allMatch(batch -> batch.size() <= 10), () -> dao.batches.toString());
+    }
+
+    @Test
+    void failedBatchIsRetriedOneByOneAndRejectedRowsGoToDeadLetters() {
+        RecordingDAO dao = new RecordingDAO();
+        dao.poison = 13;
+        RecordingSink deadLetters = new RecordingSink();
+        TransactionWriteBehind writeBehind = new TransactionWriteBehind(dao, 1_000, 1_000, NEVER_MS, deadLetters);
+        for (int i = 0; i < 20; i++) {
+            writeBehind.submit(transaction(i));
+        }
+        writeBehind.close();
+
+        assertEquals(19, dao.singles.size());
+        assertEquals(19, writeBehind.getPersistedCount());
+        assertEquals(1, deadLetters.received.size());
+        assertEquals(13, deadLetters.received.get(0).getSourceAmount());
+        assertEquals(1, writeBehind.getDeadLetterCount());
+        assertEquals(0, writeBehind.getFailedCount());
+        assertTrue(deadLetters.closed);
+    }
+
+    @Test
+    void rejectedRowsWithoutDeadLettersAreCountedAsFailed() {
+        RecordingDAO dao = new RecordingDAO();
+        dao.poison = 3;
+        TransactionWriteBehind writeBehind = new TransactionWriteBehind(dao, 1_000, 1_000, 1, null);
+        for (int i = 0; i < 5; i++) {
+            writeBehind.submit(transaction(i));
+        }
+        writeBehind.flush();
+        assertEquals(4, writeBehind.getPersistedCount());
+        assertEquals(1, writeBehind.getFailedCount());
+        writeBehind.close();
+    }
+
+    @Test
+    void everyAcceptedSubmissionIsStoredWhenCloseRacesSubmitters() throws InterruptedException {
+        RecordingDAO dao = new RecordingDAO();
+        // A tiny queue keeps submitters blocked in the enqueue while close() runs
+        TransactionWriteBehind writeBehind = new TransactionWriteBehind(dao, 4, 8, 1, null);
+        AtomicLong accepted = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread submitter = new Thread(() -> {
+                started.countDown();
+                try {
+                    for (int i = 0; i < 100_000; i++) {
+                        writeBehind.submit(transaction(i));
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalStateException closed) {
+                    // Expected once close() has run
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        started.await();
+        Thread.sleep(20);
+        writeBehind.close();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), dao.stored());
+        assertEquals(accepted.get(), writeBehind.getPersistedCount());
+    }
+}
@@ -0,0 +1,180 @@
+package fi.metropolia.currency_converter.datasource;
+
+import fi.metropolia.currency_converter.dao.CurrencyDAO;
+import fi.metropolia.currency_converter.dao.JdbcCurrencyRepository;
+import fi.metropolia.currency_converter.model.Currency;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write splitting with a primary and one read replica, both in-memory H2
+ * databases. The replica is a copy of the primary with its own EUR rate, so every
+ * read shows which database served it; lag is simulated with a {@code replica_lag}
+ * table read by the lag query.
+ */
+class RoutingDataSourceTest {
+    private static final String PRIMARY = url("routing_primary");
+    private static final String REPLICA = url("routing_replica");
+    private static final double PRIMARY_EUR = 1.09;
+    private static final double REPLICA_EUR = 2.01;
+    private static final long MAX_LAG_MS = 300;
+    private static final long CHECK_INTERVAL_MS = 50;
+
+    private static CurrencyDAO dao;
+    private static JdbcCurrencyRepository jdbc;
+    private static RoutingDataSource router;
+
+    @BeforeAll
+    static void startDatabases() throws Exception {
+        System.setProperty("db.url", PRIMARY);
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("db.schema.action", "drop-and-create");
+        System.setProperty("db.show_sql", "false");
+        System.setProperty("db.replica.urls", REPLICA);
+        System.setProperty("db.replica.lag.query", "SELECT lag_ms FROM replica_lag");
+        System.setProperty("db.replica.max.lag.ms", String.valueOf(MAX_LAG_MS));
+        System.setProperty("db.replica.check.interval.ms", String.valueOf(CHECK_INTERVAL_MS));
+
+        dao = new CurrencyDAO();
+        jdbc = new JdbcCurrencyRepository();
+        router = CurrencyDAO.getRoutingDataSource();
+        dao.insertCurrency(new Currency("USD", "United States Dollar", 1.0));
+        dao.insertCurrency(new Currency("EUR", "Euro", PRIMARY_EUR));
+        dao.insertCurrency(new Currency("GBP", "British Pound", 1.27));
+        copyPrimary();
+    }
+
+    @AfterAll
+    static void stopDatabases() {
+        CurrencyDAO.close();
+    }
+
+    @BeforeEach
+    void waitForReplica() throws Exception {
+        awaitReplica(true);
+        Thread.sleep(MAX_LAG_MS + CHECK_INTERVAL_MS); // Past the staleness window of earlier writes
+    }
+
+    @Test
+    void readsGoToTheReplica() {
+        long replicaReads = router.getReplicaReadCount();
+
+        assertEquals(REPLICA_EUR, jdbc.getExchangeRate("EUR"));
+        dao.evictAllCached();
+        assertEquals(REPLICA_EUR, dao.getExchangeRate("EUR"));
+        assertEquals(replicaReads + 2, router.getReplicaReadCount());
+    }
+
+    @Test
+    void writesAndTransactionsStayOnThePrimary() throws Exception {
+        jdbc.updateCurrencyRate("GBP", 1.28);
+        long version = dao.updateCurrencyRate("GBP", 1.29);
+        jdbc.updateCurrencyRate("GBP", 1.30, version);
+
+        assertEquals(1.30, rate(PRIMARY, "GBP"));
+        assertEquals(1.27, rate(REPLICA, "GBP"));
+    }
+
+    @Test
+    void readsAfterAWriteStayOnThePrimary() throws Exception {
+        jdbc.updateCurrencyRate("USD", 1.0);
+        long primaryReads = router.getPrimaryReadCount();
+
+        assertEquals(PRIMARY_EUR, jdbc.getExchangeRate("EUR"));
+        assertEquals(primaryReads + 1, router.getPrimaryReadCount());
+
+        Thread.sleep(MAX_LAG_MS + CHECK_INTERVAL_MS);
+        assertEquals(REPLICA_EUR, jdbc.getExchangeRate("EUR"));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimary() throws Exception {
+        execute(REPLICA, "UPDATE replica_lag SET lag_ms = " + MAX_LAG_MS * 10);
+        try {
+            awaitReplica(false);
+            long fallbacks = router.getFallbackCount();
+
+            assertEquals(PRIMARY_EUR, jdbc.getExchangeRate("EUR"));
+            assertEquals(fallbacks + 1, router.getFallbackCount());
+        } finally {
+            execute(REPLICA, "UPDATE replica_lag SET lag_ms = 0");
+        }
+    }
+
+    @Test
+    void failedReadOnTheReplicaRunsAgainOnThePrimary() throws Exception {
+        // The check only reads replica_lag, so the replica stays usable until the read fails
+        execute(REPLICA, "ALTER TABLE currency RENAME TO currency_moved");
+        try {
+            long fallbacks = router.getFallbackCount();
+
+            assertEquals(PRIMARY_EUR, jdbc.getExchangeRate("EUR"));
+            assertEquals(fallbacks + 1, router.getFallbackCount());
+        } finally {
+            execute(REPLICA, "ALTER TABLE currency_moved RENAME TO currency");
+        }
+    }
+
+    private static void awaitReplica(boolean usable) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (router.getReplicaStatus().get(0).usable() != usable) {
+            assertTrue(System.currentTimeMillis() < deadline, "Replica did not become " + (usable ? "usable" : "unusable"));
+            Thread.sleep(CHECK_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Makes the replica a copy of the primary with its own EUR rate and no lag.
+     */
+    private static void copyPrimary() throws SQLException {
+        try (Connection primary = DriverManager.getConnection(PRIMARY, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+             Statement read = primary.createStatement();
+             Statement write = replica.createStatement();
+             ResultSet script = read.executeQuery("SCRIPT")) {
+            while (script.next()) {
+                String sql = script.getString(1);
+                if (!sql.startsWith("CREATE USER")) {
+                    write.execute(sql);
+                }
+            }
+            write.execute("UPDATE currency SET rate_to_usd = " + REPLICA_EUR + " WHERE abbreviation = 'EUR'");
+            write.execute("CREATE TABLE replica_lag (lag_ms DOUBLE PRECISION)");
+            write.execute("INSERT INTO replica_lag VALUES (0)");
+        }
+    }
+
+    private static double rate(String url, String abbreviation) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT rate_to_usd FROM currency WHERE abbreviation = '" + abbreviation + "'")) {
+            rows.next();
+            return rows.getDouble(1);
+        }
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String url(String databaseName) {
+        return "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
+    }
+}
@@ -0,0 +1,126 @@
+package fi.metropolia.currency_converter.export;
+
+import fi.metropolia.currency_converter.model.TransactionSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarTransactionRoundTripTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void varLongRoundTripsExtremesAndSigns() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+        for (long value : values) {
+            ColumnarFormat.putVarLong(buffer, value);
+        }
+        buffer.flip();
+        for (long value : values) {
+            assertEquals(value, ColumnarFormat.getVarLong(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void smallDeltasTakeOneByte() {
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        ColumnarFormat.putVarLong(buffer, -64);
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    void rowsRoundTripAcrossRowGroups() throws IOException {
+        Random random = new Random(7);
+        List<TransactionSummary> rows = new ArrayList<>();
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 12, 0);
+        long id = 1;
+        for (int i = 0; i < 1_000; i++) {
+            // Ids and times mostly ascend, with jumps backwards to exercise negative deltas
+            id += random.nextInt(10) == 0 ? -random.nextInt(1_000) : 1 + random.nextInt(3);
+            time = time.plusNanos((random.nextInt(2_000_000) - 200_000) * 1_000L);
+            rows.add(new TransactionSummary(id, i % 3 == 0 ? "EUR" : "USD", i % 5 == 0 ? "JPY" : "GBP",
+                    random.nextDouble() * 1e6, -random.nextDouble(), time));
+        }
+        rows.add(new TransactionSummary(Long.MAX_VALUE, "EUR", "USD", Double.MIN_VALUE, Double.MAX_VALUE,
+                LocalDateTime.of(1900, 1, 1, 0, 0)));
+        rows.add(new TransactionSummary(Long.MIN_VALUE, "EUR", "USD", 0.0, -0.0,
+                LocalDateTime.of(2100, 12, 31, 23, 59, 59, 999_999_000)));
+
+        Path file = directory.resolve("export.cctx");
+        try (ColumnarTransactionWriter writer = new ColumnarTransactionWriter(file, 97)) {
+            for (TransactionSummary row : rows) {
+                writer.write(row);
+            }
+        }
+
+        List<TransactionSummary> read = new ArrayList<>();
+        try (ColumnarTransactionReader reader = new ColumnarTransactionReader(file)) {
+            assertEquals(rows.size(), reader.getRowCount());
+            reader.forEach(read::add);
+        }
+        assertEquals(rows, read);
+    }
+
+    @Test
+    void dictionaryOverflowStartsANewRowGroup() throws IOException {
+        Path file = directory.resolve("codes.cctx");
+        int count = 600; // More distinct codes than one row group dictionary holds
+        try (ColumnarTransactionWriter writer = new ColumnarTransactionWriter(file)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(i, code(i), code(i + 1), i, i * 2, i);
+            }
+        }
+
+        List<TransactionSummary> read = new ArrayList<>();
+        try (ColumnarTransactionReader reader = new ColumnarTransactionReader(file)) {
+            reader.forEach(read::add);
+        }
+        assertEquals(count, read.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(code(i), read.get(i).sourceCurrency());
+            assertEquals(code(i + 1), read.get(i).targetCurrency());
+        }
+    }
+
+    @Test
+    void pairScanVisitsOnlyThatPair() throws IOException {
+        Path file = directory.resolve("pairs.cctx");
+        try (ColumnarTransactionWriter writer = new ColumnarTransactionWriter(file, 10)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(i, i % 2 == 0 ? "EUR" : "USD", i % 4 < 2 ? "GBP" : "JPY", i, i, i);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>();
+        try (ColumnarTransactionReader reader = new ColumnarTransactionReader(file)) {
+            long visited = reader.scan("EUR", "JPY", (transactionId, source, target, sourceAmount,
+                                                      targetAmount, epochMicros) -> ids.add(transactionId));
+            assertEquals(25, visited);
+            assertEquals(50, reader.scan("EUR", null, (transactionId, source, target, sourceAmount,
+                                                       targetAmount, epochMicros) -> {
+            }));
+            assertEquals(0, reader.scan("CHF", null, (transactionId, source, target, sourceAmount,
+                                                      targetAmount, epochMicros) -> {
+            }));
+        }
+        for (long id : ids) {
+            assertEquals(2, id % 4);
+        }
+    }
+
+    private static String code(int i) {
+        return "C" + i;
+    }
+}
@@ -0,0 +1,135 @@
+package fi.metropolia.currency_converter.journal;
+
+import fi.metropolia.currency_converter.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConversionJournalTest {
+    private static final int CAPACITY = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversEveryRecordAfterReopen() {
+        appendRecords(40);
+        ConversionJournal journal = new ConversionJournal(directory, CAPACITY);
+        try {
+            assertEquals(40, journal.getPendingCount());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void tornRecordAndEverythingAfterItAreDropped() throws IOException {
+        appendRecords(10);
+        // A torn write: the record at slot 6 only partly reached the file
+        corrupt(segmentFile(), JournalSegment.HEADER_SIZE + 6 * JournalSegment.RECORD_SIZE + 20);
+
+        ConversionJournal journal = new ConversionJournal(directory, CAPACITY);
+        try {
+            assertEquals(6, journal.getPendingCount());
+            // The next record takes the torn slot
+            journal.append("EUR", "USD", 1, 1, 0);
+            assertEquals(7, journal.getPendingCount());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void recoveredRecordsKeepTheirValues() throws IOException {
+        ConversionJournal journal = new ConversionJournal(directory, CAPACITY);
+        long id = journal.append("EUR", "JPY", 12.5, 2040.25, 1_700_000_000_123_456L);
+        journal.close();
+
+        JournalSegment segment = JournalSegment.open(segmentFile(), CAPACITY);
+        try {
+            segment.recover();
+            Transaction transaction = segment.read(0);
+            assertEquals(id, transaction.getJournalId());
+            assertEquals(segment.getNode(), transaction.getJournalNode());
+            assertEquals("EUR", transaction.getSourceCurrency().getAbbreviation());
+            assertEquals("JPY", transaction.getTargetCurrency().getAbbreviation());
+            assertEquals(12.5, transaction.getSourceAmount());
+            assertEquals(2040.25, transaction.getTargetAmount());
+            assertEquals(123_456_000, transaction.getTransactionDate().getNano());
+        } finally {
+            segment.close();
+        }
+    }
+
+    @Test
+    void wipedJournalTakesANewNode() throws IOException {
+        appendRecords(3);
+        UUID first = nodeOf(segmentFile());
+        appendRecords(3);
+        assertEquals(first, nodeOf(segmentFile()), "a reopened journal continues its node");
+
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        appendRecords(3);
+        assertNotEquals(first, nodeOf(segmentFile()));
+    }
+
+    @Test
+    void secondJournalOnTheSameDirectoryIsRefused() {
+        ConversionJournal journal = new ConversionJournal(directory, CAPACITY);
+        try {
+            assertThrows(IllegalStateException.class, () -> new ConversionJournal(directory, CAPACITY));
+        } finally {
+            journal.close();
+        }
+        new ConversionJournal(directory, CAPACITY).close();
+    }
+
+    private void appendRecords(int count) {
+        ConversionJournal journal = new ConversionJournal(directory, CAPACITY);
+        try {
+            for (int i = 0; i < count; i++) {
+                journal.append("EUR", "USD", i, i * 1.1, i);
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    private Path segmentFile() {
+        return directory.resolve("segment-0.log");
+    }
+
+    private static UUID nodeOf(Path file) throws IOException {
+        JournalSegment segment = JournalSegment.open(file, CAPACITY);
+        try {
+            segment.recover();
+            return segment.getNode();
+        } finally {
+            segment.close();
+        }
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer single = ByteBuffer.allocate(1);
+            channel.read(single, position);
+            single.put(0, (byte) (single.get(0) ^ 0x5A)).rewind();
+            channel.write(single, position);
+        }
+    }
+}
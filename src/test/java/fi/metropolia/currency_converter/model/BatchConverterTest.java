@@ -0,0 +1,153 @@
+package fi.metropolia.currency_converter.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchConverterTest {
+    // Large enough for the fork-join path to split more than once
+    private static final int PARALLEL_SIZE = BatchConverter.PARALLEL_THRESHOLD * 3 + 7;
+
+    private final RateTable table = new RateTable(List.of(
+            new Currency("EUR", "Euro", 1.09),
+            new Currency("GBP", "British Pound", 1.27),
+            new Currency("USD", "United States Dollar", 1.0),
+            new Currency("XXX", "No rate", 0.0)));
+
+    private static double[] amounts(int n) {
+        double[] amounts = new double[n];
+        for (int i = 0; i < n; i++) {
+            amounts[i] = i * 0.25;
+        }
+        return amounts;
+    }
+
+    @Test
+    void parallelConversionMatchesSequential() {
+        double[] amounts = amounts(PARALLEL_SIZE);
+        double[] parallel = new double[PARALLEL_SIZE];
+        BatchConverter.convert(table, amounts, 0, PARALLEL_SIZE, "EUR", "GBP", parallel, 0);
+
+        double[] sequential = new double[PARALLEL_SIZE];
+        for (int start = 0; start < PARALLEL_SIZE; start += 1000) {
+            int length = Math.min(1000, PARALLEL_SIZE - start);
+            BatchConverter.convert(table, amounts, start, length, "EUR", "GBP", sequential, start);
+        }
+        assertArrayEquals(sequential, parallel);
+        assertEquals(table.convert("EUR", "GBP", amounts[PARALLEL_SIZE - 1]), parallel[PARALLEL_SIZE - 1], 1e-9);
+    }
+
+    @Test
+    void parallelMixedConversionMatchesSequential() {
+        double[] amounts = amounts(PARALLEL_SIZE);
+        String[] codes = {"EUR", "GBP", "USD"};
+        String[] from = new String[PARALLEL_SIZE];
+        String[] to = new String[PARALLEL_SIZE];
+        for (int i = 0; i < PARALLEL_SIZE; i++) {
+            from[i] = codes[i % 3];
+            to[i] = codes[(i / 3) % 3];
+        }
+        double[] out = new double[PARALLEL_SIZE];
+        BatchConverter.convert(table, amounts, from, to, out);
+
+        for (int i = 0; i < PARALLEL_SIZE; i += 997) {
+            assertEquals(table.convert(from[i], to[i], amounts[i]), out[i], 1e-9);
+        }
+    }
+
+    @Test
+    void convertsIntoAnOffsetOfTheOutput() {
+        double[] out = new double[6];
+        BatchConverter.convert(table, new double[]{0, 1, 2, 3}, 1, 2, "USD", "EUR", out, 3);
+
+        assertArrayEquals(new double[]{0, 0, 0, 1 / 1.09, 2 / 1.09, 0}, out, 1e-12);
+    }
+
+    @Test
+    void buffersAdvanceByTheConvertedAmounts() {
+        DoubleBuffer amounts = DoubleBuffer.wrap(new double[]{1, 2, 3});
+        DoubleBuffer out = DoubleBuffer.allocate(4);
+        amounts.position(1);
+        BatchConverter.convert(table, amounts, "GBP", "USD", out);
+
+        assertEquals(3, amounts.position());
+        assertEquals(2, out.position());
+        assertEquals(2 * 1.27, out.get(0), 1e-12);
+        assertEquals(3 * 1.27, out.get(1), 1e-12);
+    }
+
+    @Test
+    void rangesOutsideTheArraysAreRejected() {
+        double[] amounts = new double[4];
+        double[] out = new double[4];
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, -1, 2, "EUR", "USD", out, 0));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, 3, 2, "EUR", "USD", out, 0));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, 0, 4, "EUR", "USD", out, 1));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, 0, 4, "EUR", "USD", new double[3], 0));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, new String[4], new String[4], new double[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, amounts, new String[4], new String[3], out));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, DoubleBuffer.allocate(4), "EUR", "USD", DoubleBuffer.allocate(3)));
+    }
+
+    @Test
+    void rangesWhoseEndOverflowsAreRejected() {
+        double[] amounts = new double[4];
+        double[] out = new double[4];
+
+        // offset + length wraps around to a negative end
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, Integer.MAX_VALUE - 1, 4, "EUR", "USD", out, 0));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> BatchConverter.convert(table, amounts, 0, 2, "EUR", "USD", out, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void negativeAmountsAreRejectedOnBothPaths() {
+        double[] small = {1, -1};
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, small, 0, 2, "EUR", "USD", new double[2], 0));
+
+        double[] large = amounts(PARALLEL_SIZE);
+        large[PARALLEL_SIZE - 2] = -1;
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, large, 0, PARALLEL_SIZE, "EUR", "USD", new double[PARALLEL_SIZE], 0));
+    }
+
+    @Test
+    void unknownCurrenciesAndMissingRatesAreRejected() {
+        double[] amounts = {1, 2};
+        double[] out = new double[2];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, amounts, 0, 2, "EUR", "ABC", out, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, amounts, 0, 2, "XXX", "USD", out, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchConverter.convert(table, amounts, new String[]{"EUR", "USD"}, new String[]{"USD", "XXX"}, out));
+    }
+
+    @Test
+    void nonPositiveRatesFromOtherSourcesAreRejected() {
+        // A rate source with a bad quote for one pair, as the quote graph could have
+        BatchConverter.PairRates rates = (from, to) -> from.equals("GBP") ? 0.0 : 2.0;
+        double[] out = new double[3];
+
+        assertThrows(IllegalArgumentException.class, () -> BatchConverter.convert(rates, new double[]{1, 1, 1},
+                new String[]{"EUR", "GBP", "EUR"}, new String[]{"USD", "USD", "USD"}, out));
+        BatchConverter.convert(rates, new double[]{1, 2, 3}, new String[]{"EUR", "USD", "EUR"},
+                new String[]{"USD", "EUR", "USD"}, out);
+        assertEquals("[2.0, 4.0, 6.0]", Arrays.toString(out));
+    }
+}
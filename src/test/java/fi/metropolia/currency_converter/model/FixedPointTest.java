@@ -0,0 +1,159 @@
+package fi.metropolia.currency_converter.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+    private static final RoundingMode[] ROUNDING_MODES = {
+            RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+            RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN
+    };
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    @Test
+    void multiplyDivideMatchesBigDecimalForRandomOperands() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            long multiplier = random.nextLong() >>> (1 + random.nextInt(63));
+            long divisor = Math.max(1, random.nextLong() >>> (1 + random.nextInt(63)));
+            for (RoundingMode mode : ROUNDING_MODES) {
+                assertMatchesBigDecimal(value, multiplier, divisor, mode);
+            }
+        }
+    }
+
+    @Test
+    void multiplyDivideRoundsTiesByMode() {
+        long[] values = {5, 15, 25, -5, -15, -25, 7, -7};
+        for (long value : values) {
+            for (RoundingMode mode : ROUNDING_MODES) {
+                assertMatchesBigDecimal(value, 1, 10, mode);
+                assertMatchesBigDecimal(value, 3, 20, mode);
+            }
+        }
+    }
+
+    @Test
+    void multiplyDivideKeepsTheFull128BitProduct() {
+        assertEquals(Long.MAX_VALUE,
+                FixedPoint.multiplyDivide(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, RoundingMode.UNNECESSARY));
+        assertMatchesBigDecimal(Long.MAX_VALUE, 1_000_000_007L, 1_000_000_009L, RoundingMode.HALF_EVEN);
+        assertMatchesBigDecimal(Long.MIN_VALUE + 1, Long.MAX_VALUE, Long.MAX_VALUE - 1, RoundingMode.FLOOR);
+    }
+
+    @Test
+    void multiplyDivideHandlesLongMinValue() {
+        assertEquals(Long.MIN_VALUE, FixedPoint.multiplyDivide(Long.MIN_VALUE, 1, 1, RoundingMode.UNNECESSARY));
+        assertEquals(Long.MIN_VALUE / 2, FixedPoint.multiplyDivide(Long.MIN_VALUE, 1, 2, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void multiplyDivideRejectsOverflow() {
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiplyDivide(Long.MAX_VALUE, 2, 1, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.multiplyDivide(Long.MIN_VALUE, 2, 1, RoundingMode.HALF_EVEN));
+        // Fits before rounding, overflows when rounded away from zero
+        long third = 6_148_914_691_236_517_205L; // (2^64 - 1) / 3, so third * 3 / 2 = Long.MAX_VALUE + 0.5
+        assertEquals(Long.MAX_VALUE, FixedPoint.multiplyDivide(third, 3, 2, RoundingMode.DOWN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiplyDivide(third, 3, 2, RoundingMode.UP));
+        assertEquals(-Long.MAX_VALUE, FixedPoint.multiplyDivide(-third, 3, 2, RoundingMode.DOWN));
+        assertEquals(Long.MIN_VALUE, FixedPoint.multiplyDivide(-third, 3, 2, RoundingMode.UP));
+    }
+
+    @Test
+    void multiplyDivideRejectsInvalidOperands() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiplyDivide(1, -1, 1, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiplyDivide(1, 1, 0, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiplyDivide(1, 1, 3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void convertMatchesBigDecimal() {
+        long eur = FixedPoint.scaleRate(1.09);
+        long jpy = FixedPoint.scaleRate(0.0067);
+        long kwd = FixedPoint.scaleRate(3.25);
+        assertConvert(12_345, eur, 2, jpy, 0);
+        assertConvert(1_000_000, jpy, 0, eur, 2);
+        assertConvert(-987_654_321, kwd, 3, eur, 2);
+        assertConvert(1, jpy, 0, kwd, 3);
+    }
+
+    @Test
+    void convertRejectsNonPositiveRates() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convert(1, 0, 2, 1, 2, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convert(1, 1, 2, -1, 2, RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    void convertAtRateRoundsOnce() {
+        assertEquals(14_814, FixedPoint.convertAtRate(12_345, 1.2, 2, 2, RoundingMode.HALF_EVEN));
+        assertEquals(-14_814, FixedPoint.convertAtRate(-12_345, 1.2, 2, 2, RoundingMode.HALF_EVEN));
+        // 1 yen at 0.0061349 EUR is 0.61349 cents
+        assertEquals(1, FixedPoint.convertAtRate(1, 0.0061349, 0, 2, RoundingMode.HALF_EVEN));
+        assertEquals(0, FixedPoint.convertAtRate(1, 0.0061349, 0, 2, RoundingMode.DOWN));
+        // 1.50 EUR at 163 yen per euro is a tie: 244.5 yen
+        assertEquals(244, FixedPoint.convertAtRate(150, 163.0, 2, 0, RoundingMode.HALF_EVEN));
+        assertEquals(245, FixedPoint.convertAtRate(150, 163.0, 2, 0, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void convertAtRateKeepsLargeRates() {
+        // Fewer decimals fit for a large rate, but the integer part stays exact
+        assertEquals(123_456_789_012L * 100, FixedPoint.convertAtRate(100, 123_456_789_012.0, 2, 2,
+                RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void convertAtRateRejectsInvalidRates() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convertAtRate(1, 0, 2, 2, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convertAtRate(1, -1.5, 2, 2, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.convertAtRate(1, Double.NaN, 2, 2, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class,
+                () -> FixedPoint.convertAtRate(1, Double.POSITIVE_INFINITY, 2, 2, RoundingMode.HALF_EVEN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convertAtRate(1, 1e30, 2, 2, RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    void scaleRateRoundsHalfEvenAndRejectsOutOfRange() {
+        assertEquals(1_090_000, FixedPoint.scaleRate(1.09));
+        assertEquals(2, FixedPoint.scaleRate(0.0000025));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.scaleRate(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.scaleRate(1e13));
+    }
+
+    private static void assertConvert(long amount, long fromRate, int fromUnits, long toRate, int toUnits) {
+        for (RoundingMode mode : ROUNDING_MODES) {
+            BigDecimal expected = BigDecimal.valueOf(amount)
+                    .multiply(BigDecimal.valueOf(fromRate).scaleByPowerOfTen(toUnits))
+                    .divide(BigDecimal.valueOf(toRate).scaleByPowerOfTen(fromUnits), 0, mode);
+            assertEquals(expected.longValueExact(),
+                    FixedPoint.convert(amount, fromRate, fromUnits, toRate, toUnits, mode),
+                    () -> amount + " " + mode);
+        }
+    }
+
+    private static void assertMatchesBigDecimal(long value, long multiplier, long divisor, RoundingMode mode) {
+        BigInteger expected = new BigDecimal(BigInteger.valueOf(value).multiply(BigInteger.valueOf(multiplier)))
+                .divide(BigDecimal.valueOf(divisor), 0, mode)
+                .toBigIntegerExact();
+        String operands = value + " * " + multiplier + " / " + divisor + " " + mode;
+        if (expected.compareTo(LONG_MIN) < 0 || expected.compareTo(LONG_MAX) > 0) {
+            assertThrows(ArithmeticException.class,
+                    () -> FixedPoint.multiplyDivide(value, multiplier, divisor, mode), operands);
+        } else {
+            assertEquals(expected.longValueExact(), FixedPoint.multiplyDivide(value, multiplier, divisor, mode),
+                    operands);
+        }
+    }
+}
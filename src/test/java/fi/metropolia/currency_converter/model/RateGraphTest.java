@@ -0,0 +1,113 @@
+package fi.metropolia.currency_converter.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateGraphTest {
+    private static final double DELTA = 1e-12;
+
+    private final RateTable table = new RateTable(List.of(
+            new Currency("USD", "United States Dollar", 1.0),
+            new Currency("EUR", "Euro", 1.09),
+            new Currency("GBP", "British Pound", 1.27),
+            new Currency("JPY", "Japanese Yen", 0.0067),
+            new Currency("CHF", "Swiss Franc", 1.1)));
+
+    @Test
+    void withoutQuotesRatesGoThroughUsd() {
+        RateGraph graph = new RateGraph(3);
+        assertFalse(graph.hasQuotes());
+        assertEquals(table.convert("EUR", "GBP", 1.0), graph.rate(table, "EUR", "GBP"), DELTA);
+        assertFalse(graph.usesQuotes(table, "EUR", "GBP"));
+    }
+
+    @Test
+    void quoteIsUsedInBothDirections() {
+        RateGraph graph = new RateGraph(3);
+        graph.putQuote("EUR", "GBP", 0.85);
+        assertTrue(graph.usesQuotes(table, "EUR", "GBP"));
+        assertEquals(0.85, graph.rate(table, "EUR", "GBP"), DELTA);
+        assertEquals(1 / 0.85, graph.rate(table, "GBP", "EUR"), DELTA);
+        assertFalse(graph.usesQuotes(table, "EUR", "JPY"));
+    }
+
+    @Test
+    void changedQuoteInvalidatesOnlyPathsThroughIt() {
+        RateGraph graph = new RateGraph(3);
+        graph.putQuote("EUR", "GBP", 0.85);
+        graph.putQuote("GBP", "JPY", 190.0);
+        graph.putQuote("USD", "CHF", 0.9);
+        assertEquals(0.85 * 190.0, graph.rate(table, "EUR", "JPY"), DELTA);
+        assertEquals(0.9, graph.rate(table, "USD", "CHF"), DELTA);
+
+        assertTrue(graph.putQuote("EUR", "GBP", 0.86));
+        assertEquals(0.86, graph.rate(table, "EUR", "GBP"), DELTA);
+        assertEquals(1 / 0.86, graph.rate(table, "GBP", "EUR"), DELTA);
+        assertEquals(0.86 * 190.0, graph.rate(table, "EUR", "JPY"), DELTA);
+        assertEquals(1 / (0.86 * 190.0), graph.rate(table, "JPY", "EUR"), DELTA);
+        assertEquals(0.9, graph.rate(table, "USD", "CHF"), DELTA);
+
+        assertFalse(graph.putQuote("EUR", "GBP", 0.86), "an unchanged quote changes nothing");
+    }
+
+    @Test
+    void repeatedUpdatesKeepEveryDependentPathCurrent() {
+        RateGraph graph = new RateGraph(3);
+        graph.putQuote("EUR", "USD", 1.1);
+        graph.putQuote("USD", "JPY", 150.0);
+        for (int i = 1; i <= 10_000; i++) {
+            double rate = 1.0 + i / 100_000.0;
+            graph.putQuote("EUR", "USD", rate);
+            assertEquals(rate, graph.rate(table, "EUR", "USD"), DELTA);
+            assertEquals(rate * 150.0, graph.rate(table, "EUR", "JPY"), 1e-9);
+            assertEquals(1 / rate, graph.rate(table, "USD", "EUR"), DELTA);
+        }
+    }
+
+    @Test
+    void newQuoteCanShortenCachedPaths() {
+        RateGraph graph = new RateGraph(3);
+        graph.putQuote("EUR", "GBP", 0.85);
+        graph.putQuote("GBP", "JPY", 190.0);
+        assertEquals(0.85 * 190.0, graph.rate(table, "EUR", "JPY"), DELTA);
+
+        graph.putQuote("EUR", "JPY", 160.0);
+        assertEquals(160.0, graph.rate(table, "EUR", "JPY"), DELTA);
+    }
+
+    @Test
+    void pathsLongerThanMaxHopsFallBackToUsd() {
+        RateGraph graph = new RateGraph(1);
+        graph.putQuote("EUR", "GBP", 0.85);
+        graph.putQuote("GBP", "JPY", 190.0);
+        assertEquals(0.85, graph.rate(table, "EUR", "GBP"), DELTA);
+        assertFalse(graph.usesQuotes(table, "EUR", "JPY"));
+        assertEquals(table.convert("EUR", "JPY", 1.0), graph.rate(table, "EUR", "JPY"), DELTA);
+    }
+
+    @Test
+    void currencyWithoutUsdRateNeedsAQuotePath() {
+        RateGraph graph = new RateGraph(3);
+        graph.putQuote("XAU", "GBP", 1900.0);
+        graph.putQuote("EUR", "GBP", 0.85);
+        graph.putQuote("XAG", "XPT", 0.03);
+        assertEquals(1900.0 / 0.85, graph.rate(table, "XAU", "EUR"), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> graph.rate(table, "XAG", "EUR"));
+        assertThrows(IllegalArgumentException.class, () -> graph.rate(table, "EUR", "ZZZ"));
+    }
+
+    @Test
+    void invalidQuotesAreRejected() {
+        RateGraph graph = new RateGraph(3);
+        assertThrows(IllegalArgumentException.class, () -> graph.putQuote("EUR", "GBP", 0));
+        assertThrows(IllegalArgumentException.class, () -> graph.putQuote("EUR", "GBP", Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> graph.putQuote("EUR", "EUR", 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateGraph(0));
+    }
+}
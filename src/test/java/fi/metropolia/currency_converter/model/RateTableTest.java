@@ -0,0 +1,98 @@
+package fi.metropolia.currency_converter.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateTableTest {
+    private static Currency currency(String code, double rate, long version) {
+        Currency currency = new Currency(code, code + " name", rate);
+        currency.setVersion(version);
+        return currency;
+    }
+
+    private final RateTable table = new RateTable(List.of(
+            currency("EUR", 1.09, 3),
+            currency("GBP", 1.27, 5),
+            currency("USD", 1.0, 0)));
+
+    @Test
+    void changesReplaceRatesAndKeepCrossRatesConsistent() {
+        RateTable patched = table.withChanges(List.of(currency("EUR", 1.10, 4)));
+
+        assertEquals(1.10, patched.getExchangeRate("EUR"));
+        assertEquals(4, patched.getCurrencies().get(patched.indexOf("EUR")).getVersion());
+        assertEquals(1.10 / 1.27, patched.crossRate(patched.indexOf("EUR"), patched.indexOf("GBP")));
+        assertEquals(1.09, table.getExchangeRate("EUR"), "the original table is unchanged");
+    }
+
+    @Test
+    void derivedTablesMatchATableBuiltFromScratch() {
+        RateTable derived = table.withRate(table.indexOf("GBP"), 1.30, 6)
+                .withChanges(List.of(currency("EUR", 1.11, 4), currency("USD", 1.0, 0), currency("EUR", 1.12, 5)));
+        RateTable built = new RateTable(derived.getCurrencies());
+
+        for (int from = 0; from < built.size(); from++) {
+            assertEquals(built.scaledRateAt(from), derived.scaledRateAt(from));
+            for (int to = 0; to < built.size(); to++) {
+                assertEquals(built.crossRate(from, to), derived.crossRate(from, to));
+            }
+        }
+        assertEquals(1.12 / 1.30, derived.crossRate(derived.indexOf("EUR"), derived.indexOf("GBP")));
+        assertEquals(1.09 / 1.27, table.crossRate(table.indexOf("EUR"), table.indexOf("GBP")), "the original table is unchanged");
+    }
+
+    @Test
+    void unchangedCurrenciesPublishNothing() {
+        assertSame(table, table.withChanges(List.of(currency("EUR", 1.09, 3), currency("GBP", 1.27, 5))));
+        assertSame(table, table.withChanges(List.of()));
+    }
+
+    @Test
+    void olderVersionsAreSkipped() {
+        // A lagging replica still returns the rate the table has already moved past
+        RateTable patched = table.withChanges(List.of(currency("EUR", 1.05, 2), currency("GBP", 1.30, 6)));
+
+        assertEquals(1.09, patched.getExchangeRate("EUR"));
+        assertEquals(3, patched.getCurrencies().get(patched.indexOf("EUR")).getVersion());
+        assertEquals(1.30, patched.getExchangeRate("GBP"));
+        assertSame(table, table.withChanges(List.of(currency("EUR", 1.05, 2))));
+    }
+
+    @Test
+    void newCurrenciesAreAddedInAbbreviationOrder() {
+        RateTable patched = table.withChanges(List.of(currency("CHF", 1.1, 0), currency("EUR", 1.11, 4)));
+
+        assertEquals(List.of("CHF", "EUR", "GBP", "USD"),
+                patched.getCurrencies().stream().map(Currency::getAbbreviation).toList());
+        assertEquals(1.1, patched.getExchangeRate("CHF"));
+        assertEquals(1.11, patched.getExchangeRate("EUR"));
+        assertEquals(1.1 / 1.11, patched.convert("CHF", "EUR", 1.0), 1e-15);
+    }
+
+    @Test
+    void updatedRateKeepsTheUpdateTimeAndChangeIdUntilARefreshBringsNewOnes() {
+        Currency eur = currency("EUR", 1.09, 3);
+        eur.setUpdatedAt(Instant.parse("2026-01-01T00:00:00Z"));
+        eur.setChangeId(7);
+        RateTable source = new RateTable(List.of(eur, currency("USD", 1.0, 0)));
+
+        RateTable updated = source.withRate(source.indexOf("EUR"), 1.10, 4);
+        Currency published = updated.getCurrencies().get(updated.indexOf("EUR"));
+        assertEquals(4, published.getVersion());
+        assertEquals(eur.getUpdatedAt(), published.getUpdatedAt());
+        assertEquals(7, published.getChangeId());
+
+        // The delta refresh returns the same write with its own time and change id
+        Currency refreshed = currency("EUR", 1.10, 4);
+        refreshed.setUpdatedAt(Instant.parse("2026-01-02T00:00:00Z"));
+        refreshed.setChangeId(9);
+        RateTable patched = updated.withChanges(List.of(refreshed));
+        assertSame(refreshed, patched.getCurrencies().get(patched.indexOf("EUR")));
+        assertSame(patched, patched.withChanges(List.of(refreshed)));
+    }
+}
@@ -0,0 +1,259 @@
+package fi.metropolia.currency_converter.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateTickCoalescerTest {
+    // Long enough that only flush(), the threshold or close() store anything
+    private static final long NEVER_MS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Offline model that records the stored batches instead of writing them.
+     */
+    private static final class RecordingModel extends CurrencyModel {
+        final List<Map<String, Double>> batches = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        // Run inside the next write, before it fails or succeeds
+        volatile Runnable duringWrite;
+
+        RecordingModel(int currencies) {
+            super(null, currencies(currencies));
+        }
+
+        @Override
+        public void updateCurrencyRates(Map<String, Double> rates) {
+            Runnable hook = duringWrite;
+            duringWrite = null;
+            if (hook != null) {
+                hook.run();
+            }
+            if (failing) {
+                throw new RuntimeException("Database unavailable");
+            }
+            batches.add(Map.copyOf(rates));
+        }
+
+        /**
+         * Gets the latest stored rate per currency.
+         */
+        Map<String, Double> stored() {
+            Map<String, Double> latest = new HashMap<>();
+            for (Map<String, Double> batch : batches) {
+                latest.putAll(batch);
+            }
+            return latest;
+        }
+    }
+
+    private static List<Currency> currencies(int count) {
+        List<Currency> currencies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            currencies.add(new Currency(code(i), "Currency " + i, 1.0));
+        }
+        return currencies;
+    }
+
+    private static String code(int i) {
+        return String.format("C%02d", i);
+    }
+
+    @Test
+    void ticksArePublishedAtOnceAndStoredCoalesced() {
+        RecordingModel model = new RecordingModel(3);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 100, null);
+        try {
+            ticks.submit("C00", 1.1);
+            ticks.submit("C00", 1.2);
+            ticks.submit("C01", 2.5);
+            ticks.submit("C00", 1.3);
+            assertEquals(1.3, model.getExchangeRate("C00"));
+            assertEquals(2, ticks.getPendingCount());
+
+            assertEquals(2, ticks.flush());
+            assertEquals(List.of(Map.of("C00", 1.3, "C01", 2.5)), model.batches);
+            assertEquals(0, ticks.getPendingCount());
+            assertEquals(0, ticks.flush());
+        } finally {
+            ticks.close();
+        }
+        assertEquals(4, ticks.getTickCount());
+        assertEquals(2, ticks.getWrittenCount());
+    }
+
+    @Test
+    void failedFlushIsRetriedUnlessANewerTickReplacedIt() {
+        RecordingModel model = new RecordingModel(2);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 100, null);
+        try {
+            ticks.submit("C00", 1.1);
+            ticks.submit("C01", 2.1);
+            model.failing = true;
+            assertEquals(0, ticks.flush());
+            assertEquals(1, ticks.getFailedFlushCount());
+
+            ticks.submit("C01", 2.2);
+            model.failing = false;
+            assertEquals(2, ticks.flush());
+            assertEquals(Map.of("C00", 1.1, "C01", 2.2), model.batches.get(0));
+        } finally {
+            ticks.close();
+        }
+    }
+
+    @Test
+    void dirtyThresholdTriggersAnEarlyFlush() throws InterruptedException {
+        RecordingModel model = new RecordingModel(2);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 2, null);
+        try {
+            ticks.submit("C00", 1.1);
+            ticks.submit("C01", 2.1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (model.batches.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Map.of("C00", 1.1, "C01", 2.1), model.stored());
+        } finally {
+            ticks.close();
+        }
+    }
+
+    @Test
+    void closeStoresWaitingTicksAndRejectsNewOnes() {
+        RecordingModel model = new RecordingModel(1);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 100, null);
+        ticks.submit("C00", 1.5);
+        ticks.close();
+        ticks.close();
+        assertEquals(List.of(Map.of("C00", 1.5)), model.batches);
+        assertThrows(IllegalStateException.class, () -> ticks.submit("C00", 1.6));
+    }
+
+    @Test
+    void invalidTicksAreRejected() {
+        RecordingModel model = new RecordingModel(1);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 100, null);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> ticks.submit("C00", 0));
+            assertThrows(IllegalArgumentException.class, () -> ticks.submit("C00", Double.NaN));
+            assertThrows(IllegalArgumentException.class, () -> ticks.submit("ZZZ", 1));
+        } finally {
+            ticks.close();
+        }
+    }
+
+    @Test
+    void latestTickSurvivesSlotGrowthUnderConcurrentFlushes() throws InterruptedException {
+        int currencies = 64;
+        int threads = 8;
+        int ticksPerCurrency = 2_000;
+        RecordingModel model = new RecordingModel(currencies);
+        // Frequent flushes while new currencies keep growing the slots
+        RateTickCoalescer ticks = new RateTickCoalescer(model, 1, 4, null);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread submitter = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 1; i <= ticksPerCurrency; i++) {
+                        // Each thread owns every threads-th currency; later ones first appear mid-run
+                        for (int c = thread; c < currencies && c <= i; c += threads) {
+                            ticks.submit(code(c), i);
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        ticks.close();
+
+        assertTrue(errors.isEmpty(), () -> errors.toString());
+        assertEquals(0, ticks.getPendingCount());
+        Map<String, Double> stored = model.stored();
+        for (int c = 0; c < currencies; c++) {
+            assertEquals((double) ticksPerCurrency, stored.get(code(c)), code(c));
+        }
+    }
+
+    @Test
+    void failedFlushIsRequeuedIntoSlotsThatGrewDuringIt() {
+        RecordingModel model = new RecordingModel(3);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, NEVER_MS, 100, null);
+        try {
+            ticks.submit("C00", 1.1);
+            ticks.submit("C01", 2.1);
+            model.failing = true;
+            // A new currency grows the slots while the flush is writing
+            model.duringWrite = () -> ticks.submit("C02", 3.1);
+            assertEquals(0, ticks.flush());
+            assertEquals(3, ticks.getPendingCount());
+
+            model.failing = false;
+            assertEquals(3, ticks.flush());
+            assertEquals(Map.of("C00", 1.1, "C01", 2.1, "C02", 3.1), model.batches.get(0));
+            assertEquals(0, ticks.getPendingCount());
+        } finally {
+            ticks.close();
+        }
+    }
+
+    @Test
+    void everyAcceptedTickIsStoredWhenClosingConcurrently() throws InterruptedException {
+        int threads = 4;
+        RecordingModel model = new RecordingModel(threads);
+        RateTickCoalescer ticks = new RateTickCoalescer(model, 1, 2, null);
+
+        double[] accepted = new double[threads];
+        List<Thread> submitters = new ArrayList<>();
+        CountDownLatch running = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread submitter = new Thread(() -> {
+                running.countDown();
+                for (int i = 1; ; i++) {
+                    try {
+                        ticks.submit(code(thread), i);
+                    } catch (IllegalStateException closed) {
+                        return;
+                    }
+                    accepted[thread] = i;
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        running.await();
+        Thread.sleep(20);
+        ticks.close();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        Map<String, Double> stored = model.stored();
+        for (int t = 0; t < threads; t++) {
+            assertEquals(accepted[t], stored.get(code(t)), code(t));
+        }
+        assertEquals(0, ticks.getPendingCount());
+    }
+}
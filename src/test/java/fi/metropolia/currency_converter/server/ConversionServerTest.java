@@ -0,0 +1,95 @@
+package fi.metropolia.currency_converter.server;
+
+import fi.metropolia.currency_converter.dao.TransactionSink;
+import fi.metropolia.currency_converter.model.Currency;
+import fi.metropolia.currency_converter.model.CurrencyModel;
+import fi.metropolia.currency_converter.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversionServerTest {
+    private final List<Transaction> recorded = new CopyOnWriteArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private CurrencyModel model;
+    private ConversionServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        // Offline model: rates come from the given currencies, no database is attached
+        model = new CurrencyModel(null, List.of(
+                new Currency("USD", "United States Dollar", 1.0),
+                new Currency("EUR", "Euro", 1.09)));
+        TransactionSink sink = new TransactionSink() {
+            @Override
+            public void submit(Transaction transaction) {
+                recorded.add(transaction);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        server = new ConversionServer(model, sink, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void convertsFiniteAmounts() throws Exception {
+        HttpResponse<String> response = send("GET", "/convert?from=EUR&to=USD&amount=100");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"amount\":100.0"), response.body());
+    }
+
+    @Test
+    void rejectsNumbersThatAreNotFinite() throws Exception {
+        for (String amount : List.of("NaN", "Infinity", "-Infinity", "1e400")) {
+            assertEquals(400, send("GET", "/convert?from=EUR&to=USD&amount=" + amount).statusCode(), amount);
+            assertEquals(400, send("POST", "/transactions?from=EUR&to=USD&amount=" + amount).statusCode(), amount);
+            assertEquals(400, send("PUT", "/rate?code=EUR&rate=" + amount).statusCode(), amount);
+            assertEquals(400, send("POST", "/ticks?code=EUR&rate=" + amount).statusCode(), amount);
+        }
+        assertTrue(recorded.isEmpty());
+        assertEquals(1.09, model.getExchangeRate("EUR"));
+    }
+
+    @Test
+    void rejectsResultsThatOverflow() throws Exception {
+        assertEquals(400, send("GET", "/convert?from=EUR&to=USD&amount=1.7e308").statusCode());
+    }
+
+    @Test
+    void rejectsRatesThatAreNotPositiveOrFinite() {
+        for (double rate : new double[]{0, -1, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertTrue(model.updateCurrencyRateAsync("EUR", rate).isCompletedExceptionally(), () -> "" + rate);
+        }
+    }
+
+    @Test
+    void escapesControlCharactersInJson() {
+        assertEquals("a\\\"b\\\\c\\nd\\u0001\\t", ConversionServer.jsonEscape("a\"b\\c\nd\u0001\t"));
+    }
+}